@@ -0,0 +1,113 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package cloud.orbit.spring;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import cloud.orbit.actors.runtime.AbstractActor;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the full createBean path of {@link SpringActorConstructionExtension} with cached construction plans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ActorConstructionBenchmark
+{
+    private SpringActorConstructionExtension createBeanExtension;
+    private SpringActorConstructionExtension cachedPlanExtension;
+    private SpringActorConstructionExtension precompiledExtension;
+    private String greeting;
+
+    @Setup
+    public void setUp()
+    {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        AutowiredAnnotationBeanPostProcessor postProcessor = new AutowiredAnnotationBeanPostProcessor();
+        postProcessor.setBeanFactory(beanFactory);
+        beanFactory.addBeanPostProcessor(postProcessor);
+        beanFactory.registerSingleton("greeting", "hello");
+        beanFactory.registerSingleton("count", 42);
+        greeting = "hello";
+
+        createBeanExtension = new SpringActorConstructionExtension(beanFactory, false);
+        cachedPlanExtension = new SpringActorConstructionExtension(beanFactory, true);
+        precompiledExtension = new SpringActorConstructionExtension(beanFactory, true,
+                Collections.singletonList(getClass().getPackage().getName()));
+        precompiledExtension.afterSingletonsInstantiated();
+    }
+
+    @Benchmark
+    public Object plainNew()
+    {
+        InjectedActor actor = new InjectedActor(greeting);
+        actor.count = 42;
+        return actor;
+    }
+
+    @Benchmark
+    public Object createBean()
+    {
+        return createBeanExtension.newInstance(InjectedActor.class);
+    }
+
+    @Benchmark
+    public Object cachedPlan()
+    {
+        return cachedPlanExtension.newInstance(InjectedActor.class);
+    }
+
+    @Benchmark
+    public Object precompiledPlan()
+    {
+        return precompiledExtension.newInstance(InjectedActor.class);
+    }
+
+    public static class InjectedActor extends AbstractActor
+    {
+        private final String greeting;
+
+        @Autowired
+        private Integer count;
+
+        public InjectedActor(final String greeting)
+        {
+            this.greeting = greeting;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing and reading an actor message payload with plain Kryo, which writes the class names, and with the
+ * message types registered by {@link ActorMessageTypeRegistrar}. Run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MessageSerializationBenchmark
+{
+    private Kryo plainKryo;
+    private Kryo registeredKryo;
+    private Output output;
+    private Order order;
+
+    @Setup
+    public void setUp()
+    {
+        plainKryo = new Kryo();
+        registeredKryo = new Kryo();
+        List<Class<?>> messageTypes = new ArrayList<>(ActorMessageTypeRegistrar.JDK_TYPES);
+        messageTypes.addAll(Arrays.asList(Order.class, OrderLine.class));
+        new ActorMessageTypeRegistrar(messageTypes).accept(registeredKryo);
+        output = new Output(4096, -1);
+        order = new Order();
+        for (int i = 0; i < 10; i++)
+        {
+            order.lines.add(new OrderLine("item-" + i, i));
+        }
+    }
+
+    @Benchmark
+    public Object plainRoundTrip()
+    {
+        return roundTrip(plainKryo);
+    }
+
+    @Benchmark
+    public Object registeredRoundTrip()
+    {
+        return roundTrip(registeredKryo);
+    }
+
+    private Object roundTrip(final Kryo kryo)
+    {
+        output.clear();
+        kryo.writeClassAndObject(output, order);
+        return kryo.readClassAndObject(new Input(output.getBuffer(), 0, output.position()));
+    }
+
+    public static class Order
+    {
+        private List<OrderLine> lines = new ArrayList<>();
+    }
+
+    public static class OrderLine
+    {
+        private String item;
+        private int quantity;
+
+        public OrderLine()
+        {
+        }
+
+        OrderLine(final String item, final int quantity)
+        {
+            this.item = item;
+            this.quantity = quantity;
+        }
+    }
+}
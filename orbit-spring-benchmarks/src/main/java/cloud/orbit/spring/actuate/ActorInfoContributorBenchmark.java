@@ -0,0 +1,82 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package cloud.orbit.spring.actuate;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.actuate.info.Info;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full {@link ActorInfoContributorLifetimeExtension#contribute(Info.Builder)} scrape with many registered
+ * actors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ActorInfoContributorBenchmark
+{
+    @Param({ "10000", "100000", "1000000" })
+    private int actorCount;
+
+    private ActorInfoContributorLifetimeExtension extension;
+
+    // keeps the actors strongly reachable, the extension only holds weak references
+    private List<BenchmarkActorImpl> actors;
+
+    @Setup
+    public void setUp()
+    {
+        ActorInfoContributorConfiguration.GroupProperties groupProperties =
+                new ActorInfoContributorConfiguration.GroupProperties();
+        extension = new ActorInfoContributorLifetimeExtension(actor -> BenchmarkActor.class,
+                new ActorInfoDetailsContainer(groupProperties), Runnable::run);
+        actors = new ArrayList<>(actorCount);
+        for (int i = 0; i < actorCount; i++)
+        {
+            BenchmarkActorImpl actor = new BenchmarkActorImpl(String.valueOf(i), i);
+            actors.add(actor);
+            extension.postActivation(actor);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> contribute()
+    {
+        Info.Builder builder = new Info.Builder();
+        extension.contribute(builder);
+        return builder.build().getDetails();
+    }
+}
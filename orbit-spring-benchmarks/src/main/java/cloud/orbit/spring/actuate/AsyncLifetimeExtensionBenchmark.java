@@ -0,0 +1,121 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package cloud.orbit.spring.actuate;
+
+import org.openjdk.jmh.annotations.*;
+
+import cloud.orbit.actors.runtime.AbstractActor;
+import cloud.orbit.concurrent.Task;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost that {@link AsyncLifetimeExtension} adds to the activation and deactivation path, when the jobs
+ * run inline, when each one is handed to a pool like the default stage executor, and when they are batched.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AsyncLifetimeExtensionBenchmark
+{
+    private AsyncLifetimeExtension inlineExtension;
+    private AsyncLifetimeExtension pooledExtension;
+    private AsyncLifetimeExtension batchedExtension;
+    private ExecutorService pool;
+    private BenchmarkActorImpl actor;
+
+    @Setup
+    public void setUp()
+    {
+        pool = new ForkJoinPool();
+        inlineExtension = new NoOpAsyncLifetimeExtension(Runnable::run);
+        pooledExtension = new NoOpAsyncLifetimeExtension(pool);
+        batchedExtension = new NoOpAsyncLifetimeExtension(pool, 1000);
+        actor = new BenchmarkActorImpl("0", 0);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void inlineActivationAndDeactivation()
+    {
+        inlineExtension.postActivation(actor);
+        inlineExtension.postDeactivation(actor);
+    }
+
+    @Benchmark
+    public void pooledActivationAndDeactivation()
+    {
+        pooledExtension.postActivation(actor);
+        pooledExtension.postDeactivation(actor);
+    }
+
+    @Benchmark
+    public void batchedActivationAndDeactivation()
+    {
+        batchedExtension.postActivation(actor);
+        batchedExtension.postDeactivation(actor);
+    }
+
+    private static class NoOpAsyncLifetimeExtension extends AsyncLifetimeExtension
+    {
+        private NoOpAsyncLifetimeExtension(final Executor executor)
+        {
+            this(executor, 0);
+        }
+
+        private NoOpAsyncLifetimeExtension(final Executor executor, final int batchSize)
+        {
+            super(executor, batchSize);
+        }
+
+        @Override
+        protected Task postActivationAsync(final AbstractActor<?> actor)
+        {
+            return Task.done();
+        }
+
+        @Override
+        protected Task postDeactivationAsync(final AbstractActor<?> actor)
+        {
+            return Task.done();
+        }
+    }
+}
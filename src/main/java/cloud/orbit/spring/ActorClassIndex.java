@@ -0,0 +1,132 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The actor interfaces and their implementations, as recorded at build time by {@link ActorClassIndexProcessor}. Every
+ * jar on the classpath can contribute its own index file, and they are merged.
+ */
+class ActorClassIndex
+{
+    static final String LOCATION = "META-INF/orbit/actor-classes.index";
+
+    private static final Logger log = LoggerFactory.getLogger(ActorClassIndex.class);
+
+    private final Map<String, String> implementationsByInterface;
+
+    ActorClassIndex(final Map<String, String> implementationsByInterface)
+    {
+        this.implementationsByInterface = Collections.unmodifiableMap(implementationsByInterface);
+    }
+
+    /**
+     * @return the merged index of every index file visible to the class loader, or null if there is none
+     */
+    static ActorClassIndex load(final ClassLoader classLoader)
+    {
+        try
+        {
+            Enumeration<URL> resources = classLoader.getResources(LOCATION);
+            if (!resources.hasMoreElements())
+            {
+                return null;
+            }
+            Map<String, String> implementationsByInterface = new LinkedHashMap<>();
+            while (resources.hasMoreElements())
+            {
+                read(resources.nextElement(), implementationsByInterface);
+            }
+            return new ActorClassIndex(implementationsByInterface);
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to read the actor class index, falling back to classpath scanning", e);
+            return null;
+        }
+    }
+
+    private static void read(final URL resource, final Map<String, String> implementationsByInterface)
+            throws IOException
+    {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.openStream(), StandardCharsets.UTF_8)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                int separator = line.indexOf('=');
+                if (line.isEmpty() || line.startsWith("#") || separator < 0)
+                {
+                    continue;
+                }
+                String actorInterface = line.substring(0, separator).trim();
+                String implementation = line.substring(separator + 1).trim();
+                String previous = implementationsByInterface.putIfAbsent(actorInterface, implementation);
+                if (previous != null && !previous.equals(implementation))
+                {
+                    log.warn("Actor interface {} has several implementations, using {} and ignoring {}",
+                            actorInterface, previous, implementation);
+                }
+            }
+        }
+    }
+
+    String getImplementation(final String actorInterface)
+    {
+        return implementationsByInterface.get(actorInterface);
+    }
+
+    Collection<String> getImplementations()
+    {
+        return implementationsByInterface.values();
+    }
+
+    Collection<String> getInterfaces()
+    {
+        return implementationsByInterface.keySet();
+    }
+
+    int size()
+    {
+        return implementationsByInterface.size();
+    }
+}
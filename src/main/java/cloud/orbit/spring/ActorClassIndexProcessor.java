@@ -0,0 +1,169 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Writes the actor interfaces and implementations of a compilation to {@link ActorClassIndex#LOCATION}, so that the
+ * stage can find them at startup without scanning the classpath. It is not registered as a service, so it only runs
+ * for the modules that name it as an annotation processor; it never claims any annotations, so it does not interfere
+ * with other processors.
+ * <p>
+ * The index only covers the classes compiled in one go, so modules must be fully rebuilt for it to stay complete.
+ */
+@SupportedAnnotationTypes("*")
+public class ActorClassIndexProcessor extends AbstractProcessor
+{
+    private static final String ACTOR = "cloud.orbit.actors.Actor";
+    private static final String ABSTRACT_ACTOR = "cloud.orbit.actors.runtime.AbstractActor";
+
+    private final Map<String, String> implementationsByInterface = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv)
+    {
+        if (roundEnv.processingOver())
+        {
+            writeIndex();
+            return false;
+        }
+        Elements elements = processingEnv.getElementUtils();
+        TypeElement actor = elements.getTypeElement(ACTOR);
+        TypeElement abstractActor = elements.getTypeElement(ABSTRACT_ACTOR);
+        if (actor == null || abstractActor == null)
+        {
+            return false;
+        }
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror actorType = types.erasure(actor.asType());
+        TypeMirror abstractActorType = types.erasure(abstractActor.asType());
+        for (Element element : roundEnv.getRootElements())
+        {
+            collect(element, types, actorType, abstractActorType);
+        }
+        return false;
+    }
+
+    private void collect(final Element element, final Types types, final TypeMirror actorType,
+                         final TypeMirror abstractActorType)
+    {
+        if (!(element instanceof TypeElement))
+        {
+            return;
+        }
+        TypeElement type = (TypeElement) element;
+        if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)
+                && types.isAssignable(types.erasure(type.asType()), abstractActorType))
+        {
+            String implementation = processingEnv.getElementUtils().getBinaryName(type).toString();
+            collectActorInterfaces(type.asType(), types, actorType, implementation);
+        }
+        for (Element enclosed : type.getEnclosedElements())
+        {
+            collect(enclosed, types, actorType, abstractActorType);
+        }
+    }
+
+    private void collectActorInterfaces(final TypeMirror type, final Types types, final TypeMirror actorType,
+                                        final String implementation)
+    {
+        for (TypeMirror supertype : types.directSupertypes(type))
+        {
+            Element element = ((DeclaredType) supertype).asElement();
+            TypeMirror erasure = types.erasure(supertype);
+            if (element.getKind() == ElementKind.INTERFACE && types.isAssignable(erasure, actorType)
+                    && !types.isSameType(erasure, actorType))
+            {
+                String actorInterface =
+                        processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString();
+                String previous = implementationsByInterface.putIfAbsent(actorInterface, implementation);
+                if (previous != null && !previous.equals(implementation))
+                {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Actor interface "
+                            + actorInterface + " has several implementations, indexing " + previous);
+                }
+            }
+            collectActorInterfaces(supertype, types, actorType, implementation);
+        }
+    }
+
+    private void writeIndex()
+    {
+        if (implementationsByInterface.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            FileObject resource = processingEnv.getFiler()
+                    .createResource(StandardLocation.CLASS_OUTPUT, "", ActorClassIndex.LOCATION);
+            try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8))
+            {
+                writer.write("# Generated by " + getClass().getName() + "\n");
+                for (Map.Entry<String, String> entry : implementationsByInterface.entrySet())
+                {
+                    writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Unable to write the actor class index: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package cloud.orbit.spring;
+
+import org.springframework.beans.BeanInstantiationException;
+import org.springframework.beans.factory.Aware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.DependencyDescriptor;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * The construction steps of an actor class, resolved once and replayed on every activation: a method handle for the
+ * constructor, a supplier for each of its arguments and a setter handle for each injected field. Only injected
+ * methods and {@code @Resource} members still go through the bean factory's property population. Classes that cannot
+ * be planned safely keep going through the bean factory's full createBean path.
+ */
+class ActorConstructionPlan
+{
+    private static final Set<String> INJECTION_ANNOTATIONS = new HashSet<>(Arrays.asList(
+            "org.springframework.beans.factory.annotation.Autowired",
+            "org.springframework.beans.factory.annotation.Value",
+            "javax.inject.Inject",
+            "javax.annotation.Resource"));
+
+    private static final Set<String> FIELD_INJECTION_ANNOTATIONS = new HashSet<>(Arrays.asList(
+            "org.springframework.beans.factory.annotation.Autowired",
+            "org.springframework.beans.factory.annotation.Value",
+            "javax.inject.Inject"));
+
+    private static final Set<String> LIFECYCLE_ANNOTATIONS = new HashSet<>(Arrays.asList(
+            "javax.annotation.PostConstruct",
+            "javax.annotation.PreDestroy"));
+
+    private final AutowireCapableBeanFactory beanFactory;
+    private final Class<?> beanClass;
+    private final MethodHandle constructor;
+    private final Supplier<?>[] argumentSuppliers;
+    private final FieldInjection[] fieldInjections;
+    private final boolean populateProperties;
+
+    private ActorConstructionPlan(final AutowireCapableBeanFactory beanFactory,
+                                  final Class<?> beanClass,
+                                  final MethodHandle constructor,
+                                  final Supplier<?>[] argumentSuppliers,
+                                  final FieldInjection[] fieldInjections,
+                                  final boolean populateProperties)
+    {
+        this.beanFactory = beanFactory;
+        this.beanClass = beanClass;
+        this.constructor = constructor;
+        this.argumentSuppliers = argumentSuppliers;
+        this.fieldInjections = fieldInjections;
+        this.populateProperties = populateProperties;
+    }
+
+    static ActorConstructionPlan create(final AutowireCapableBeanFactory beanFactory, final Class<?> beanClass)
+    {
+        Constructor<?> constructor = requiresFullConstruction(beanClass) ? null : resolveConstructor(beanClass);
+        if (constructor == null)
+        {
+            return new ActorConstructionPlan(beanFactory, beanClass, null, new Supplier<?>[0], new FieldInjection[0],
+                    true);
+        }
+        Supplier<?>[] argumentSuppliers = new Supplier<?>[constructor.getParameterCount()];
+        for (int i = 0; i < argumentSuppliers.length; i++)
+        {
+            argumentSuppliers[i] = resolveArgument(beanFactory, new DependencyDescriptor(
+                    new MethodParameter(constructor, i), true));
+        }
+        List<FieldInjection> fieldInjections = new ArrayList<>();
+        boolean populateProperties = false;
+        // superclass members first, in the order Spring injects them
+        Deque<Class<?>> hierarchy = new ArrayDeque<>();
+        for (Class<?> type = beanClass; type != null && type != Object.class; type = type.getSuperclass())
+        {
+            hierarchy.push(type);
+        }
+        for (Class<?> type : hierarchy)
+        {
+            for (Field field : type.getDeclaredFields())
+            {
+                if (Modifier.isStatic(field.getModifiers()))
+                {
+                    continue;
+                }
+                if (isAnnotatedWithAny(field, FIELD_INJECTION_ANNOTATIONS) && !Modifier.isFinal(field.getModifiers()))
+                {
+                    fieldInjections.add(resolveField(beanFactory, field));
+                }
+                else if (isAnnotatedWithAny(field, INJECTION_ANNOTATIONS))
+                {
+                    populateProperties = true;
+                }
+            }
+            for (Method method : type.getDeclaredMethods())
+            {
+                populateProperties |= isAnnotatedWithAny(method, INJECTION_ANNOTATIONS);
+            }
+        }
+        if (populateProperties)
+        {
+            // the bean factory injects fields as well as methods, so don't write them twice
+            fieldInjections.clear();
+        }
+        return new ActorConstructionPlan(beanFactory, beanClass, compileConstructor(constructor), argumentSuppliers,
+                fieldInjections.toArray(new FieldInjection[fieldInjections.size()]), populateProperties);
+    }
+
+    boolean isFullConstruction()
+    {
+        return constructor == null;
+    }
+
+    Object newInstance()
+    {
+        if (constructor == null)
+        {
+            return beanFactory.createBean(beanClass);
+        }
+        Object[] arguments = new Object[argumentSuppliers.length];
+        for (int i = 0; i < arguments.length; i++)
+        {
+            arguments[i] = argumentSuppliers[i].get();
+        }
+        try
+        {
+            Object instance = (Object) constructor.invokeExact(arguments);
+            for (FieldInjection fieldInjection : fieldInjections)
+            {
+                fieldInjection.inject(instance);
+            }
+            if (populateProperties)
+            {
+                beanFactory.autowireBeanProperties(instance, AutowireCapableBeanFactory.AUTOWIRE_NO, false);
+            }
+            return instance;
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable e)
+        {
+            throw new BeanInstantiationException(beanClass, "Constructor threw exception", e);
+        }
+    }
+
+    private static MethodHandle compileConstructor(final Constructor<?> constructor)
+    {
+        ReflectionUtils.makeAccessible(constructor);
+        try
+        {
+            return MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, constructor.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new BeanInstantiationException(constructor.getDeclaringClass(), "Constructor is not accessible", e);
+        }
+    }
+
+    private static FieldInjection resolveField(final AutowireCapableBeanFactory beanFactory, final Field field)
+    {
+        Autowired autowired = AnnotationUtils.getAnnotation(field, Autowired.class);
+        boolean required = autowired == null || autowired.required();
+        ReflectionUtils.makeAccessible(field);
+        try
+        {
+            MethodHandle setter = MethodHandles.lookup().unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return new FieldInjection(setter, resolveArgument(beanFactory, new DependencyDescriptor(field, required)));
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new BeanInstantiationException(field.getDeclaringClass(), "Field " + field + " is not accessible", e);
+        }
+    }
+
+    private static boolean requiresFullConstruction(final Class<?> beanClass)
+    {
+        return AnnotationUtils.findAnnotation(beanClass, FullBeanConstruction.class) != null
+                || Aware.class.isAssignableFrom(beanClass)
+                || InitializingBean.class.isAssignableFrom(beanClass)
+                || DisposableBean.class.isAssignableFrom(beanClass)
+                || hasMemberAnnotatedWithAny(beanClass, LIFECYCLE_ANNOTATIONS);
+    }
+
+    private static Constructor<?> resolveConstructor(final Class<?> beanClass)
+    {
+        Constructor<?>[] constructors = beanClass.getDeclaredConstructors();
+        Constructor<?> annotatedConstructor = null;
+        for (Constructor<?> candidate : constructors)
+        {
+            if (isAnnotatedWithAny(candidate, INJECTION_ANNOTATIONS))
+            {
+                if (annotatedConstructor != null)
+                {
+                    // ambiguous, let Spring decide
+                    return null;
+                }
+                annotatedConstructor = candidate;
+            }
+        }
+        if (annotatedConstructor != null)
+        {
+            return annotatedConstructor;
+        }
+        if (constructors.length == 1)
+        {
+            return constructors[0];
+        }
+        try
+        {
+            return beanClass.getDeclaredConstructor();
+        }
+        catch (NoSuchMethodException e)
+        {
+            return null;
+        }
+    }
+
+    private static Supplier<?> resolveArgument(final AutowireCapableBeanFactory beanFactory,
+                                               final DependencyDescriptor descriptor)
+    {
+        Set<String> autowiredBeanNames = new LinkedHashSet<>();
+        Object value = beanFactory.resolveDependency(descriptor, null, autowiredBeanNames, null);
+        if (!autowiredBeanNames.isEmpty() && autowiredBeanNames.stream().allMatch(beanFactory::isSingleton))
+        {
+            return () -> value;
+        }
+        // prototypes, @Value expressions and the like must be resolved again for each instance
+        return () -> beanFactory.resolveDependency(descriptor, null);
+    }
+
+    private static boolean hasMemberAnnotatedWithAny(final Class<?> beanClass, final Set<String> annotationNames)
+    {
+        for (Class<?> type = beanClass; type != null && type != Object.class; type = type.getSuperclass())
+        {
+            for (Field field : type.getDeclaredFields())
+            {
+                if (isAnnotatedWithAny(field, annotationNames))
+                {
+                    return true;
+                }
+            }
+            for (Method method : type.getDeclaredMethods())
+            {
+                if (isAnnotatedWithAny(method, annotationNames))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAnnotatedWithAny(final AnnotatedElement element, final Set<String> annotationNames)
+    {
+        for (Annotation annotation : element.getAnnotations())
+        {
+            if (annotationNames.contains(annotation.annotationType().getName()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class FieldInjection
+    {
+        private final MethodHandle setter;
+        private final Supplier<?> valueSupplier;
+
+        private FieldInjection(final MethodHandle setter, final Supplier<?> valueSupplier)
+        {
+            this.setter = setter;
+            this.valueSupplier = valueSupplier;
+        }
+
+        private void inject(final Object instance) throws Throwable
+        {
+            Object value = valueSupplier.get();
+            if (value != null)
+            {
+                setter.invokeExact(instance, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.util.ClassUtils;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Registration;
+
+import cloud.orbit.actors.Actor;
+import cloud.orbit.actors.runtime.AbstractActor;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Registers the message classes of the application with Kryo, so that messages carry a small class id instead of the
+ * class name. Every class gets an id derived from its name alone, so the same class has the same id on every node.
+ * <p>
+ * A node can only read an id that it registered, so every node must register every class that any node may send by
+ * id, whatever its version or its actor interfaces. Classes are therefore not registered by walking the actor
+ * interfaces of the node, which differ between releases and between clients and servers, but by classpath: every
+ * concrete class in the base packages, whether an actor interface of this node uses it or not, plus a fixed list of
+ * common JDK classes. Any other class, such as a library type, keeps Kryo's name-based encoding, which every node that
+ * has the class can read.
+ */
+class ActorMessageTypeRegistrar implements Consumer<Kryo>
+{
+    static final int FIRST_ID = 1024;
+
+    /**
+     * JDK classes common in messages, which every node has; the list must only ever grow.
+     */
+    static final List<Class<?>> JDK_TYPES = Collections.unmodifiableList(Arrays.asList(
+            ArrayList.class, LinkedList.class, HashMap.class, LinkedHashMap.class, TreeMap.class, HashSet.class,
+            LinkedHashSet.class, TreeSet.class, UUID.class, BigDecimal.class, BigInteger.class, Date.class,
+            Instant.class, LocalDate.class, LocalDateTime.class, Duration.class));
+
+    private static final Logger log = LoggerFactory.getLogger(ActorMessageTypeRegistrar.class);
+
+    private final Map<Integer, Class<?>> registrations = new TreeMap<>();
+
+    /**
+     * @throws IllegalStateException if two message types get the same id, which is so unlikely that it is easier to
+     *                               rename one of them than to work around it
+     */
+    ActorMessageTypeRegistrar(final Collection<Class<?>> messageTypes)
+    {
+        for (Class<?> messageType : messageTypes)
+        {
+            Class<?> previous = registrations.putIfAbsent(idOf(messageType), messageType);
+            if (previous != null && previous != messageType)
+            {
+                throw new IllegalStateException("Message types " + previous.getName() + " and "
+                        + messageType.getName() + " have the same Kryo registration id");
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if an id is already taken by another class, so that the node fails to start
+     *                               instead of disagreeing with the others on what the id means
+     */
+    @Override
+    public void accept(final Kryo kryo)
+    {
+        registrations.forEach((id, messageType) ->
+        {
+            Registration existing = kryo.getClassResolver().getRegistration(messageType);
+            if (existing != null && existing.getId() >= 0)
+            {
+                // already registered by Orbit or by Kryo itself
+                return;
+            }
+            Registration taken = kryo.getClassResolver().getRegistration(id);
+            if (taken != null)
+            {
+                // skipping it would leave this node disagreeing with the others on what the id means
+                throw new IllegalStateException("Kryo registration id " + id + " of " + messageType.getName()
+                        + " is already taken by " + taken.getType().getName());
+            }
+            kryo.register(messageType, id);
+        });
+    }
+
+    Map<Integer, Class<?>> getRegistrations()
+    {
+        return Collections.unmodifiableMap(registrations);
+    }
+
+    /**
+     * FNV-1a of the class name, so that the id does not depend on the JVM, the node or the other registered classes.
+     */
+    static int idOf(final Class<?> messageType)
+    {
+        int hash = 0x811c9dc5;
+        for (byte b : messageType.getName().getBytes(StandardCharsets.UTF_8))
+        {
+            hash = (hash ^ (b & 0xff)) * 0x01000193;
+        }
+        return FIRST_ID + (hash & 0x3fffffff);
+    }
+
+    /**
+     * The {@link #JDK_TYPES} and every concrete, top-level or static nested class in the packages, except actor
+     * implementations. Two nodes with the same classes in those packages register the same ids, whatever their actor
+     * interfaces, so a node of a newer release can send a class that an older node has to it, even if no actor
+     * interface of the older node uses it.
+     */
+    static Collection<Class<?>> findMessageTypes(final Collection<String> basePackages, final ClassLoader classLoader)
+    {
+        Set<Class<?>> messageTypes = new LinkedHashSet<>(JDK_TYPES);
+        if (basePackages == null)
+        {
+            log.warn("No orbit.actors.base-packages, only JDK message types registered");
+            return messageTypes;
+        }
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false)
+        {
+            @Override
+            protected boolean isCandidateComponent(final AnnotatedBeanDefinition beanDefinition)
+            {
+                return beanDefinition.getMetadata().isConcrete() && beanDefinition.getMetadata().isIndependent();
+            }
+        };
+        scanner.setResourceLoader(new DefaultResourceLoader(classLoader));
+        scanner.addIncludeFilter((metadataReader, metadataReaderFactory) -> true);
+        Set<Class<?>> found = new TreeSet<>(Comparator.comparing(Class::getName));
+        for (String basePackage : basePackages)
+        {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage))
+            {
+                addIfPresent(candidate.getBeanClassName(), classLoader, found);
+            }
+        }
+        for (Class<?> type : found)
+        {
+            if (!AbstractActor.class.isAssignableFrom(type))
+            {
+                messageTypes.add(type);
+            }
+        }
+        return messageTypes;
+    }
+
+    /**
+     * Every actor interface in the packages, whether this node implements it or not. Implementations differ from node
+     * to node, a client-only node has none at all, but the interfaces have to be on the classpath of every node that
+     * uses them, so all the nodes of a cluster register the same classes. The actor class index is not used, since it
+     * only lists the interfaces implemented by each module.
+     */
+    static Collection<Class<?>> findActorInterfaces(final Collection<String> basePackages,
+                                                    final ClassLoader classLoader)
+    {
+        Set<Class<?>> actorInterfaces = new LinkedHashSet<>();
+        if (basePackages == null)
+        {
+            log.warn("No orbit.actors.base-packages, no actor message type registered");
+            return actorInterfaces;
+        }
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false)
+        {
+            @Override
+            protected boolean isCandidateComponent(final AnnotatedBeanDefinition beanDefinition)
+            {
+                return beanDefinition.getMetadata().isInterface() && beanDefinition.getMetadata().isIndependent();
+            }
+        };
+        scanner.setResourceLoader(new DefaultResourceLoader(classLoader));
+        scanner.addIncludeFilter(new AssignableTypeFilter(Actor.class));
+        for (String basePackage : basePackages)
+        {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage))
+            {
+                addIfPresent(candidate.getBeanClassName(), classLoader, actorInterfaces);
+            }
+        }
+        return actorInterfaces;
+    }
+
+    private static void addIfPresent(final String className, final ClassLoader classLoader,
+                                     final Set<Class<?>> classes)
+    {
+        try
+        {
+            classes.add(ClassUtils.forName(className, classLoader));
+        }
+        catch (ClassNotFoundException | LinkageError e)
+        {
+            log.warn("Unable to load {}", className, e);
+        }
+    }
+}
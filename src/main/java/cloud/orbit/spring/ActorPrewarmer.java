@@ -0,0 +1,301 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cloud.orbit.actors.Actor;
+import cloud.orbit.actors.Stage;
+import cloud.orbit.actors.runtime.RemoteReference;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the hot set file up to date with the most used {@link WarmableActor}s of this node, and activates the actors it
+ * lists when the stage starts, so that they are warm before the node takes traffic. At most {@code concurrency} actors
+ * are warmed up at a time; once they all are, or the timeout has elapsed, the node is reported as warm.
+ */
+public class ActorPrewarmer
+{
+    private static final Logger log = LoggerFactory.getLogger(ActorPrewarmer.class);
+
+    private final HotSetTracker hotSetTracker;
+    private final Path hotSetFile;
+    private final int hotSetSize;
+    private final int concurrency;
+    private final long timeoutMillis;
+    private final long writeIntervalMillis;
+    private final ClassLoader classLoader;
+    private final ScheduledExecutorService scheduler;
+    private final CompletableFuture<Void> warmedFuture = new CompletableFuture<>();
+    private final AtomicInteger remaining = new AtomicInteger();
+    private volatile boolean warming;
+
+    ActorPrewarmer(final HotSetTracker hotSetTracker, final Path hotSetFile, final int hotSetSize,
+                   final int concurrency, final long timeoutMillis, final long writeIntervalMillis,
+                   final ClassLoader classLoader)
+    {
+        this.hotSetTracker = hotSetTracker;
+        this.hotSetFile = hotSetFile;
+        this.hotSetSize = hotSetSize;
+        this.concurrency = concurrency;
+        this.timeoutMillis = timeoutMillis;
+        this.writeIntervalMillis = writeIntervalMillis;
+        this.classLoader = classLoader;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "orbit-actor-prewarmer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void startRecording()
+    {
+        scheduler.scheduleWithFixedDelay(this::writeHotSet, writeIntervalMillis, writeIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Warms up the actors of the hot set file once the stage is ready. The node counts as warming from now on.
+     */
+    void prewarmWhenReady(final CompletableFuture<Stage> stageReady)
+    {
+        warming = true;
+        stageReady.whenComplete((stage, throwable) ->
+        {
+            if (throwable != null)
+            {
+                finish();
+                return;
+            }
+            prewarm();
+        });
+    }
+
+    void prewarm()
+    {
+        prewarm(readHotSet());
+    }
+
+    void prewarm(final List<WarmableActor> actors)
+    {
+        if (actors.isEmpty())
+        {
+            finish();
+            return;
+        }
+        long start = System.nanoTime();
+        log.info("Pre-warming {} actors", actors.size());
+        remaining.set(actors.size());
+        warmedFuture.thenRun(() -> log.info("Pre-warmed {} of {} actors in {} ms", actors.size() - remaining.get(),
+                actors.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        if (timeoutMillis > 0)
+        {
+            scheduler.schedule(this::finish, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < Math.min(concurrency, actors.size()); i++)
+        {
+            warmUpNext(actors, next);
+        }
+    }
+
+    /**
+     * Warms up the next actors one after the other, for as long as they are warm as soon as {@code warmUp} returns,
+     * which is common for actors that are already active. Only a pending warm-up continues later, on the scheduler,
+     * so that a long run of completed ones neither recurses nor runs on the thread that completed the last one.
+     */
+    private void warmUpNext(final List<WarmableActor> actors, final AtomicInteger next)
+    {
+        while (true)
+        {
+            int index = next.getAndIncrement();
+            if (index >= actors.size() || warmedFuture.isDone())
+            {
+                return;
+            }
+            WarmableActor actor = actors.get(index);
+            CompletableFuture<?> warmedUp;
+            try
+            {
+                warmedUp = actor.warmUp();
+            }
+            catch (RuntimeException e)
+            {
+                warmedUp = CompletableFuture.completedFuture(null);
+                log.debug("Failed to warm up {}", actor, e);
+            }
+            if (!warmedUp.isDone())
+            {
+                warmedUp.whenCompleteAsync((result, throwable) ->
+                {
+                    onWarmedUp(actor, throwable);
+                    warmUpNext(actors, next);
+                }, scheduler);
+                return;
+            }
+            warmedUp.whenComplete((result, throwable) -> onWarmedUp(actor, throwable));
+        }
+    }
+
+    private void onWarmedUp(final WarmableActor actor, final Throwable throwable)
+    {
+        if (throwable != null)
+        {
+            log.debug("Failed to warm up {}", actor, throwable);
+        }
+        if (remaining.decrementAndGet() == 0)
+        {
+            finish();
+        }
+    }
+
+    private List<WarmableActor> readHotSet()
+    {
+        if (!Files.exists(hotSetFile))
+        {
+            return Collections.emptyList();
+        }
+        List<HotSetFile.Entry> entries;
+        try
+        {
+            entries = HotSetFile.read(hotSetFile);
+        }
+        catch (IOException e)
+        {
+            log.warn("Ignoring hot set file {}", hotSetFile, e);
+            return Collections.emptyList();
+        }
+        List<WarmableActor> actors = new ArrayList<>(entries.size());
+        for (HotSetFile.Entry entry : entries)
+        {
+            Class<? extends WarmableActor> actorInterface = resolve(entry.getInterfaceName());
+            if (actorInterface != null)
+            {
+                actors.add(entry.getId() != null
+                        ? Actor.getReference(actorInterface, entry.getId())
+                        : Actor.getReference(actorInterface));
+            }
+        }
+        return actors;
+    }
+
+    private Class<? extends WarmableActor> resolve(final String interfaceName)
+    {
+        try
+        {
+            Class<?> actorInterface = Class.forName(interfaceName, false, classLoader);
+            if (actorInterface.isInterface() && WarmableActor.class.isAssignableFrom(actorInterface))
+            {
+                return actorInterface.asSubclass(WarmableActor.class);
+            }
+        }
+        catch (ClassNotFoundException e)
+        {
+            // the actor was removed since the hot set was written
+        }
+        log.debug("Skipping {} from the hot set, it is not a warmable actor interface", interfaceName);
+        return null;
+    }
+
+    void writeHotSet()
+    {
+        List<RemoteReference<?>> hotSet = hotSetTracker.takeHotSet(hotSetSize);
+        if (hotSet.isEmpty())
+        {
+            // an idle node keeps the hot set it had
+            return;
+        }
+        List<HotSetFile.Entry> entries = new ArrayList<>(hotSet.size());
+        for (RemoteReference<?> reference : hotSet)
+        {
+            entries.add(new HotSetFile.Entry(RemoteReference.getInterfaceClass(reference).getName(),
+                    ((Actor) reference).getIdentity()));
+        }
+        try
+        {
+            HotSetFile.write(hotSetFile, entries);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            log.warn("Failed to write hot set file {}", hotSetFile, e);
+        }
+    }
+
+    private void finish()
+    {
+        warming = false;
+        warmedFuture.complete(null);
+    }
+
+    /**
+     * Writes the hot set one last time, so that the next start warms up what this node served most recently.
+     */
+    void shutdown()
+    {
+        scheduler.shutdownNow();
+        writeHotSet();
+        finish();
+    }
+
+    /**
+     * Whether the node is still warming up its actors, in which case it should not take traffic yet.
+     */
+    public boolean isWarming()
+    {
+        return warming;
+    }
+
+    /**
+     * How many actors of the hot set have not been warmed up yet.
+     */
+    public int getRemainingActorCount()
+    {
+        return warming ? remaining.get() : 0;
+    }
+
+    /**
+     * Completes once the actors have been warmed up, or the timeout has elapsed.
+     */
+    public CompletableFuture<Void> getWarmedFuture()
+    {
+        return warmedFuture;
+    }
+}
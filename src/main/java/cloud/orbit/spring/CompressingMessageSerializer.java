@@ -0,0 +1,364 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import cloud.orbit.actors.extensions.MessageSerializer;
+import cloud.orbit.actors.runtime.BasicRuntime;
+import cloud.orbit.actors.runtime.Message;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses the messages of another serializer once they reach a size threshold, with raw deflate at a fast level.
+ * Deflaters and inflaters hold native memory, so they are kept in a bounded pool and released by {@link #shutdown()}.
+ * Messages that look already compressed, judged by the byte entropy of a sample, are sent as they are, and so are
+ * messages that deflate would not shrink by at least an eighth: deflate gives up as soon as its output would be larger
+ * than that. Every message starts with a marker byte, so every node of the cluster must use this serializer. Compressed
+ * messages that claim to inflate beyond the maximum message size are rejected before anything is allocated.
+ */
+public class CompressingMessageSerializer implements MessageSerializer
+{
+    private static final byte UNCOMPRESSED = 0;
+    private static final byte DEFLATED = 1;
+    private static final int DEFLATED_HEADER_SIZE = 1 + Integer.BYTES;
+    private static final int ENTROPY_SAMPLE_SIZE = 1024;
+    private static final double COMPRESSED_BITS_PER_BYTE = 7.2;
+    /**
+     * The best ratio deflate can achieve, which bounds the size a compressed message can honestly claim.
+     */
+    private static final int MAX_DEFLATE_RATIO = 1032;
+    public static final int DEFAULT_MAX_MESSAGE_SIZE_IN_BYTES = 16 * 1024 * 1024;
+
+    private final MessageSerializer delegate;
+    private final int thresholdInBytes;
+    private final int level;
+    private final int maxMessageSizeInBytes;
+    private final BlockingQueue<Codec> codecs = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+    private volatile boolean shutdown;
+    private final LongAdder compressedMessages = new LongAdder();
+    private final LongAdder incompressibleMessages = new LongAdder();
+    private final LongAdder bytesBeforeCompression = new LongAdder();
+    private final LongAdder bytesAfterCompression = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+    private final LongAdder decompressionNanos = new LongAdder();
+
+    /**
+     * @param thresholdInBytes the size from which serialized messages are compressed
+     * @param level            the deflate level, from 1 (fastest) to 9 (smallest)
+     */
+    public CompressingMessageSerializer(final MessageSerializer delegate, final int thresholdInBytes, final int level)
+    {
+        this(delegate, thresholdInBytes, level, DEFAULT_MAX_MESSAGE_SIZE_IN_BYTES);
+    }
+
+    /**
+     * @param thresholdInBytes      the size from which serialized messages are compressed
+     * @param level                 the deflate level, from 1 (fastest) to 9 (smallest)
+     * @param maxMessageSizeInBytes the largest size a received message may inflate to
+     */
+    public CompressingMessageSerializer(final MessageSerializer delegate, final int thresholdInBytes, final int level,
+                                        final int maxMessageSizeInBytes)
+    {
+        this.delegate = delegate;
+        this.thresholdInBytes = thresholdInBytes;
+        this.level = level;
+        this.maxMessageSizeInBytes = maxMessageSizeInBytes;
+    }
+
+    /**
+     * Releases the native memory of the pooled deflaters and inflaters. Those in use are released when they are
+     * returned, and messages handled afterwards use a codec of their own.
+     */
+    public void shutdown()
+    {
+        shutdown = true;
+        Codec codec;
+        while ((codec = codecs.poll()) != null)
+        {
+            codec.end();
+        }
+    }
+
+    @Override
+    public byte[] serializeMessage(final BasicRuntime runtime, final Message message) throws Exception
+    {
+        byte[] serialized = delegate.serializeMessage(runtime, message);
+        if (serialized.length < thresholdInBytes)
+        {
+            return frame(serialized);
+        }
+        if (looksCompressed(serialized))
+        {
+            incompressibleMessages.increment();
+            return frame(serialized);
+        }
+        long start = System.nanoTime();
+        Codec codec = acquire();
+        byte[] deflated;
+        try
+        {
+            deflated = codec.deflate(serialized);
+        }
+        finally
+        {
+            release(codec);
+        }
+        compressionNanos.add(System.nanoTime() - start);
+        if (deflated == null)
+        {
+            incompressibleMessages.increment();
+            return frame(serialized);
+        }
+        compressedMessages.increment();
+        bytesBeforeCompression.add(serialized.length);
+        bytesAfterCompression.add(deflated.length);
+        return deflated;
+    }
+
+    @Override
+    public Message deserializeMessage(final BasicRuntime runtime, final byte[] payload) throws Exception
+    {
+        if (payload.length == 0)
+        {
+            throw new IOException("Empty message");
+        }
+        if (payload[0] == UNCOMPRESSED)
+        {
+            return delegate.deserializeMessage(runtime, Arrays.copyOfRange(payload, 1, payload.length));
+        }
+        if (payload[0] != DEFLATED)
+        {
+            throw new IOException("Unknown message encoding " + payload[0]);
+        }
+        long start = System.nanoTime();
+        Codec codec = acquire();
+        byte[] inflated;
+        try
+        {
+            inflated = codec.inflate(payload, maxMessageSizeInBytes);
+        }
+        finally
+        {
+            release(codec);
+        }
+        decompressionNanos.add(System.nanoTime() - start);
+        return delegate.deserializeMessage(runtime, inflated);
+    }
+
+    private Codec acquire()
+    {
+        Codec codec = codecs.poll();
+        return codec != null ? codec : new Codec(level);
+    }
+
+    private void release(final Codec codec)
+    {
+        if (shutdown || !codecs.offer(codec))
+        {
+            codec.end();
+        }
+        else if (shutdown && codecs.remove(codec))
+        {
+            // shut down while the codec was being returned, after the pool was emptied
+            codec.end();
+        }
+    }
+
+    private static byte[] frame(final byte[] serialized)
+    {
+        byte[] framed = new byte[serialized.length + 1];
+        framed[0] = UNCOMPRESSED;
+        System.arraycopy(serialized, 0, framed, 1, serialized.length);
+        return framed;
+    }
+
+    /**
+     * Estimates the Shannon entropy of bytes sampled evenly across the message. Compressed or encrypted data is close
+     * to 8 bits per byte, serialized objects are well below.
+     */
+    static boolean looksCompressed(final byte[] data)
+    {
+        int[] counts = new int[256];
+        int stride = Math.max(data.length / ENTROPY_SAMPLE_SIZE, 1);
+        int samples = 0;
+        for (int i = 0; i < data.length; i += stride)
+        {
+            counts[data[i] & 0xff]++;
+            samples++;
+        }
+        double entropy = 0;
+        for (int count : counts)
+        {
+            if (count > 0)
+            {
+                double probability = (double) count / samples;
+                entropy -= probability * Math.log(probability);
+            }
+        }
+        return entropy / Math.log(2) >= COMPRESSED_BITS_PER_BYTE;
+    }
+
+    public long getCompressedMessageCount()
+    {
+        return compressedMessages.sum();
+    }
+
+    /**
+     * Messages over the threshold that were sent uncompressed, because they looked compressed already or did not
+     * deflate well enough.
+     */
+    public long getIncompressibleMessageCount()
+    {
+        return incompressibleMessages.sum();
+    }
+
+    /**
+     * The compressed size of the compressed messages relative to their original size, or 1 if none was compressed.
+     */
+    public double getCompressionRatio()
+    {
+        long before = bytesBeforeCompression.sum();
+        return before > 0 ? (double) bytesAfterCompression.sum() / before : 1;
+    }
+
+    public long getCompressionTimeMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(compressionNanos.sum());
+    }
+
+    public long getDecompressionTimeMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(decompressionNanos.sum());
+    }
+
+    private static final class Codec
+    {
+        private final Deflater deflater;
+        private final Inflater inflater = new Inflater(true);
+        private byte[] buffer = new byte[0];
+
+        private Codec(final int level)
+        {
+            deflater = new Deflater(level, true);
+        }
+
+        /**
+         * @return the framed deflated data, or null if it would not be at least an eighth smaller
+         */
+        byte[] deflate(final byte[] data)
+        {
+            int limit = data.length - data.length / 8;
+            if (buffer.length < limit)
+            {
+                buffer = new byte[limit];
+            }
+            deflater.reset();
+            deflater.setInput(data);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished() && length < limit)
+            {
+                length += deflater.deflate(buffer, length, limit - length);
+            }
+            if (!deflater.finished())
+            {
+                return null;
+            }
+            byte[] framed = new byte[DEFLATED_HEADER_SIZE + length];
+            framed[0] = DEFLATED;
+            framed[1] = (byte) (data.length >>> 24);
+            framed[2] = (byte) (data.length >>> 16);
+            framed[3] = (byte) (data.length >>> 8);
+            framed[4] = (byte) data.length;
+            System.arraycopy(buffer, 0, framed, DEFLATED_HEADER_SIZE, length);
+            return framed;
+        }
+
+        void end()
+        {
+            deflater.end();
+            inflater.end();
+        }
+
+        byte[] inflate(final byte[] framed, final int maxLength) throws IOException
+        {
+            if (framed.length < DEFLATED_HEADER_SIZE)
+            {
+                throw new IOException("Truncated compressed message");
+            }
+            int length = (framed[1] & 0xff) << 24 | (framed[2] & 0xff) << 16 | (framed[3] & 0xff) << 8
+                    | framed[4] & 0xff;
+            if (length < 0)
+            {
+                throw new IOException("Invalid compressed message length " + length);
+            }
+            if (length > maxLength)
+            {
+                throw new IOException("Compressed message length " + length + " exceeds the maximum of " + maxLength);
+            }
+            if ((long) (framed.length - DEFLATED_HEADER_SIZE) * MAX_DEFLATE_RATIO < length)
+            {
+                throw new IOException("Compressed message of " + framed.length + " bytes cannot inflate to " + length);
+            }
+            byte[] inflated = new byte[length];
+            inflater.reset();
+            inflater.setInput(framed, DEFLATED_HEADER_SIZE, framed.length - DEFLATED_HEADER_SIZE);
+            try
+            {
+                int inflatedLength = 0;
+                while (inflatedLength < length && !inflater.finished())
+                {
+                    int count = inflater.inflate(inflated, inflatedLength, length - inflatedLength);
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    {
+                        break;
+                    }
+                    inflatedLength += count;
+                }
+                if (inflatedLength != length)
+                {
+                    throw new IOException("Compressed message inflated to " + inflatedLength + " bytes instead of "
+                            + length);
+                }
+            }
+            catch (DataFormatException e)
+            {
+                throw new IOException("Corrupt compressed message", e);
+            }
+            return inflated;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reads and writes the hot set: a small memory-mapped binary file holding actor identities, hottest first. The file
+ * starts with a magic number and a version, followed by the table of actor interface names and then by the entries,
+ * each one an index into that table and the actor id. It is written to a temporary file and moved into place, so that
+ * a crash while writing never leaves a torn hot set behind.
+ */
+final class HotSetFile
+{
+    private static final int MAGIC = 0x4f48534b;
+    private static final int VERSION = 1;
+    private static final int NO_ID = -1;
+
+    private HotSetFile()
+    {
+    }
+
+    static void write(final Path file, final List<Entry> entries) throws IOException
+    {
+        Map<String, Integer> interfaceIndexes = new LinkedHashMap<>();
+        List<byte[]> ids = new ArrayList<>(entries.size());
+        int size = 4 * Integer.BYTES;
+        for (Entry entry : entries)
+        {
+            if (!interfaceIndexes.containsKey(entry.getInterfaceName()))
+            {
+                interfaceIndexes.put(entry.getInterfaceName(), interfaceIndexes.size());
+                size += Integer.BYTES + entry.getInterfaceName().getBytes(StandardCharsets.UTF_8).length;
+            }
+            byte[] id = entry.getId() != null ? entry.getId().getBytes(StandardCharsets.UTF_8) : null;
+            ids.add(id);
+            size += 2 * Integer.BYTES + (id != null ? id.length : 0);
+        }
+
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(interfaceIndexes.size());
+            for (String interfaceName : interfaceIndexes.keySet())
+            {
+                putBytes(buffer, interfaceName.getBytes(StandardCharsets.UTF_8));
+            }
+            buffer.putInt(entries.size());
+            for (int i = 0; i < entries.size(); i++)
+            {
+                buffer.putInt(interfaceIndexes.get(entries.get(i).getInterfaceName()));
+                putBytes(buffer, ids.get(i));
+            }
+            buffer.force();
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @throws IOException if the file cannot be read or is not a valid hot set
+     */
+    static List<Entry> read(final Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            {
+                throw new IOException("Not a hot set file: " + file);
+            }
+            String[] interfaceNames = new String[buffer.getInt()];
+            for (int i = 0; i < interfaceNames.length; i++)
+            {
+                interfaceNames[i] = new String(getBytes(buffer), StandardCharsets.UTF_8);
+            }
+            int entryCount = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(Math.min(entryCount, buffer.remaining() / (2 * Integer.BYTES)));
+            for (int i = 0; i < entryCount; i++)
+            {
+                String interfaceName = interfaceNames[buffer.getInt()];
+                byte[] id = getBytes(buffer);
+                entries.add(new Entry(interfaceName, id != null ? new String(id, StandardCharsets.UTF_8) : null));
+            }
+            return entries;
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e)
+        {
+            throw new IOException("Corrupt hot set file: " + file, e);
+        }
+    }
+
+    private static void putBytes(final ByteBuffer buffer, final byte[] bytes)
+    {
+        if (bytes == null)
+        {
+            buffer.putInt(NO_ID);
+            return;
+        }
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static byte[] getBytes(final ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+        if (length == NO_ID)
+        {
+            return null;
+        }
+        if (length > buffer.remaining())
+        {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * An actor identity: its interface name, and its id, or null for actors without identity.
+     */
+    static final class Entry
+    {
+        private final String interfaceName;
+        private final String id;
+
+        Entry(final String interfaceName, final String id)
+        {
+            this.interfaceName = interfaceName;
+            this.id = id;
+        }
+
+        String getInterfaceName()
+        {
+            return interfaceName;
+        }
+
+        String getId()
+        {
+            return id;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Entry))
+            {
+                return false;
+            }
+            Entry entry = (Entry) o;
+            return interfaceName.equals(entry.interfaceName) && Objects.equals(id, entry.id);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(interfaceName, id);
+        }
+
+        @Override
+        public String toString()
+        {
+            return interfaceName + ":" + id;
+        }
+    }
+}
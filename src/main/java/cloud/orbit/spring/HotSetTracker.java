@@ -0,0 +1,135 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import cloud.orbit.actors.extensions.PipelineExtension;
+import cloud.orbit.actors.net.HandlerAdapter;
+import cloud.orbit.actors.net.HandlerContext;
+import cloud.orbit.actors.runtime.DefaultHandlers;
+import cloud.orbit.actors.runtime.Invocation;
+import cloud.orbit.actors.runtime.RemoteReference;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the invocations that reach this node's actors, for the {@link WarmableActor}s only, so that the most used ones
+ * can be written to the hot set file. Counting starts over every time the hot set is taken, so it reflects the recent
+ * load rather than the whole life of the node.
+ */
+class HotSetTracker extends HandlerAdapter implements PipelineExtension
+{
+    static final String NAME = "hot-set-tracker";
+
+    private final int maxTrackedActors;
+    private volatile Map<RemoteReference<?>, LongAdder> invocationCounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxTrackedActors how many distinct actors are counted at most, so that a burst of one-off actors cannot
+     *                         grow the counts without bound; actors seen once the limit is reached are ignored
+     */
+    HotSetTracker(final int maxTrackedActors)
+    {
+        this.maxTrackedActors = maxTrackedActors;
+    }
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public String getBeforeHandlerName()
+    {
+        return DefaultHandlers.MESSAGING;
+    }
+
+    @Override
+    public void onRead(final HandlerContext ctx, final Object msg) throws Exception
+    {
+        if (msg instanceof Invocation)
+        {
+            RemoteReference<?> toReference = ((Invocation) msg).getToReference();
+            if (toReference != null
+                    && WarmableActor.class.isAssignableFrom(RemoteReference.getInterfaceClass(toReference)))
+            {
+                record(toReference);
+            }
+        }
+        ctx.fireRead(msg);
+    }
+
+    void record(final RemoteReference<?> reference)
+    {
+        Map<RemoteReference<?>, LongAdder> counts = invocationCounts;
+        LongAdder count = counts.get(reference);
+        if (count == null)
+        {
+            if (counts.size() >= maxTrackedActors)
+            {
+                return;
+            }
+            count = counts.computeIfAbsent(reference, key -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Returns the most invoked actors since the last call, most invoked first, and starts counting over.
+     */
+    List<RemoteReference<?>> takeHotSet(final int size)
+    {
+        Map<RemoteReference<?>, LongAdder> counts = invocationCounts;
+        invocationCounts = new ConcurrentHashMap<>();
+        Comparator<Map.Entry<RemoteReference<?>, Long>> byCount = Comparator.comparingLong(Map.Entry::getValue);
+        PriorityQueue<Map.Entry<RemoteReference<?>, Long>> hottest = new PriorityQueue<>(byCount);
+        counts.forEach((reference, count) ->
+        {
+            hottest.add(new AbstractMap.SimpleImmutableEntry<>(reference, count.sum()));
+            if (hottest.size() > size)
+            {
+                hottest.poll();
+            }
+        });
+        List<RemoteReference<?>> hotSet = new ArrayList<>(hottest.size());
+        while (!hottest.isEmpty())
+        {
+            hotSet.add(hottest.poll().getKey());
+        }
+        Collections.reverse(hotSet);
+        return hotSet;
+    }
+}
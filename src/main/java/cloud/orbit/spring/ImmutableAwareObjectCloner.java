@@ -0,0 +1,195 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import cloud.orbit.actors.cloner.ExecutionObjectCloner;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Clones only what needs cloning: immutable objects are passed by reference, and the rest goes to the delegate. A
+ * class is immutable when it is a known immutable JDK class, an enum, annotated {@link Immutable}, or when all its
+ * fields are final and of final immutable types, which includes records of such types. The answer is worked out once
+ * per class.
+ */
+class ImmutableAwareObjectCloner implements ExecutionObjectCloner
+{
+    private static final Set<Class<?>> IMMUTABLE_JDK_CLASSES = new HashSet<>(Arrays.asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class, Locale.class, Class.class,
+            Duration.class, Instant.class, LocalDate.class, LocalTime.class, LocalDateTime.class,
+            OffsetDateTime.class, ZonedDateTime.class));
+
+    private final ExecutionObjectCloner delegate;
+    private final ConcurrentHashMap<Class<?>, Boolean> immutableClasses = new ConcurrentHashMap<>();
+
+    ImmutableAwareObjectCloner(final ExecutionObjectCloner delegate)
+    {
+        this.delegate = delegate;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T clone(final T object)
+    {
+        if (object == null || isImmutable(object.getClass()))
+        {
+            return object;
+        }
+        if (object.getClass() == Object[].class)
+        {
+            // the arguments of an invocation: only the mutable ones are cloned, together, so that arguments sharing a
+            // mutable object still share their copy of it
+            return (T) cloneArguments((Object[]) object);
+        }
+        return delegate.clone(object);
+    }
+
+    private Object[] cloneArguments(final Object[] arguments)
+    {
+        int mutableCount = 0;
+        for (Object argument : arguments)
+        {
+            if (argument != null && !isImmutable(argument.getClass()))
+            {
+                mutableCount++;
+            }
+        }
+        if (mutableCount == arguments.length)
+        {
+            return delegate.clone(arguments);
+        }
+        Object[] copy = arguments.clone();
+        if (mutableCount == 0)
+        {
+            return copy;
+        }
+        Object[] mutableArguments = new Object[mutableCount];
+        int next = 0;
+        for (Object argument : arguments)
+        {
+            if (argument != null && !isImmutable(argument.getClass()))
+            {
+                mutableArguments[next++] = argument;
+            }
+        }
+        Object[] clonedArguments = delegate.clone(mutableArguments);
+        next = 0;
+        for (int i = 0; i < copy.length; i++)
+        {
+            if (copy[i] != null && !isImmutable(copy[i].getClass()))
+            {
+                copy[i] = clonedArguments[next++];
+            }
+        }
+        return copy;
+    }
+
+    boolean isImmutable(final Class<?> type)
+    {
+        Boolean immutable = immutableClasses.get(type);
+        if (immutable == null)
+        {
+            immutable = isImmutable(type, new HashSet<>());
+            immutableClasses.putIfAbsent(type, immutable);
+        }
+        return immutable;
+    }
+
+    /**
+     * @param visiting the classes being worked out further up, which are assumed to be immutable so that recursive
+     *                 types terminate; their fields decide for them
+     */
+    private boolean isImmutable(final Class<?> type, final Set<Class<?>> visiting)
+    {
+        Boolean known = immutableClasses.get(type);
+        if (known != null)
+        {
+            return known;
+        }
+        if (type.isPrimitive() || type.isEnum() || IMMUTABLE_JDK_CLASSES.contains(type) || isAnnotatedImmutable(type))
+        {
+            return true;
+        }
+        if (type.isArray() || type.isInterface() || type.getName().startsWith("java."))
+        {
+            return false;
+        }
+        if (!visiting.add(type))
+        {
+            return true;
+        }
+        for (Class<?> declaringClass = type; declaringClass != Object.class;
+             declaringClass = declaringClass.getSuperclass())
+        {
+            for (Field field : declaringClass.getDeclaredFields())
+            {
+                if (!Modifier.isStatic(field.getModifiers()) && !isImmutableField(field, visiting))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean isImmutableField(final Field field, final Set<Class<?>> visiting)
+    {
+        Class<?> fieldType = field.getType();
+        // a field of a non-final type may hold a mutable subclass
+        return Modifier.isFinal(field.getModifiers())
+                && (fieldType.isPrimitive() || fieldType.isEnum() || Modifier.isFinal(fieldType.getModifiers()))
+                && isImmutable(fieldType, visiting);
+    }
+
+    /**
+     * Only this project's annotation is trusted. Annotations named {@code Immutable} from other libraries, such as
+     * {@code javax.annotation.concurrent.Immutable}, are documentation that nothing checks, so those classes still go
+     * through the structural check.
+     */
+    private static boolean isAnnotatedImmutable(final Class<?> type)
+    {
+        return type.isAnnotationPresent(Immutable.class);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+
+import cloud.orbit.actors.Actor;
+import cloud.orbit.actors.extensions.ActorClassFinder;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Finds actor implementations through the build-time {@link ActorClassIndex} instead of scanning the classpath. An
+ * index can be incomplete, for instance when a jar was compiled without the annotation processor, so interfaces it does
+ * not resolve are looked up by scanning the base packages instead, with a warning. Neither the index nor the scan then
+ * silently loses an actor.
+ */
+class IndexedActorClassFinder implements ActorClassFinder
+{
+    private static final Logger log = LoggerFactory.getLogger(IndexedActorClassFinder.class);
+
+    private final ActorClassIndex index;
+    private final ClassLoader classLoader;
+    private final Collection<String> basePackages;
+    private final ConcurrentMap<Class<?>, Optional<Class<?>>> scannedImplementations = new ConcurrentHashMap<>();
+
+    IndexedActorClassFinder(final ActorClassIndex index, final ClassLoader classLoader)
+    {
+        this(index, classLoader, Collections.emptyList());
+    }
+
+    /**
+     * @param basePackages the packages scanned for the implementations the index does not resolve, or none to scan the
+     *                     top-level package of each such actor interface
+     */
+    IndexedActorClassFinder(final ActorClassIndex index,
+                            final ClassLoader classLoader,
+                            final Collection<String> basePackages)
+    {
+        this.index = index;
+        this.classLoader = classLoader;
+        this.basePackages = basePackages;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Actor> Class<? extends T> findActorImplementation(final Class<T> actorInterface)
+    {
+        String implementation = index.getImplementation(actorInterface.getName());
+        if (implementation == null)
+        {
+            log.warn("Actor interface {} is not in the actor class index, scanning for its implementation",
+                    actorInterface.getName());
+            return scan(actorInterface);
+        }
+        try
+        {
+            Class<?> implementationClass = Class.forName(implementation, false, classLoader);
+            if (actorInterface.isAssignableFrom(implementationClass))
+            {
+                return (Class<? extends T>) implementationClass;
+            }
+            log.warn("Indexed actor implementation {} does not implement {}, scanning for its implementation",
+                    implementation, actorInterface.getName());
+        }
+        catch (ClassNotFoundException e)
+        {
+            log.warn("Indexed actor implementation {} is not on the classpath, scanning for its implementation",
+                    implementation);
+        }
+        return scan(actorInterface);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Actor> Class<? extends T> scan(final Class<T> actorInterface)
+    {
+        return (Class<? extends T>) scannedImplementations.computeIfAbsent(actorInterface, this::scanImplementation)
+                .orElse(null);
+    }
+
+    private Optional<Class<?>> scanImplementation(final Class<?> actorInterface)
+    {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.setResourceLoader(new DefaultResourceLoader(classLoader));
+        scanner.addIncludeFilter(new AssignableTypeFilter(actorInterface));
+        String interfacePackage = actorInterface.getPackage() != null ? actorInterface.getPackage().getName() : "";
+        Collection<String> packages = !basePackages.isEmpty()
+                ? basePackages
+                : Collections.singletonList(interfacePackage.split("\\.")[0]);
+        for (String basePackage : packages)
+        {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage))
+            {
+                try
+                {
+                    return Optional.of(Class.forName(candidate.getBeanClassName(), false, classLoader));
+                }
+                catch (ClassNotFoundException e)
+                {
+                    log.debug("Scanned actor implementation {} could not be loaded", candidate.getBeanClassName(), e);
+                }
+            }
+        }
+        log.warn("No implementation found for actor interface {}", actorInterface.getName());
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cloud.orbit.actors.annotation.StatelessWorker;
+import cloud.orbit.actors.extensions.PipelineExtension;
+import cloud.orbit.actors.net.HandlerAdapter;
+import cloud.orbit.actors.net.HandlerContext;
+import cloud.orbit.actors.runtime.DefaultHandlers;
+import cloud.orbit.actors.runtime.Invocation;
+import cloud.orbit.actors.runtime.RemoteReference;
+import cloud.orbit.concurrent.Task;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sits in front of Orbit's messaging handler and applies the {@link InvocationPolicy} of each outgoing invocation:
+ * fails it once its own timeout has passed, and sends hedged invocations a second time once they have waited longer
+ * than the 95th percentile of their method's recent response times. Only {@link StatelessWorker} interfaces are
+ * hedged: the second invocation can then reach another activation, while any other actor would receive it twice in a
+ * row. Timeouts and hedges are scheduled on a {@link TimingWheel} and cancelled as soon as the response comes. The
+ * wheel's thread only hands them to the stage's execution pool, which fails the responses and sends the hedges; hedges
+ * are {@link LowPriorityTask}s that an overloaded pool may drop. Invocations without a policy are passed through.
+ * <p>
+ * Orbit's messaging timeout still applies to every invocation, so a policy can only shorten it: longer timeouts are
+ * rejected when the extension is created, and by {@link #validate(Collection)} for annotated interfaces.
+ */
+class InvocationPolicyPipelineExtension extends HandlerAdapter implements PipelineExtension
+{
+    static final String NAME = "invocation-policies";
+
+    private static final Logger log = LoggerFactory.getLogger(InvocationPolicyPipelineExtension.class);
+
+    // Orbit's own default when orbit.actors.messaging-timeout-in-milliseconds is not set
+    static final long DEFAULT_MESSAGING_TIMEOUT_MILLIS = 30000;
+
+    private final Map<String, OrbitActorsProperties.InvocationPolicyProperties> configuredPolicies;
+    private final int hedgeMinSamples;
+    private final long messagingTimeoutMillis;
+    private final TimingWheel timingWheel;
+    private final Executor executor;
+    private final Map<Class<?>, Map<Method, Policy>> policies = new ConcurrentHashMap<>();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+
+    /**
+     * @param configuredPolicies the policies keyed by interface name, or by interface and method name
+     * @param hedgeMinSamples    how many responses of a hedged method are timed before it is hedged at all
+     * @param messagingTimeoutMillis Orbit's messaging timeout, which no policy may exceed
+     * @param executor           the stage's execution pool, which fails timed out invocations and sends hedges
+     * @throws IllegalArgumentException if a configured policy's timeout exceeds the messaging timeout
+     */
+    InvocationPolicyPipelineExtension(
+            final Map<String, OrbitActorsProperties.InvocationPolicyProperties> configuredPolicies,
+            final int hedgeMinSamples,
+            final long messagingTimeoutMillis,
+            final TimingWheel timingWheel,
+            final Executor executor)
+    {
+        this.configuredPolicies = configuredPolicies != null ? configuredPolicies : Collections.emptyMap();
+        this.hedgeMinSamples = hedgeMinSamples;
+        this.messagingTimeoutMillis = messagingTimeoutMillis;
+        this.timingWheel = timingWheel;
+        this.executor = executor;
+        this.configuredPolicies.forEach((key, policy) ->
+                checkTimeout(key, policy.getTimeoutInMilliseconds() != null ? policy.getTimeoutInMilliseconds() : 0));
+    }
+
+    /**
+     * Checks the {@link InvocationPolicy} annotations of the given actor interfaces and of their methods.
+     *
+     * @throws IllegalArgumentException if an annotated timeout exceeds the messaging timeout
+     */
+    void validate(final Collection<Class<?>> actorInterfaces)
+    {
+        for (Class<?> actorInterface : actorInterfaces)
+        {
+            InvocationPolicy annotation = actorInterface.getAnnotation(InvocationPolicy.class);
+            if (annotation != null)
+            {
+                checkTimeout(actorInterface.getName(), annotation.timeoutInMilliseconds());
+            }
+            for (Method method : actorInterface.getMethods())
+            {
+                annotation = method.getAnnotation(InvocationPolicy.class);
+                if (annotation != null)
+                {
+                    checkTimeout(actorInterface.getName() + "." + method.getName(), annotation.timeoutInMilliseconds());
+                }
+            }
+        }
+    }
+
+    private void checkTimeout(final String target, final long timeoutMillis)
+    {
+        if (timeoutMillis > messagingTimeoutMillis)
+        {
+            throw new IllegalArgumentException("The invocation timeout of " + target + ", " + timeoutMillis
+                    + " ms, exceeds the messaging timeout of " + messagingTimeoutMillis + " ms, which fires first");
+        }
+    }
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public String getBeforeHandlerName()
+    {
+        return DefaultHandlers.MESSAGING;
+    }
+
+    @Override
+    public Task write(final HandlerContext ctx, final Object msg) throws Exception
+    {
+        if (!(msg instanceof Invocation))
+        {
+            return ctx.write(msg);
+        }
+        Invocation invocation = (Invocation) msg;
+        if (invocation.isOneWay() || invocation.getMethod() == null || invocation.getToReference() == null)
+        {
+            return ctx.write(msg);
+        }
+        Class<?> interfaceClass = RemoteReference.getInterfaceClass(invocation.getToReference());
+        Policy policy = interfaceClass != null ? policyOf(interfaceClass, invocation.getMethod()) : Policy.NONE;
+        if (policy == Policy.NONE)
+        {
+            return ctx.write(msg);
+        }
+        return send(ctx, invocation, policy);
+    }
+
+    Task<?> send(final HandlerContext ctx, final Invocation invocation, final Policy policy) throws Exception
+    {
+        long start = System.nanoTime();
+        Task<?> sent = ctx.write(invocation);
+        if (sent == null || sent.isDone())
+        {
+            return sent;
+        }
+        Task<Object> response = new Task<>();
+        completeFrom(response, sent);
+        TimingWheel.Timeout timeout = null;
+        if (policy.timeoutMillis > 0)
+        {
+            Runnable expire = () ->
+            {
+                if (response.completeExceptionally(new TimeoutException("No response to " + invocation.getMethod()
+                        + " within " + policy.timeoutMillis + " ms")))
+                {
+                    timeouts.increment();
+                }
+            };
+            timeout = timingWheel.schedule(() -> expire(expire), policy.timeoutMillis);
+        }
+        long hedgeDelayMillis = policy.latencies != null ? policy.latencies.getHedgeDelayMillis(hedgeMinSamples) : -1;
+        TimingWheel.Timeout hedge = null;
+        if (hedgeDelayMillis >= 0 && (policy.timeoutMillis <= 0 || hedgeDelayMillis < policy.timeoutMillis))
+        {
+            hedge = timingWheel.schedule(() -> hedge(ctx, invocation, response), hedgeDelayMillis);
+        }
+        TimingWheel.Timeout scheduledTimeout = timeout;
+        TimingWheel.Timeout scheduledHedge = hedge;
+        response.whenComplete((result, throwable) ->
+        {
+            if (scheduledTimeout != null)
+            {
+                scheduledTimeout.cancel();
+            }
+            if (scheduledHedge != null)
+            {
+                scheduledHedge.cancel();
+            }
+            if (throwable == null && policy.latencies != null)
+            {
+                policy.latencies.record(System.nanoTime() - start);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Fails an invocation on the execution pool, or on the wheel's thread if the pool refuses it: a timeout is never
+     * dropped.
+     */
+    private void expire(final Runnable expire)
+    {
+        try
+        {
+            executor.execute(expire);
+        }
+        catch (RejectedExecutionException e)
+        {
+            expire.run();
+        }
+    }
+
+    private void hedge(final HandlerContext ctx, final Invocation invocation, final Task<Object> response)
+    {
+        try
+        {
+            executor.execute((LowPriorityTask) () -> sendHedge(ctx, invocation, response));
+        }
+        catch (RejectedExecutionException e)
+        {
+            log.debug("Dropped a hedged invocation of {}", invocation.getMethod(), e);
+        }
+    }
+
+    private void sendHedge(final HandlerContext ctx, final Invocation invocation, final Task<Object> response)
+    {
+        if (response.isDone())
+        {
+            return;
+        }
+        try
+        {
+            Task<?> hedged = ctx.write(invocation);
+            hedges.increment();
+            if (hedged != null)
+            {
+                completeFrom(response, hedged);
+            }
+        }
+        catch (Exception e)
+        {
+            log.debug("Failed to send a hedged invocation of {}", invocation.getMethod(), e);
+        }
+    }
+
+    private static void completeFrom(final Task<Object> response, final Task<?> sent)
+    {
+        sent.whenComplete((result, throwable) ->
+        {
+            if (throwable != null)
+            {
+                response.completeExceptionally(throwable);
+            }
+            else
+            {
+                response.complete(result);
+            }
+        });
+    }
+
+    Policy policyOf(final Class<?> interfaceClass, final Method method)
+    {
+        return policies.computeIfAbsent(interfaceClass, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, key -> resolve(interfaceClass, method));
+    }
+
+    /**
+     * Applies, from the lowest precedence to the highest: the interface's annotation, the interface's configured
+     * policy, the method's annotation and the method's configured policy. Hedging is ignored, with a warning, for
+     * interfaces that are not stateless workers.
+     */
+    private Policy resolve(final Class<?> interfaceClass, final Method method)
+    {
+        long timeoutMillis = 0;
+        boolean hedged = false;
+        InvocationPolicy[] annotations = {
+                interfaceClass.getAnnotation(InvocationPolicy.class), method.getAnnotation(InvocationPolicy.class) };
+        OrbitActorsProperties.InvocationPolicyProperties[] configured = {
+                configuredPolicies.get(interfaceClass.getName()),
+                configuredPolicies.get(interfaceClass.getName() + "." + method.getName()) };
+        for (int i = 0; i < 2; i++)
+        {
+            if (annotations[i] != null)
+            {
+                timeoutMillis = annotations[i].timeoutInMilliseconds() > 0
+                        ? annotations[i].timeoutInMilliseconds() : timeoutMillis;
+                hedged = annotations[i].hedged();
+            }
+            if (configured[i] != null)
+            {
+                timeoutMillis = configured[i].getTimeoutInMilliseconds() != null
+                        ? configured[i].getTimeoutInMilliseconds() : timeoutMillis;
+                hedged = configured[i].getHedged() != null ? configured[i].getHedged() : hedged;
+            }
+        }
+        if (hedged && !interfaceClass.isAnnotationPresent(StatelessWorker.class))
+        {
+            log.warn("Not hedging {}.{}: only @StatelessWorker interfaces can be hedged", interfaceClass.getName(),
+                    method.getName());
+            hedged = false;
+        }
+        if (timeoutMillis <= 0 && !hedged)
+        {
+            return Policy.NONE;
+        }
+        return new Policy(timeoutMillis, hedged ? new LatencyWindow() : null);
+    }
+
+    long getTimeoutCount()
+    {
+        return timeouts.sum();
+    }
+
+    long getHedgeCount()
+    {
+        return hedges.sum();
+    }
+
+    void shutdown()
+    {
+        timingWheel.stop();
+    }
+
+    static final class Policy
+    {
+        static final Policy NONE = new Policy(0, null);
+
+        final long timeoutMillis;
+        final LatencyWindow latencies;
+
+        private Policy(final long timeoutMillis, final LatencyWindow latencies)
+        {
+            this.timeoutMillis = timeoutMillis;
+            this.latencies = latencies;
+        }
+    }
+
+    /**
+     * The response times of a hedged method's last 256 successful invocations, with their 95th percentile computed
+     * again every 32 responses.
+     */
+    static final class LatencyWindow
+    {
+        private static final int SIZE = 256;
+        private static final int RECOMPUTE_INTERVAL = 32;
+
+        private final long[] latencyMicros = new long[SIZE];
+        private volatile long count;
+        private volatile long percentileMicros = -1;
+
+        synchronized void record(final long latencyNanos)
+        {
+            latencyMicros[(int) (count++ % SIZE)] = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+            if (count % RECOMPUTE_INTERVAL == 0)
+            {
+                long[] sorted = Arrays.copyOf(latencyMicros, (int) Math.min(count, SIZE));
+                Arrays.sort(sorted);
+                percentileMicros = sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+            }
+        }
+
+        /**
+         * @return the delay after which to hedge, or -1 until enough responses have been timed
+         */
+        long getHedgeDelayMillis(final int minSamples)
+        {
+            long micros = percentileMicros;
+            if (micros < 0 || count < minSamples)
+            {
+                return -1;
+            }
+            return Math.max(TimeUnit.MICROSECONDS.toMillis(micros), 1);
+        }
+    }
+}
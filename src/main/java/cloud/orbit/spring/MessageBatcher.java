@@ -0,0 +1,355 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import cloud.orbit.actors.cluster.NodeAddress;
+import cloud.orbit.actors.extensions.PipelineExtension;
+import cloud.orbit.actors.net.HandlerAdapter;
+import cloud.orbit.actors.net.HandlerContext;
+import cloud.orbit.actors.runtime.DefaultHandlers;
+import cloud.orbit.concurrent.Task;
+import cloud.orbit.tuples.Pair;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sits in front of Orbit's network handler and coalesces the serialized messages sent to the same node into one frame.
+ * A node's batch is flushed when its window has passed since its first message, or as soon as it reaches the message
+ * or byte limit. Messages marked by {@link UnbatchedMessageFilter} flush the pending batch of their node and go out
+ * right after it, so that the order of the messages to a node never changes: a batch stays registered for its node
+ * until its frame is written, so later messages wait for it. The frame is handed to the next handler while the batch's
+ * lock is held, so a thread sending to that node waits for the write, however long the network handler takes; this is
+ * the intended cost of the ordering, and threads sending to other nodes are not held up. Every frame, batched or not,
+ * carries a small header, so all the nodes of a cluster must agree on whether batching is enabled.
+ */
+class MessageBatcher extends HandlerAdapter implements PipelineExtension
+{
+    static final String NAME = "message-batching";
+
+    private static final byte FORMAT = 1;
+    private static final int HEADER_SIZE = 1 + Integer.BYTES;
+    private static final ThreadLocal<Boolean> unbatched = new ThreadLocal<>();
+
+    private final long windowMicros;
+    private final int maxBytes;
+    private final int maxMessages;
+    private final ConcurrentMap<NodeAddress, Batch> batches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+
+    /**
+     * @param windowMicros how long the first message of a batch waits for others to join it
+     * @param maxBytes     the size of the serialized messages from which a batch is flushed without waiting
+     * @param maxMessages  the number of messages from which a batch is flushed without waiting
+     */
+    MessageBatcher(final long windowMicros, final int maxBytes, final int maxMessages)
+    {
+        this.windowMicros = windowMicros;
+        this.maxBytes = maxBytes;
+        this.maxMessages = maxMessages;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "orbit-message-batching");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public String getBeforeHandlerName()
+    {
+        return DefaultHandlers.NETWORK;
+    }
+
+    /**
+     * Sends the messages written by {@code write} on this thread without batching them.
+     */
+    static Task<?> writeUnbatched(final HandlerContext ctx, final Object msg) throws Exception
+    {
+        unbatched.set(Boolean.TRUE);
+        try
+        {
+            return ctx.write(msg);
+        }
+        finally
+        {
+            unbatched.remove();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Task write(final HandlerContext ctx, final Object msg) throws Exception
+    {
+        if (!(msg instanceof Pair) || !(((Pair<?, ?>) msg).getRight() instanceof byte[]))
+        {
+            return ctx.write(msg);
+        }
+        Pair<NodeAddress, byte[]> addressed = (Pair<NodeAddress, byte[]>) msg;
+        NodeAddress node = addressed.getLeft();
+        byte[] message = addressed.getRight();
+        messages.increment();
+        boolean flushNow = Boolean.TRUE.equals(unbatched.get()) || windowMicros <= 0 || scheduler.isShutdown();
+        while (true)
+        {
+            Batch batch = batches.computeIfAbsent(node, key -> new Batch(ctx, key));
+            synchronized (batch)
+            {
+                if (batch.closed)
+                {
+                    continue;
+                }
+                if (flushNow)
+                {
+                    batch.closed = true;
+                    try
+                    {
+                        send(batch);
+                        return writeFrame(ctx, node, frame(message));
+                    }
+                    finally
+                    {
+                        batches.remove(node, batch);
+                    }
+                }
+                Task<Void> sent = batch.add(message);
+                if (batch.messages.size() >= maxMessages || batch.bytes >= maxBytes)
+                {
+                    flush(batch);
+                }
+                else if (batch.messages.size() == 1)
+                {
+                    scheduleFlush(batch);
+                }
+                return sent;
+            }
+        }
+    }
+
+    private void scheduleFlush(final Batch batch)
+    {
+        try
+        {
+            scheduler.schedule(() ->
+            {
+                synchronized (batch)
+                {
+                    flush(batch);
+                }
+            }, windowMicros, TimeUnit.MICROSECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            flush(batch);
+        }
+    }
+
+    /**
+     * Sends the batch's messages, if any, and then retires the batch so that the next message to its node starts a new
+     * one. Must be called holding the batch's lock.
+     */
+    private void flush(final Batch batch)
+    {
+        if (batch.closed)
+        {
+            return;
+        }
+        batch.closed = true;
+        try
+        {
+            send(batch);
+        }
+        finally
+        {
+            batches.remove(batch.node, batch);
+        }
+    }
+
+    /**
+     * Writes the messages of a closed batch. The batch must still be registered for its node, so that writers to the
+     * node wait on its lock instead of starting a batch that could be written first.
+     */
+    private void send(final Batch batch)
+    {
+        if (batch.messages.isEmpty())
+        {
+            return;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + batch.messages.size() * Integer.BYTES + batch.bytes);
+        frame.put(FORMAT).putInt(batch.messages.size());
+        for (byte[] message : batch.messages)
+        {
+            frame.putInt(message.length).put(message);
+        }
+        Task<?> written;
+        try
+        {
+            written = writeFrame(batch.ctx, batch.node, frame.array());
+        }
+        catch (Exception e)
+        {
+            batch.sent.completeExceptionally(e);
+            return;
+        }
+        if (written == null)
+        {
+            batch.sent.complete(null);
+            return;
+        }
+        written.whenComplete((result, throwable) ->
+        {
+            if (throwable != null)
+            {
+                batch.sent.completeExceptionally(throwable);
+            }
+            else
+            {
+                batch.sent.complete(null);
+            }
+        });
+    }
+
+    private Task<?> writeFrame(final HandlerContext ctx, final NodeAddress node, final byte[] frame) throws Exception
+    {
+        frames.increment();
+        return ctx.write(Pair.of(node, frame));
+    }
+
+    private static byte[] frame(final byte[] message)
+    {
+        return ByteBuffer.allocate(HEADER_SIZE + Integer.BYTES + message.length)
+                .put(FORMAT).putInt(1).putInt(message.length).put(message).array();
+    }
+
+    @Override
+    public void onRead(final HandlerContext ctx, final Object msg) throws Exception
+    {
+        if (!(msg instanceof Pair) || !(((Pair<?, ?>) msg).getRight() instanceof byte[]))
+        {
+            ctx.fireRead(msg);
+            return;
+        }
+        Object from = ((Pair<?, ?>) msg).getLeft();
+        for (byte[] message : split((byte[]) ((Pair<?, ?>) msg).getRight()))
+        {
+            ctx.fireRead(Pair.of(from, message));
+        }
+    }
+
+    static List<byte[]> split(final byte[] frame) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        if (buffer.remaining() < HEADER_SIZE || buffer.get() != FORMAT)
+        {
+            throw new IOException("Not a message batch, are all the nodes batching messages?");
+        }
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / Integer.BYTES)
+        {
+            throw new IOException("Invalid message count " + count);
+        }
+        List<byte[]> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            int length = buffer.remaining() >= Integer.BYTES ? buffer.getInt() : -1;
+            if (length < 0 || length > buffer.remaining())
+            {
+                throw new IOException("Truncated message batch");
+            }
+            byte[] message = new byte[length];
+            buffer.get(message);
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * Sends the pending batches and stops scheduling flushes; later messages are sent as they come.
+     */
+    void shutdown()
+    {
+        scheduler.shutdownNow();
+        for (Batch batch : batches.values())
+        {
+            synchronized (batch)
+            {
+                flush(batch);
+            }
+        }
+    }
+
+    long getFrameCount()
+    {
+        return frames.sum();
+    }
+
+    long getMessageCount()
+    {
+        return messages.sum();
+    }
+
+    private static final class Batch
+    {
+        private final HandlerContext ctx;
+        private final NodeAddress node;
+        private final List<byte[]> messages = new ArrayList<>();
+        private final Task<Void> sent = new Task<>();
+        private int bytes;
+        private boolean closed;
+
+        private Batch(final HandlerContext ctx, final NodeAddress node)
+        {
+            this.ctx = ctx;
+            this.node = node;
+        }
+
+        private Task<Void> add(final byte[] message)
+        {
+            messages.add(message);
+            bytes += message.length;
+            return sent;
+        }
+    }
+}
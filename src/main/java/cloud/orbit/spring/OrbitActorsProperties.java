@@ -32,7 +32,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import cloud.orbit.actors.Stage;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @ConfigurationProperties(prefix = "orbit.actors")
 public class OrbitActorsProperties
@@ -53,6 +55,18 @@ public class OrbitActorsProperties
     private Boolean broadcastActorDeactivations;
     private Boolean enableShutdownHook;
     private Boolean autostartStage = Boolean.TRUE;
+    private Boolean asyncStartup = Boolean.FALSE;
+    private Boolean useActorClassIndex = Boolean.FALSE;
+    private Boolean cacheActorConstructionPlans = Boolean.FALSE;
+    private Boolean precompileActorConstructionPlans = Boolean.FALSE;
+    private Serializer serializer = Serializer.DEFAULT;
+    private Boolean immutableAwareCloning = Boolean.TRUE;
+    private ExecutionProperties execution = new ExecutionProperties();
+    private ShutdownProperties shutdown = new ShutdownProperties();
+    private PrewarmProperties prewarm = new PrewarmProperties();
+    private CompressionProperties compression = new CompressionProperties();
+    private BatchingProperties batching = new BatchingProperties();
+    private InvocationProperties invocation = new InvocationProperties();
 
 
     public List<String> getBasePackages()
@@ -213,5 +227,592 @@ public class OrbitActorsProperties
         this.autostartStage = autostartStage;
     }
 
+    public Boolean getAsyncStartup()
+    {
+        return asyncStartup;
+    }
+
+    public void setAsyncStartup(Boolean asyncStartup)
+    {
+        this.asyncStartup = asyncStartup;
+    }
+
+    public Boolean getUseActorClassIndex()
+    {
+        return useActorClassIndex;
+    }
+
+    public void setUseActorClassIndex(Boolean useActorClassIndex)
+    {
+        this.useActorClassIndex = useActorClassIndex;
+    }
+
+    public Boolean getCacheActorConstructionPlans()
+    {
+        return cacheActorConstructionPlans;
+    }
+
+    public void setCacheActorConstructionPlans(Boolean cacheActorConstructionPlans)
+    {
+        this.cacheActorConstructionPlans = cacheActorConstructionPlans;
+    }
+
+    public Boolean getPrecompileActorConstructionPlans()
+    {
+        return precompileActorConstructionPlans;
+    }
+
+    public void setPrecompileActorConstructionPlans(Boolean precompileActorConstructionPlans)
+    {
+        this.precompileActorConstructionPlans = precompileActorConstructionPlans;
+    }
+
+    public Serializer getSerializer()
+    {
+        return serializer;
+    }
+
+    public void setSerializer(Serializer serializer)
+    {
+        this.serializer = serializer;
+    }
+
+    public Boolean getImmutableAwareCloning()
+    {
+        return immutableAwareCloning;
+    }
+
+    public void setImmutableAwareCloning(Boolean immutableAwareCloning)
+    {
+        this.immutableAwareCloning = immutableAwareCloning;
+    }
+
+    public ExecutionProperties getExecution()
+    {
+        return execution;
+    }
+
+    public void setExecution(ExecutionProperties execution)
+    {
+        this.execution = execution;
+    }
+
+    public ShutdownProperties getShutdown()
+    {
+        return shutdown;
+    }
+
+    public void setShutdown(ShutdownProperties shutdown)
+    {
+        this.shutdown = shutdown;
+    }
+
+    public PrewarmProperties getPrewarm()
+    {
+        return prewarm;
+    }
+
+    public void setPrewarm(PrewarmProperties prewarm)
+    {
+        this.prewarm = prewarm;
+    }
+
+    public CompressionProperties getCompression()
+    {
+        return compression;
+    }
+
+    public void setCompression(CompressionProperties compression)
+    {
+        this.compression = compression;
+    }
+
+    public BatchingProperties getBatching()
+    {
+        return batching;
+    }
+
+    public void setBatching(BatchingProperties batching)
+    {
+        this.batching = batching;
+    }
+
+    public InvocationProperties getInvocation()
+    {
+        return invocation;
+    }
 
+    public void setInvocation(InvocationProperties invocation)
+    {
+        this.invocation = invocation;
+    }
+
+    public enum Serializer
+    {
+        /**
+         * Orbit's own serializer, unless a {@code MessageSerializer} bean is defined.
+         */
+        DEFAULT,
+        /**
+         * Orbit's Kryo serializer, with the JDK collections and every class of the base packages registered up front.
+         * All the nodes of a cluster must use the same serializer.
+         */
+        KRYO
+    }
+
+    /**
+     * Selects and tunes the pool that runs actor messages. The pool size falls back to
+     * {@link #getExecutionPoolSize()}, and then to a default that suits the strategy.
+     */
+    public static class ExecutionProperties
+    {
+        private Strategy strategy = Strategy.SCALING;
+        private Integer poolSize;
+        private Integer queueCapacity = 10000;
+        private Boolean asyncMode = Boolean.TRUE;
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.FAIL_FAST;
+        private Integer queueHighWatermark;
+        private Integer queueLowWatermark;
+
+        public Strategy getStrategy()
+        {
+            return strategy;
+        }
+
+        public void setStrategy(Strategy strategy)
+        {
+            this.strategy = strategy;
+        }
+
+        public Integer getPoolSize()
+        {
+            return poolSize;
+        }
+
+        public void setPoolSize(Integer poolSize)
+        {
+            this.poolSize = poolSize;
+        }
+
+        public Integer getQueueCapacity()
+        {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(Integer queueCapacity)
+        {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Boolean getAsyncMode()
+        {
+            return asyncMode;
+        }
+
+        public void setAsyncMode(Boolean asyncMode)
+        {
+            this.asyncMode = asyncMode;
+        }
+
+        public RejectionPolicy getRejectionPolicy()
+        {
+            return rejectionPolicy;
+        }
+
+        public void setRejectionPolicy(RejectionPolicy rejectionPolicy)
+        {
+            this.rejectionPolicy = rejectionPolicy;
+        }
+
+        public Integer getQueueHighWatermark()
+        {
+            return queueHighWatermark;
+        }
+
+        public void setQueueHighWatermark(Integer queueHighWatermark)
+        {
+            this.queueHighWatermark = queueHighWatermark;
+        }
+
+        public Integer getQueueLowWatermark()
+        {
+            return queueLowWatermark;
+        }
+
+        public void setQueueLowWatermark(Integer queueLowWatermark)
+        {
+            this.queueLowWatermark = queueLowWatermark;
+        }
+
+        public enum Strategy
+        {
+            /**
+             * Orbit's default pool, which grows up to the pool size (128 by default).
+             */
+            SCALING,
+            /**
+             * A work-stealing fork-join pool with one thread per core by default. Suits CPU-bound actors.
+             */
+            WORK_STEALING,
+            /**
+             * A fixed number of threads (one per core by default) in front of a bounded queue. Once the queue is full,
+             * the {@link RejectionPolicy} applies.
+             */
+            FIXED,
+            /**
+             * A new virtual thread per message. Falls back to {@link #SCALING} on JVMs without virtual threads.
+             */
+            VIRTUAL
+        }
+
+        public enum RejectionPolicy
+        {
+            /**
+             * Runs the task on the submitting thread, which slows down whoever produces the load.
+             */
+            CALLER_RUNS,
+            /**
+             * Drops the oldest queued {@link LowPriorityTask}, such as a hedged invocation, to make room, and fails
+             * fast if there is none. Low priority tasks only reach the pool when hedged invocations are enabled, or
+             * when an {@code AsyncLifetimeExtension} is given the stage's pool, so by default this behaves exactly
+             * like {@link #FAIL_FAST}.
+             */
+            DROP_OLDEST_LOW_PRIORITY,
+            /**
+             * Throws a {@link StageOverloadedException}.
+             */
+            FAIL_FAST
+        }
+    }
+
+    /**
+     * Controls how the stage is stopped when the application context closes. Deactivations also remain bounded by
+     * {@link #getConcurrentDeactivations()} and {@link #getDeactivationTimeoutInMilliseconds()}.
+     */
+    public static class ShutdownProperties
+    {
+        private Boolean graceful = Boolean.FALSE;
+        private Integer deactivationsPerSecond;
+        private Long timeoutInMilliseconds = 120000L;
+        private Long progressIntervalInMilliseconds = 5000L;
+        private Integer phase = 0;
+
+        public Boolean getGraceful()
+        {
+            return graceful;
+        }
+
+        public void setGraceful(Boolean graceful)
+        {
+            this.graceful = graceful;
+        }
+
+        public Integer getDeactivationsPerSecond()
+        {
+            return deactivationsPerSecond;
+        }
+
+        public void setDeactivationsPerSecond(Integer deactivationsPerSecond)
+        {
+            this.deactivationsPerSecond = deactivationsPerSecond;
+        }
+
+        public Long getTimeoutInMilliseconds()
+        {
+            return timeoutInMilliseconds;
+        }
+
+        public void setTimeoutInMilliseconds(Long timeoutInMilliseconds)
+        {
+            this.timeoutInMilliseconds = timeoutInMilliseconds;
+        }
+
+        public Long getProgressIntervalInMilliseconds()
+        {
+            return progressIntervalInMilliseconds;
+        }
+
+        public void setProgressIntervalInMilliseconds(Long progressIntervalInMilliseconds)
+        {
+            this.progressIntervalInMilliseconds = progressIntervalInMilliseconds;
+        }
+
+        public Integer getPhase()
+        {
+            return phase;
+        }
+
+        public void setPhase(Integer phase)
+        {
+            this.phase = phase;
+        }
+    }
+
+    /**
+     * Records the most used {@link WarmableActor}s to a local file, and activates them when the stage starts again.
+     */
+    public static class PrewarmProperties
+    {
+        private Boolean enabled = Boolean.FALSE;
+        private String hotSetFile = "orbit-hot-set.bin";
+        private Integer hotSetSize = 1000;
+        private Integer concurrency = 16;
+        private Long timeoutInMilliseconds = 60000L;
+        private Long writeIntervalInMilliseconds = 60000L;
+
+        public Boolean getEnabled()
+        {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled)
+        {
+            this.enabled = enabled;
+        }
+
+        public String getHotSetFile()
+        {
+            return hotSetFile;
+        }
+
+        public void setHotSetFile(String hotSetFile)
+        {
+            this.hotSetFile = hotSetFile;
+        }
+
+        public Integer getHotSetSize()
+        {
+            return hotSetSize;
+        }
+
+        public void setHotSetSize(Integer hotSetSize)
+        {
+            this.hotSetSize = hotSetSize;
+        }
+
+        public Integer getConcurrency()
+        {
+            return concurrency;
+        }
+
+        public void setConcurrency(Integer concurrency)
+        {
+            this.concurrency = concurrency;
+        }
+
+        public Long getTimeoutInMilliseconds()
+        {
+            return timeoutInMilliseconds;
+        }
+
+        public void setTimeoutInMilliseconds(Long timeoutInMilliseconds)
+        {
+            this.timeoutInMilliseconds = timeoutInMilliseconds;
+        }
+
+        public Long getWriteIntervalInMilliseconds()
+        {
+            return writeIntervalInMilliseconds;
+        }
+
+        public void setWriteIntervalInMilliseconds(Long writeIntervalInMilliseconds)
+        {
+            this.writeIntervalInMilliseconds = writeIntervalInMilliseconds;
+        }
+    }
+
+    /**
+     * Compresses the messages sent to other nodes once they reach a size threshold. All the nodes of a cluster must
+     * agree on whether compression is enabled.
+     */
+    public static class CompressionProperties
+    {
+        private Boolean enabled = Boolean.FALSE;
+        private Integer thresholdInBytes = 4096;
+        private Integer level = 1;
+        private Integer maxMessageSizeInBytes = CompressingMessageSerializer.DEFAULT_MAX_MESSAGE_SIZE_IN_BYTES;
+
+        public Boolean getEnabled()
+        {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled)
+        {
+            this.enabled = enabled;
+        }
+
+        public Integer getThresholdInBytes()
+        {
+            return thresholdInBytes;
+        }
+
+        public void setThresholdInBytes(Integer thresholdInBytes)
+        {
+            this.thresholdInBytes = thresholdInBytes;
+        }
+
+        public Integer getLevel()
+        {
+            return level;
+        }
+
+        public void setLevel(Integer level)
+        {
+            this.level = level;
+        }
+
+        public Integer getMaxMessageSizeInBytes()
+        {
+            return maxMessageSizeInBytes;
+        }
+
+        public void setMaxMessageSizeInBytes(Integer maxMessageSizeInBytes)
+        {
+            this.maxMessageSizeInBytes = maxMessageSizeInBytes;
+        }
+    }
+
+    /**
+     * Coalesces the messages sent to the same node into one frame. All the nodes of a cluster must agree on whether
+     * batching is enabled.
+     */
+    public static class BatchingProperties
+    {
+        private Boolean enabled = Boolean.FALSE;
+        private Long windowInMicroseconds = 200L;
+        private Integer maxBytes = 64 * 1024;
+        private Integer maxMessages = 64;
+        private List<String> unbatchedInterfaces;
+
+        public Boolean getEnabled()
+        {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled)
+        {
+            this.enabled = enabled;
+        }
+
+        public Long getWindowInMicroseconds()
+        {
+            return windowInMicroseconds;
+        }
+
+        public void setWindowInMicroseconds(Long windowInMicroseconds)
+        {
+            this.windowInMicroseconds = windowInMicroseconds;
+        }
+
+        public Integer getMaxBytes()
+        {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(Integer maxBytes)
+        {
+            this.maxBytes = maxBytes;
+        }
+
+        public Integer getMaxMessages()
+        {
+            return maxMessages;
+        }
+
+        public void setMaxMessages(Integer maxMessages)
+        {
+            this.maxMessages = maxMessages;
+        }
+
+        public List<String> getUnbatchedInterfaces()
+        {
+            return unbatchedInterfaces;
+        }
+
+        public void setUnbatchedInterfaces(List<String> unbatchedInterfaces)
+        {
+            this.unbatchedInterfaces = unbatchedInterfaces;
+        }
+    }
+
+    /**
+     * Applies the {@link InvocationPolicy} annotations and the policies configured here to outgoing invocations. The
+     * policies are keyed by the actor interface name, or by the interface name and a method name separated by a dot,
+     * and take precedence over the annotations. Disabled by default, so that applications without policies do not get
+     * the extra pipeline handler.
+     */
+    public static class InvocationProperties
+    {
+        private Boolean enabled = Boolean.FALSE;
+        private Long tickInMilliseconds = 1L;
+        private Integer hedgeMinSamples = 100;
+        private Map<String, InvocationPolicyProperties> policies = new HashMap<>();
+
+        public Boolean getEnabled()
+        {
+            return enabled;
+        }
+
+        public void setEnabled(Boolean enabled)
+        {
+            this.enabled = enabled;
+        }
+
+        public Long getTickInMilliseconds()
+        {
+            return tickInMilliseconds;
+        }
+
+        public void setTickInMilliseconds(Long tickInMilliseconds)
+        {
+            this.tickInMilliseconds = tickInMilliseconds;
+        }
+
+        public Integer getHedgeMinSamples()
+        {
+            return hedgeMinSamples;
+        }
+
+        public void setHedgeMinSamples(Integer hedgeMinSamples)
+        {
+            this.hedgeMinSamples = hedgeMinSamples;
+        }
+
+        public Map<String, InvocationPolicyProperties> getPolicies()
+        {
+            return policies;
+        }
+
+        public void setPolicies(Map<String, InvocationPolicyProperties> policies)
+        {
+            this.policies = policies;
+        }
+    }
+
+    public static class InvocationPolicyProperties
+    {
+        private Long timeoutInMilliseconds;
+        private Boolean hedged;
+
+        public Long getTimeoutInMilliseconds()
+        {
+            return timeoutInMilliseconds;
+        }
+
+        public void setTimeoutInMilliseconds(Long timeoutInMilliseconds)
+        {
+            this.timeoutInMilliseconds = timeoutInMilliseconds;
+        }
+
+        public Boolean getHedged()
+        {
+            return hedged;
+        }
+
+        public void setHedged(Boolean hedged)
+        {
+            this.hedged = hedged;
+        }
+    }
 }
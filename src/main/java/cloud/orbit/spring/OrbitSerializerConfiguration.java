@@ -0,0 +1,93 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import cloud.orbit.actors.extensions.MessageSerializer;
+import cloud.orbit.actors.runtime.KryoSerializer;
+
+import java.util.Collection;
+
+/**
+ * Provides the message serializer selected by {@code orbit.actors.serializer}, compressed when
+ * {@code orbit.actors.compression.enabled} is set. It is a separate configuration so that
+ * {@link OrbitSpringConfiguration} can keep picking up whichever {@link MessageSerializer} bean there is.
+ */
+@Configuration
+@Conditional(OrbitSerializerConfiguration.SerializerConfiguredCondition.class)
+public class OrbitSerializerConfiguration
+{
+    @Bean
+    @ConditionalOnMissingBean(MessageSerializer.class)
+    public MessageSerializer messageSerializer(OrbitActorsProperties properties)
+    {
+        MessageSerializer serializer;
+        if (properties.getSerializer() == OrbitActorsProperties.Serializer.KRYO)
+        {
+            Collection<Class<?>> messageTypes = ActorMessageTypeRegistrar.findMessageTypes(
+                    properties.getBasePackages(), ClassUtils.getDefaultClassLoader());
+            serializer = new KryoSerializer(new ActorMessageTypeRegistrar(messageTypes));
+        }
+        else
+        {
+            serializer = new KryoSerializer();
+        }
+        OrbitActorsProperties.CompressionProperties compression = properties.getCompression();
+        if (Boolean.TRUE.equals(compression.getEnabled()))
+        {
+            serializer = new CompressingMessageSerializer(serializer, compression.getThresholdInBytes(),
+                    compression.getLevel(), compression.getMaxMessageSizeInBytes());
+        }
+        return serializer;
+    }
+
+    static class SerializerConfiguredCondition extends AnyNestedCondition
+    {
+        SerializerConfiguredCondition()
+        {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(prefix = "orbit.actors", name = "serializer", havingValue = "kryo")
+        static class KryoSerializerSelected
+        {
+        }
+
+        @ConditionalOnProperty(prefix = "orbit.actors.compression", name = "enabled")
+        static class CompressionEnabled
+        {
+        }
+    }
+}
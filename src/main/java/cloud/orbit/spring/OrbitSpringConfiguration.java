@@ -28,25 +28,32 @@
 
 package cloud.orbit.spring;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
 import cloud.orbit.actors.Stage;
 import cloud.orbit.actors.cloner.ExecutionObjectCloner;
 import cloud.orbit.actors.cluster.ClusterPeer;
+import cloud.orbit.actors.extensions.ActorClassFinder;
 import cloud.orbit.actors.extensions.ActorConstructionExtension;
 import cloud.orbit.actors.extensions.ActorExtension;
 import cloud.orbit.actors.extensions.MessageSerializer;
 import cloud.orbit.actors.runtime.*;
-import cloud.orbit.concurrent.ExecutorUtils;
 
+import java.nio.file.Paths;
 import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Timer;
 import java.util.concurrent.ExecutorService;
@@ -56,6 +63,8 @@ import java.util.concurrent.TimeUnit;
 @EnableConfigurationProperties(OrbitActorsProperties.class)
 public class OrbitSpringConfiguration
 {
+    private static final Logger log = LoggerFactory.getLogger(OrbitSpringConfiguration.class);
+
     @Autowired(required = false)
     private List<OrbitSpringConfigurationAddon> configAddons;
 
@@ -92,9 +101,18 @@ public class OrbitSpringConfiguration
 
     @Bean
     @ConditionalOnMissingBean(ActorConstructionExtension.class)
-    public ActorConstructionExtension springActorConstructionExtension(AutowireCapableBeanFactory factory)
+    public ActorConstructionExtension springActorConstructionExtension(AutowireCapableBeanFactory factory,
+                                                                       OrbitActorsProperties properties)
     {
-        return new SpringActorConstructionExtension(factory);
+        List<String> precompiledPackages = null;
+        if (Boolean.TRUE.equals(properties.getPrecompileActorConstructionPlans()))
+        {
+            precompiledPackages = properties.getBasePackages() != null
+                    ? properties.getBasePackages() : Collections.emptyList();
+        }
+        return new SpringActorConstructionExtension(factory,
+                Boolean.TRUE.equals(properties.getCacheActorConstructionPlans()), precompiledPackages,
+                Boolean.TRUE.equals(properties.getUseActorClassIndex()));
     }
 
     @Bean
@@ -109,13 +127,112 @@ public class OrbitSpringConfiguration
         return messaging;
     }
 
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "orbit.actors.invocation", name = "enabled")
+    public InvocationPolicyPipelineExtension invocationPolicyPipelineExtension(
+            OrbitActorsProperties properties,
+            @Qualifier("stageExecutorService") ExecutorService stageExecutorService)
+    {
+        OrbitActorsProperties.InvocationProperties invocation = properties.getInvocation();
+        long messagingTimeoutMillis = properties.getMessagingTimeoutInMilliseconds() != null
+                ? properties.getMessagingTimeoutInMilliseconds()
+                : InvocationPolicyPipelineExtension.DEFAULT_MESSAGING_TIMEOUT_MILLIS;
+        InvocationPolicyPipelineExtension extension = new InvocationPolicyPipelineExtension(invocation.getPolicies(),
+                invocation.getHedgeMinSamples(), messagingTimeoutMillis,
+                new TimingWheel(invocation.getTickInMilliseconds(), "orbit-invocation-timeouts"),
+                stageExecutorService);
+        extension.validate(ActorMessageTypeRegistrar.findActorInterfaces(properties.getBasePackages(),
+                ClassUtils.getDefaultClassLoader()));
+        return extension;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "orbit.actors.batching", name = "enabled")
+    public MessageBatcher messageBatcher(OrbitActorsProperties properties)
+    {
+        OrbitActorsProperties.BatchingProperties batching = properties.getBatching();
+        return new MessageBatcher(batching.getWindowInMicroseconds(), batching.getMaxBytes(),
+                batching.getMaxMessages());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "orbit.actors.batching", name = "enabled")
+    public UnbatchedMessageFilter unbatchedMessageFilter(OrbitActorsProperties properties)
+    {
+        return new UnbatchedMessageFilter(properties.getBatching().getUnbatchedInterfaces());
+    }
+
     @Bean
     @ConditionalOnMissingBean(name = "stageExecutorService")
     public ExecutorService stageExecutorService(OrbitActorsProperties properties)
     {
-        // same as default execution pool from Orbit's Stage class
-        int poolSize = properties.getExecutionPoolSize() != null ? properties.getExecutionPoolSize() : 128;
-        return ExecutorUtils.newScalingThreadPool(poolSize);
+        return StageExecutors.create(properties);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(StageExecutorWatermarks.class)
+    public StageExecutorWatermarks stageExecutorWatermarks(
+            OrbitActorsProperties properties,
+            @Qualifier("stageExecutorService") ExecutorService stageExecutorService)
+    {
+        OrbitActorsProperties.ExecutionProperties execution = properties.getExecution();
+        int highWatermark = execution.getQueueHighWatermark() != null ? execution.getQueueHighWatermark() : 0;
+        int lowWatermark = execution.getQueueLowWatermark() != null
+                ? execution.getQueueLowWatermark() : highWatermark / 2;
+        return new StageExecutorWatermarks(stageExecutorService, highWatermark, lowWatermark);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(StageStartup.class)
+    public StageStartup stageStartup()
+    {
+        return new StageStartup();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "orbit.actors.shutdown", name = "graceful")
+    ShutdownDeactivationThrottle shutdownDeactivationThrottle(OrbitActorsProperties properties)
+    {
+        Integer deactivationsPerSecond = properties.getShutdown().getDeactivationsPerSecond();
+        return new ShutdownDeactivationThrottle(deactivationsPerSecond != null ? deactivationsPerSecond : 0);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "orbit.actors.shutdown", name = "graceful")
+    @ConditionalOnMissingBean(StageShutdown.class)
+    public StageShutdown stageShutdown(OrbitActorsProperties properties,
+                                       Stage stage,
+                                       ShutdownDeactivationThrottle shutdownDeactivationThrottle)
+    {
+        OrbitActorsProperties.ShutdownProperties shutdown = properties.getShutdown();
+        return new StageShutdown(stage, shutdownDeactivationThrottle, shutdown.getTimeoutInMilliseconds(),
+                shutdown.getProgressIntervalInMilliseconds(), shutdown.getPhase());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "orbit.actors.prewarm", name = "enabled")
+    HotSetTracker hotSetTracker(OrbitActorsProperties properties)
+    {
+        return new HotSetTracker(properties.getPrewarm().getHotSetSize() * 10);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "orbit.actors.prewarm", name = "enabled")
+    @ConditionalOnMissingBean(ActorPrewarmer.class)
+    public ActorPrewarmer actorPrewarmer(OrbitActorsProperties properties,
+                                         HotSetTracker hotSetTracker,
+                                         StageStartup stageStartup)
+    {
+        OrbitActorsProperties.PrewarmProperties prewarm = properties.getPrewarm();
+        ActorPrewarmer actorPrewarmer = new ActorPrewarmer(hotSetTracker, Paths.get(prewarm.getHotSetFile()),
+                prewarm.getHotSetSize(), prewarm.getConcurrency(), prewarm.getTimeoutInMilliseconds(),
+                prewarm.getWriteIntervalInMilliseconds(), ClassUtils.getDefaultClassLoader());
+        actorPrewarmer.startRecording();
+        if (properties.getAutostartStage())
+        {
+            actorPrewarmer.prewarmWhenReady(stageStartup.getReadyFuture());
+        }
+        return actorPrewarmer;
     }
 
     @Bean
@@ -123,7 +240,8 @@ public class OrbitSpringConfiguration
     public Stage stage(OrbitActorsProperties properties,
                        List<ActorExtension> actorExtensions,
                        Messaging messaging,
-                       @Qualifier("stageExecutorService") ExecutorService stageExecutorService)
+                       @Qualifier("stageExecutorService") ExecutorService stageExecutorService,
+                       StageStartup stageStartup)
     {
         Stage stage = buildStage(properties, actorExtensions, messaging, stageExecutorService);
 
@@ -134,8 +252,7 @@ public class OrbitSpringConfiguration
 
         if (properties.getAutostartStage())
         {
-            stage.start().join();
-            stage.bind();
+            stageStartup.start(stage, Boolean.TRUE.equals(properties.getAsyncStartup()));
         }
 
         return stage;
@@ -164,9 +281,28 @@ public class OrbitSpringConfiguration
                 .placementGroup(properties.getPlacementGroup())
                 .nodeName(properties.getNodeName());
 
+        List<ActorExtension> extensions = new ArrayList<>();
         if (actorExtensions != null)
         {
-            stageBuilder.extensions(actorExtensions.toArray(new ActorExtension[actorExtensions.size()]));
+            extensions.addAll(actorExtensions);
+        }
+        if (Boolean.TRUE.equals(properties.getUseActorClassIndex())
+                && extensions.stream().noneMatch(extension -> extension instanceof ActorClassFinder))
+        {
+            ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+            ActorClassIndex index = ActorClassIndex.load(classLoader);
+            if (index != null)
+            {
+                log.debug("Finding actors through the build-time index of {} actor interfaces", index.size());
+                extensions.add(new IndexedActorClassFinder(index, classLoader,
+                        properties.getBasePackages() != null
+                                ? properties.getBasePackages() : Collections.emptyList()));
+            }
+        }
+
+        if (!extensions.isEmpty())
+        {
+            stageBuilder.extensions(extensions.toArray(new ActorExtension[extensions.size()]));
         }
 
         if (properties.getBasePackages() != null)
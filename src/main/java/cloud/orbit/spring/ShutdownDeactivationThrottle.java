@@ -0,0 +1,146 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import cloud.orbit.actors.extensions.LifetimeExtension;
+import cloud.orbit.actors.runtime.AbstractActor;
+import cloud.orbit.concurrent.Task;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how fast actors are deactivated while the stage shuts down, and counts them. Each deactivation waits for a
+ * permit in {@link #preDeactivation}, which holds one of the stage's concurrent deactivation slots, so the stage's own
+ * deactivation concurrency and timeout keep applying on top of the rate. Outside of a shutdown it does nothing.
+ */
+class ShutdownDeactivationThrottle implements LifetimeExtension
+{
+    private final long permitIntervalNanos;
+    private final AtomicLong nextPermitNanos = new AtomicLong();
+    private final LongAdder deactivatedActors = new LongAdder();
+    private final Set<Task<Void>> waitingDeactivations = ConcurrentHashMap.newKeySet();
+    private volatile boolean shuttingDown;
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * @param deactivationsPerSecond the most actors deactivated per second during shutdown, or zero for no limit
+     */
+    ShutdownDeactivationThrottle(final int deactivationsPerSecond)
+    {
+        this.permitIntervalNanos = deactivationsPerSecond > 0
+                ? TimeUnit.SECONDS.toNanos(1) / deactivationsPerSecond : 0;
+    }
+
+    void beginShutdown()
+    {
+        if (permitIntervalNanos > 0)
+        {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "orbit-shutdown-throttle");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        nextPermitNanos.set(System.nanoTime());
+        shuttingDown = true;
+    }
+
+    void endShutdown()
+    {
+        shuttingDown = false;
+        ScheduledExecutorService current = scheduler;
+        if (current != null)
+        {
+            current.shutdownNow();
+        }
+        // pending permits are released right away, so that no deactivation is left waiting
+        waitingDeactivations.removeIf(permitted ->
+        {
+            permitted.complete(null);
+            return true;
+        });
+    }
+
+    @Override
+    public Task<?> preDeactivation(final AbstractActor<?> actor)
+    {
+        ScheduledExecutorService current = scheduler;
+        if (!shuttingDown || current == null)
+        {
+            return Task.done();
+        }
+        long now = System.nanoTime();
+        // permits do not accumulate while idle, so the rate holds from the first deactivation on
+        long permit = nextPermitNanos.getAndUpdate(next -> Math.max(next, now) + permitIntervalNanos);
+        long delay = Math.max(permit, now) - now;
+        if (delay <= 0)
+        {
+            return Task.done();
+        }
+        Task<Void> permitted = new Task<>();
+        waitingDeactivations.add(permitted);
+        try
+        {
+            current.schedule(() ->
+            {
+                waitingDeactivations.remove(permitted);
+                permitted.complete(null);
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // the shutdown has just ended
+            waitingDeactivations.remove(permitted);
+            permitted.complete(null);
+        }
+        return permitted;
+    }
+
+    @Override
+    public Task<?> postDeactivation(final AbstractActor<?> actor)
+    {
+        if (shuttingDown)
+        {
+            deactivatedActors.increment();
+        }
+        return Task.done();
+    }
+
+    long getDeactivatedActorCount()
+    {
+        return deactivatedActors.sum();
+    }
+}
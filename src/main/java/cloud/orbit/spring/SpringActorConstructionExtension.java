@@ -28,23 +28,159 @@
 
 package cloud.orbit.spring;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AssignableTypeFilter;
+import org.springframework.util.ClassUtils;
 
 import cloud.orbit.actors.extensions.ActorConstructionExtension;
+import cloud.orbit.actors.runtime.AbstractActor;
 
-class SpringActorConstructionExtension implements ActorConstructionExtension
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+class SpringActorConstructionExtension implements ActorConstructionExtension, SmartInitializingSingleton
 {
+    private static final Logger log = LoggerFactory.getLogger(SpringActorConstructionExtension.class);
+
     private final AutowireCapableBeanFactory beanFactory;
+    private final boolean cacheConstructionPlans;
+    private final Collection<String> precompiledPackages;
+    private final boolean useActorClassIndex;
+    private final ConcurrentMap<Class<?>, ActorConstructionPlan> constructionPlans = new ConcurrentHashMap<>();
 
     public SpringActorConstructionExtension(AutowireCapableBeanFactory beanFactory)
+    {
+        this(beanFactory, false);
+    }
+
+    public SpringActorConstructionExtension(AutowireCapableBeanFactory beanFactory, boolean cacheConstructionPlans)
+    {
+        this(beanFactory, cacheConstructionPlans, null);
+    }
+
+    /**
+     * @param precompiledPackages packages whose actor implementations get their construction plans built when the
+     *                            application context is refreshed, or null to build every plan on first activation.
+     *                            Implies {@code cacheConstructionPlans}.
+     */
+    public SpringActorConstructionExtension(AutowireCapableBeanFactory beanFactory,
+                                            boolean cacheConstructionPlans,
+                                            Collection<String> precompiledPackages)
+    {
+        this(beanFactory, cacheConstructionPlans, precompiledPackages, false);
+    }
+
+    /**
+     * @param useActorClassIndex whether the actor implementations to precompile are looked up in the build-time
+     *                           {@link ActorClassIndex} rather than scanned for
+     */
+    public SpringActorConstructionExtension(AutowireCapableBeanFactory beanFactory,
+                                            boolean cacheConstructionPlans,
+                                            Collection<String> precompiledPackages,
+                                            boolean useActorClassIndex)
     {
         this.beanFactory = beanFactory;
+        this.cacheConstructionPlans = cacheConstructionPlans || precompiledPackages != null;
+        this.precompiledPackages = precompiledPackages;
+        this.useActorClassIndex = useActorClassIndex;
     }
 
     // Provides constructor injection for actors
     @Override
     public <T> T newInstance(Class<T> concreteClass)
     {
-        return beanFactory.createBean(concreteClass);
+        if (!cacheConstructionPlans)
+        {
+            return beanFactory.createBean(concreteClass);
+        }
+        ActorConstructionPlan plan = constructionPlans.get(concreteClass);
+        if (plan == null)
+        {
+            plan = constructionPlans.computeIfAbsent(concreteClass,
+                    actorClass -> ActorConstructionPlan.create(beanFactory, actorClass));
+        }
+        return concreteClass.cast(plan.newInstance());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated()
+    {
+        if (precompiledPackages != null)
+        {
+            precompile(precompiledPackages);
+        }
+    }
+
+    int precompile(Collection<String> basePackages)
+    {
+        if (basePackages.isEmpty())
+        {
+            log.warn("No orbit.actors.base-packages, no actor construction plan precompiled");
+            return 0;
+        }
+        long start = System.nanoTime();
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        int compiled = 0;
+        for (String actorClassName : findActorClassNames(basePackages, classLoader))
+        {
+            try
+            {
+                Class<?> actorClass = ClassUtils.forName(actorClassName, classLoader);
+                constructionPlans.computeIfAbsent(actorClass,
+                        type -> ActorConstructionPlan.create(beanFactory, type));
+                compiled++;
+            }
+            catch (Exception | LinkageError e)
+            {
+                // the plan gets another chance on first activation
+                log.warn("Unable to precompile construction plan for {}", actorClassName, e);
+            }
+        }
+        log.info("Precompiled {} actor construction plans in {} ms", compiled,
+                (System.nanoTime() - start) / 1_000_000);
+        return compiled;
+    }
+
+    boolean hasConstructionPlan(Class<?> actorClass)
+    {
+        return constructionPlans.containsKey(actorClass);
+    }
+
+    /**
+     * Uses the build-time actor class index when it is enabled and there is one, and scans the packages otherwise.
+     */
+    private Set<String> findActorClassNames(Collection<String> basePackages, ClassLoader classLoader)
+    {
+        Set<String> actorClassNames = new LinkedHashSet<>();
+        ActorClassIndex index = useActorClassIndex ? ActorClassIndex.load(classLoader) : null;
+        if (index != null)
+        {
+            for (String implementation : index.getImplementations())
+            {
+                if (basePackages.stream().anyMatch(basePackage -> implementation.startsWith(basePackage + ".")))
+                {
+                    actorClassNames.add(implementation);
+                }
+            }
+            return actorClassNames;
+        }
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AssignableTypeFilter(AbstractActor.class));
+        for (String basePackage : basePackages)
+        {
+            for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage))
+            {
+                actorClassNames.add(candidate.getBeanClassName());
+            }
+        }
+        return actorClassNames;
     }
 }
@@ -0,0 +1,137 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells whether the stage's execution pool is overloaded, based on how many tasks are queued. The pool counts as
+ * overloaded from the moment its queue reaches the high watermark until it drains to the low watermark, so that the
+ * state does not flap around a single threshold. The queue is sampled every {@value #SAMPLE_INTERVAL_MILLIS} ms on a
+ * daemon thread, as well as on each read, so that a queue that reaches the high watermark between two reads still
+ * counts as overloaded until it has drained to the low watermark.
+ */
+public class StageExecutorWatermarks
+{
+    static final long SAMPLE_INTERVAL_MILLIS = 10;
+
+    private final ExecutorService executor;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final ScheduledExecutorService sampler;
+    private volatile boolean overloaded;
+
+    /**
+     * @param highWatermark the queue depth at which the pool becomes overloaded, or zero to never consider it so
+     * @param lowWatermark  the queue depth at which an overloaded pool recovers
+     */
+    public StageExecutorWatermarks(final ExecutorService executor, final int highWatermark, final int lowWatermark)
+    {
+        this.executor = executor;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = Math.min(lowWatermark, highWatermark);
+        if (highWatermark > 0 && (executor instanceof ThreadPoolExecutor || executor instanceof ForkJoinPool))
+        {
+            sampler = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "orbit-stage-watermarks");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sampler.scheduleWithFixedDelay(this::sample, SAMPLE_INTERVAL_MILLIS, SAMPLE_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+        else
+        {
+            sampler = null;
+        }
+    }
+
+    public int getQueueDepth()
+    {
+        if (executor instanceof ThreadPoolExecutor)
+        {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+        if (executor instanceof ForkJoinPool)
+        {
+            ForkJoinPool pool = (ForkJoinPool) executor;
+            return (int) Math.min(Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+        }
+        return 0;
+    }
+
+    public boolean isOverloaded()
+    {
+        if (highWatermark <= 0)
+        {
+            return false;
+        }
+        sample();
+        return overloaded;
+    }
+
+    private void sample()
+    {
+        int queueDepth = getQueueDepth();
+        if (queueDepth >= highWatermark)
+        {
+            overloaded = true;
+        }
+        else if (queueDepth <= lowWatermark)
+        {
+            overloaded = false;
+        }
+    }
+
+    /**
+     * Stops sampling the queue; the state is then only updated when it is read.
+     */
+    public void shutdown()
+    {
+        if (sampler != null)
+        {
+            sampler.shutdownNow();
+        }
+    }
+
+    public int getHighWatermark()
+    {
+        return highWatermark;
+    }
+
+    public int getLowWatermark()
+    {
+        return lowWatermark;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import cloud.orbit.concurrent.ExecutorUtils;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the stage's execution pool according to {@link OrbitActorsProperties.ExecutionProperties}.
+ */
+final class StageExecutors
+{
+    private static final Logger log = LoggerFactory.getLogger(StageExecutors.class);
+
+    // same as default execution pool from Orbit's Stage class
+    static final int DEFAULT_SCALING_POOL_SIZE = 128;
+
+    private StageExecutors()
+    {
+    }
+
+    static ExecutorService create(final OrbitActorsProperties properties)
+    {
+        OrbitActorsProperties.ExecutionProperties execution = properties.getExecution();
+        OrbitActorsProperties.ExecutionProperties.Strategy strategy = execution.getStrategy() != null
+                ? execution.getStrategy() : OrbitActorsProperties.ExecutionProperties.Strategy.SCALING;
+        switch (strategy)
+        {
+            case WORK_STEALING:
+                return new ForkJoinPool(getPoolSize(properties, Runtime.getRuntime().availableProcessors()),
+                        ForkJoinPool.defaultForkJoinWorkerThreadFactory, null,
+                        !Boolean.FALSE.equals(execution.getAsyncMode()));
+            case FIXED:
+                int poolSize = getPoolSize(properties, Runtime.getRuntime().availableProcessors());
+                return new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(execution.getQueueCapacity()),
+                        new CustomizableThreadFactory("orbit-stage-"),
+                        new CountingRejectedExecutionHandler(newRejectionHandler(execution.getRejectionPolicy())));
+            case VIRTUAL:
+                ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+                if (virtual != null)
+                {
+                    return virtual;
+                }
+                log.warn("Virtual threads are not supported by this JVM, falling back to the scaling pool");
+                return ExecutorUtils.newScalingThreadPool(getPoolSize(properties, DEFAULT_SCALING_POOL_SIZE));
+            default:
+                return ExecutorUtils.newScalingThreadPool(getPoolSize(properties, DEFAULT_SCALING_POOL_SIZE));
+        }
+    }
+
+    static RejectedExecutionHandler newRejectionHandler(
+            final OrbitActorsProperties.ExecutionProperties.RejectionPolicy rejectionPolicy)
+    {
+        if (rejectionPolicy == OrbitActorsProperties.ExecutionProperties.RejectionPolicy.CALLER_RUNS)
+        {
+            return new ThreadPoolExecutor.CallerRunsPolicy();
+        }
+        if (rejectionPolicy == OrbitActorsProperties.ExecutionProperties.RejectionPolicy.DROP_OLDEST_LOW_PRIORITY)
+        {
+            return new DropOldestLowPriorityPolicy();
+        }
+        return (runnable, executor) ->
+        {
+            throw new StageOverloadedException(executor.getQueue().size());
+        };
+    }
+
+    private static int getPoolSize(final OrbitActorsProperties properties, final int defaultPoolSize)
+    {
+        if (properties.getExecution().getPoolSize() != null)
+        {
+            return properties.getExecution().getPoolSize();
+        }
+        return properties.getExecutionPoolSize() != null ? properties.getExecutionPoolSize() : defaultPoolSize;
+    }
+
+    /**
+     * Looked up reflectively, since this library still targets JVMs without virtual threads.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor()
+    {
+        try
+        {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (NoSuchMethodException e)
+        {
+            return null;
+        }
+        catch (ReflectiveOperationException e)
+        {
+            log.warn("Failed to create a virtual thread executor", e);
+            return null;
+        }
+    }
+
+    /**
+     * Makes room by dropping the oldest queued {@link LowPriorityTask}, such as a hedged invocation sent again by
+     * {@link InvocationPolicyPipelineExtension}. Actor messages are never dropped: when no low priority task is queued,
+     * the new task is rejected with a {@link StageOverloadedException}.
+     */
+    static class DropOldestLowPriorityPolicy implements RejectedExecutionHandler
+    {
+        @Override
+        public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor)
+        {
+            if (executor.isShutdown())
+            {
+                throw new RejectedExecutionException("Stage execution pool is shut down");
+            }
+            Iterator<Runnable> queued = executor.getQueue().iterator();
+            while (queued.hasNext())
+            {
+                Runnable candidate = queued.next();
+                if (candidate instanceof LowPriorityTask && executor.getQueue().remove(candidate))
+                {
+                    log.debug("Dropped {} to make room in the stage execution pool", candidate);
+                    executor.execute(runnable);
+                    return;
+                }
+            }
+            throw new StageOverloadedException(executor.getQueue().size());
+        }
+    }
+}
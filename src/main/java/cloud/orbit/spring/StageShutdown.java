@@ -0,0 +1,210 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import cloud.orbit.actors.Stage;
+import cloud.orbit.actors.runtime.NodeCapabilities;
+import cloud.orbit.concurrent.Task;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Stops the stage when the application context closes, before the beans the actors depend on are destroyed. The
+ * stage stops in its own phases: it first tells the cluster it no longer accepts activations, then deactivates its
+ * actors (at most {@code concurrentDeactivations} at a time, and no faster than the configured rate), and finally
+ * waits for the messages still in flight. Progress is logged while the stage stops, and exposed through the getters.
+ */
+public class StageShutdown implements SmartLifecycle
+{
+    private static final Logger log = LoggerFactory.getLogger(StageShutdown.class);
+
+    private final Stage stage;
+    private final ShutdownDeactivationThrottle throttle;
+    private final long timeoutMillis;
+    private final long progressIntervalMillis;
+    private final int phase;
+    private volatile boolean running;
+    private volatile boolean stopping;
+    private volatile long shutdownTimeMillis = -1;
+
+    /**
+     * @param timeoutMillis how long to wait for the stage to stop before letting the context close anyway, or zero to
+     *                      wait for as long as it takes
+     */
+    StageShutdown(final Stage stage, final ShutdownDeactivationThrottle throttle, final long timeoutMillis,
+                  final long progressIntervalMillis, final int phase)
+    {
+        this.stage = stage;
+        this.throttle = throttle;
+        this.timeoutMillis = timeoutMillis;
+        this.progressIntervalMillis = progressIntervalMillis;
+        this.phase = phase;
+    }
+
+    @Override
+    public void start()
+    {
+        running = true;
+    }
+
+    @Override
+    public void stop()
+    {
+        if (!running)
+        {
+            return;
+        }
+        running = false;
+        if (stage.getState() != NodeCapabilities.NodeState.RUNNING)
+        {
+            log.debug("Orbit stage is {}, not stopping it", stage.getState());
+            return;
+        }
+        long start = System.nanoTime();
+        stopping = true;
+        throttle.beginShutdown();
+        try
+        {
+            log.info("Stopping Orbit stage");
+            awaitStopped(stage.stop(), start);
+        }
+        catch (IllegalStateException e)
+        {
+            // the stage was stopped concurrently, e.g. by its own shutdown hook
+            log.debug("Orbit stage was already stopping", e);
+        }
+        finally
+        {
+            throttle.endShutdown();
+            stopping = false;
+            shutdownTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+    private void awaitStopped(final Task<?> stopped, final long start)
+    {
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true)
+        {
+            long wait = progressIntervalMillis;
+            if (timeoutMillis > 0)
+            {
+                wait = Math.min(wait, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            }
+            try
+            {
+                stopped.get(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+                log.info("Orbit stage stopped in {} ms, {} actors deactivated",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), getDeactivatedActorCount());
+                return;
+            }
+            catch (TimeoutException e)
+            {
+                if (timeoutMillis > 0 && System.nanoTime() - deadline >= 0)
+                {
+                    log.warn("Orbit stage did not stop within {} ms, {} actors deactivated", timeoutMillis,
+                            getDeactivatedActorCount());
+                    return;
+                }
+                log.info("Stopping Orbit stage: {} actors deactivated so far", getDeactivatedActorCount());
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while stopping the Orbit stage");
+                return;
+            }
+            catch (ExecutionException e)
+            {
+                log.error("Failed to stop Orbit stage", e.getCause());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void stop(final Runnable callback)
+    {
+        try
+        {
+            stop();
+        }
+        finally
+        {
+            callback.run();
+        }
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup()
+    {
+        return true;
+    }
+
+    @Override
+    public int getPhase()
+    {
+        return phase;
+    }
+
+    /**
+     * Whether the stage is being stopped right now.
+     */
+    public boolean isStopping()
+    {
+        return stopping;
+    }
+
+    /**
+     * How many actors have been deactivated since the stage began stopping.
+     */
+    public long getDeactivatedActorCount()
+    {
+        return throttle.getDeactivatedActorCount();
+    }
+
+    /**
+     * How long the stage took to stop, or -1 if it has not been stopped.
+     */
+    public long getShutdownTimeMillis()
+    {
+        return shutdownTimeMillis;
+    }
+}
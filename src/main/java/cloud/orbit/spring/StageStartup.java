@@ -0,0 +1,142 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import cloud.orbit.actors.Stage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the stage, either on the context refresh thread or in parallel with the rest of the context initialization,
+ * and tells the application when it is ready: through {@link #getReadyFuture()}, and by publishing a
+ * {@link StageStartedEvent}. In both modes the stage is bound to the thread that creates it. A failed start completes
+ * the ready future exceptionally and is reported by {@link #getStartupFailure()}.
+ */
+public class StageStartup implements ApplicationListener<ContextRefreshedEvent>, ApplicationEventPublisherAware
+{
+    private static final Logger log = LoggerFactory.getLogger(StageStartup.class);
+
+    private final CompletableFuture<Stage> readyFuture = new CompletableFuture<>();
+    private final CompletableFuture<Void> contextRefreshed = new CompletableFuture<>();
+    private volatile long startupTimeMillis = -1;
+    private volatile Throwable startupFailure;
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    void start(final Stage stage, final boolean async)
+    {
+        readyFuture.thenCombine(contextRefreshed, (ready, refreshed) -> ready)
+                .thenAccept(ready -> applicationEventPublisher.publishEvent(
+                        new StageStartedEvent(ready, startupTimeMillis)));
+        if (!async)
+        {
+            startStage(stage);
+            stage.bind();
+            return;
+        }
+        // the binding is thread local, so it is made on the calling thread just as a synchronous start would
+        stage.bind();
+        Thread startupThread = new Thread(() ->
+        {
+            try
+            {
+                startStage(stage);
+            }
+            catch (RuntimeException e)
+            {
+                log.error("Failed to start Orbit stage", e);
+            }
+        }, "orbit-stage-startup");
+        // a cluster that never answers must not keep the JVM alive
+        startupThread.setDaemon(true);
+        startupThread.start();
+    }
+
+    private void startStage(final Stage stage)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            stage.start().join();
+            startupTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("Orbit stage started in {} ms", startupTimeMillis);
+            readyFuture.complete(stage);
+        }
+        catch (RuntimeException e)
+        {
+            startupFailure = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            readyFuture.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(final ContextRefreshedEvent event)
+    {
+        contextRefreshed.complete(null);
+    }
+
+    @Override
+    public void setApplicationEventPublisher(final ApplicationEventPublisher applicationEventPublisher)
+    {
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    /**
+     * Completes with the stage once it has started, or exceptionally if it failed to start. Never completes when the
+     * stage is not started automatically.
+     */
+    public CompletableFuture<Stage> getReadyFuture()
+    {
+        return readyFuture;
+    }
+
+    /**
+     * Why the stage failed to start, or null if it started or is still starting.
+     */
+    public Throwable getStartupFailure()
+    {
+        return startupFailure;
+    }
+
+    /**
+     * How long the stage took to start, or -1 if it has not started yet.
+     */
+    public long getStartupTimeMillis()
+    {
+        return startupTimeMillis;
+    }
+}
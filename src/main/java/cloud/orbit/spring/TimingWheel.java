@@ -0,0 +1,345 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hierarchical timing wheel for the many short timeouts of outgoing invocations, most of which are cancelled long
+ * before they expire. Scheduling and cancelling only enqueue the timeout, and a single thread moves it in or out of
+ * its slot on the next tick, so neither contends on a shared heap the way a {@code ScheduledExecutorService} does.
+ * Each of the four levels has 64 slots, each slot of a level spanning a whole turn of the level below, so the wheel
+ * covers 64<sup>4</sup> ticks; a timeout further away waits in the last level and is placed again as it gets closer.
+ * Timeouts fire on the first tick at or after their deadline, on the wheel's thread, so their tasks must be short.
+ * The thread only ticks while timeouts are scheduled; an empty wheel parks it until the next timeout is scheduled.
+ */
+class TimingWheel
+{
+    private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+
+    private static final int PENDING = 0;
+    private static final int SCHEDULED = 1;
+    private static final int CANCELLED = 2;
+    private static final int EXPIRED = 3;
+
+    private final long tickNanos;
+    private final String threadName;
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final long startNanos = System.nanoTime();
+    private volatile Thread thread;
+    private volatile boolean stopped;
+    private volatile boolean idle;
+    private long currentTick;
+    // the number of timeouts in the slots, only accessed by the wheel's thread
+    private int size;
+
+    TimingWheel(final long tickMillis, final String threadName)
+    {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(tickMillis, 1));
+        this.threadName = threadName;
+    }
+
+    /**
+     * Runs the task on the wheel's thread once the delay has passed, unless the returned timeout is cancelled first.
+     * The thread starts with the first timeout.
+     */
+    Timeout schedule(final Runnable task, final long delayMillis)
+    {
+        if (stopped)
+        {
+            throw new IllegalStateException("The timing wheel is stopped");
+        }
+        long deadlineNanos = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0));
+        Timeout timeout = new Timeout(task, (deadlineNanos + tickNanos - 1) / tickNanos);
+        scheduled.add(timeout);
+        if (thread == null)
+        {
+            start();
+        }
+        if (idle)
+        {
+            LockSupport.unpark(thread);
+        }
+        return timeout;
+    }
+
+    private synchronized void start()
+    {
+        if (thread == null && !stopped)
+        {
+            Thread worker = new Thread(this::run, threadName);
+            worker.setDaemon(true);
+            worker.start();
+            thread = worker;
+        }
+    }
+
+    /**
+     * Stops the wheel's thread; the timeouts still scheduled never fire.
+     */
+    void stop()
+    {
+        stopped = true;
+        Thread worker = thread;
+        if (worker != null)
+        {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private void run()
+    {
+        List<Timeout> expired = new ArrayList<>();
+        while (!stopped)
+        {
+            if (size == 0)
+            {
+                awaitScheduled();
+            }
+            long nextTickNanos = (currentTick + 1) * tickNanos;
+            long waitNanos;
+            while ((waitNanos = nextTickNanos - (System.nanoTime() - startNanos)) > 0 && !stopped)
+            {
+                LockSupport.parkNanos(this, waitNanos);
+            }
+            currentTick++;
+            unlinkCancelled();
+            placeScheduled();
+            advance(expired);
+            for (Timeout timeout : expired)
+            {
+                try
+                {
+                    timeout.task.run();
+                }
+                catch (RuntimeException e)
+                {
+                    log.warn("Timeout task failed", e);
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    /**
+     * Parks the thread until a timeout is scheduled, then skips the ticks it slept through: with no timeout in the
+     * slots, no slot has to be turned over.
+     */
+    private void awaitScheduled()
+    {
+        idle = true;
+        while (scheduled.isEmpty() && !stopped)
+        {
+            LockSupport.park(this);
+        }
+        idle = false;
+        currentTick = Math.max(currentTick, (System.nanoTime() - startNanos) / tickNanos);
+    }
+
+    boolean isIdle()
+    {
+        return idle;
+    }
+
+    private void unlinkCancelled()
+    {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null)
+        {
+            if (timeout.level >= 0)
+            {
+                unlink(timeout);
+            }
+        }
+    }
+
+    private void placeScheduled()
+    {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null)
+        {
+            if (timeout.state.compareAndSet(PENDING, SCHEDULED))
+            {
+                place(timeout);
+            }
+        }
+    }
+
+    /**
+     * Moves the timeouts of the slots that the current tick turns over down one level, then expires the current slot
+     * of the first level.
+     */
+    private void advance(final List<Timeout> expired)
+    {
+        for (int level = 1; level < LEVELS && slotOf(currentTick, level - 1) == 0; level++)
+        {
+            Timeout timeout = detach(level, slotOf(currentTick, level));
+            while (timeout != null)
+            {
+                Timeout next = timeout.next;
+                place(timeout);
+                timeout = next;
+            }
+        }
+        Timeout timeout = detach(0, slotOf(currentTick, 0));
+        while (timeout != null)
+        {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            if (timeout.deadlineTick > currentTick)
+            {
+                place(timeout);
+            }
+            else if (timeout.state.compareAndSet(SCHEDULED, EXPIRED))
+            {
+                expired.add(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void place(final Timeout timeout)
+    {
+        long ticks = Math.max(timeout.deadlineTick, currentTick) - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && ticks >= 1L << (SLOT_BITS * (level + 1)))
+        {
+            level++;
+        }
+        long tick = Math.min(Math.max(timeout.deadlineTick, currentTick),
+                currentTick + (1L << (SLOT_BITS * LEVELS)) - 1);
+        int slot = slotOf(tick, level);
+        if (level == 0 && timeout.deadlineTick <= currentTick)
+        {
+            // already due: the current slot is expired right after placing
+            slot = slotOf(currentTick, 0);
+        }
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.previous = null;
+        timeout.next = slots[level][slot];
+        if (timeout.next != null)
+        {
+            timeout.next.previous = timeout;
+        }
+        slots[level][slot] = timeout;
+        size++;
+    }
+
+    private void unlink(final Timeout timeout)
+    {
+        if (timeout.previous != null)
+        {
+            timeout.previous.next = timeout.next;
+        }
+        else
+        {
+            slots[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null)
+        {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.level = -1;
+        timeout.previous = null;
+        timeout.next = null;
+        size--;
+    }
+
+    private Timeout detach(final int level, final int slot)
+    {
+        Timeout head = slots[level][slot];
+        slots[level][slot] = null;
+        for (Timeout timeout = head; timeout != null; timeout = timeout.next)
+        {
+            timeout.level = -1;
+            timeout.previous = null;
+            size--;
+        }
+        return head;
+    }
+
+    private static int slotOf(final long tick, final int level)
+    {
+        return (int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1);
+    }
+
+    final class Timeout
+    {
+        private final Runnable task;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // only accessed by the wheel's thread
+        private int level = -1;
+        private int slot;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(final Runnable task, final long deadlineTick)
+        {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * @return false if the timeout has already fired or been cancelled
+         */
+        boolean cancel()
+        {
+            if (state.compareAndSet(PENDING, CANCELLED))
+            {
+                return true;
+            }
+            if (state.compareAndSet(SCHEDULED, CANCELLED))
+            {
+                cancelled.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        boolean isExpired()
+        {
+            return state.get() == EXPIRED;
+        }
+    }
+}
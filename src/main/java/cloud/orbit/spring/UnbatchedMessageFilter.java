@@ -0,0 +1,162 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import cloud.orbit.actors.cluster.NodeAddress;
+import cloud.orbit.actors.extensions.PipelineExtension;
+import cloud.orbit.actors.net.HandlerAdapter;
+import cloud.orbit.actors.net.HandlerContext;
+import cloud.orbit.actors.runtime.DefaultClassDictionary;
+import cloud.orbit.actors.runtime.DefaultHandlers;
+import cloud.orbit.actors.runtime.Message;
+import cloud.orbit.actors.runtime.MessageDefinitions;
+import cloud.orbit.concurrent.Task;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sits in front of Orbit's serialization handler and has {@link MessageBatcher} send right away the calls to
+ * {@link Unbatched} actor interfaces, or to the interfaces named in {@code orbit.actors.batching.unbatched-interfaces}.
+ * Responses do not name the interface, so the unbatched calls received from other nodes are remembered until their
+ * response is sent.
+ */
+class UnbatchedMessageFilter extends HandlerAdapter implements PipelineExtension
+{
+    static final String NAME = "unbatched-message-filter";
+
+    private static final int MAX_PENDING_RESPONSES = 100_000;
+
+    private final Set<String> unbatchedInterfaceNames;
+    private final Map<Integer, Boolean> unbatchedInterfaceIds = new ConcurrentHashMap<>();
+    private final Set<ResponseKey> pendingResponses = ConcurrentHashMap.newKeySet();
+
+    UnbatchedMessageFilter(final Collection<String> unbatchedInterfaceNames)
+    {
+        this.unbatchedInterfaceNames = unbatchedInterfaceNames != null
+                ? new HashSet<>(unbatchedInterfaceNames) : new HashSet<>();
+    }
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public String getBeforeHandlerName()
+    {
+        return DefaultHandlers.SERIALIZATION;
+    }
+
+    @Override
+    public void onRead(final HandlerContext ctx, final Object msg) throws Exception
+    {
+        if (msg instanceof Message)
+        {
+            Message message = (Message) msg;
+            if (message.getMessageType() == MessageDefinitions.REQUEST_MESSAGE
+                    && isUnbatched(message.getInterfaceId())
+                    && pendingResponses.size() < MAX_PENDING_RESPONSES)
+            {
+                pendingResponses.add(new ResponseKey(message.getFromNode(), message.getMessageId()));
+            }
+        }
+        ctx.fireRead(msg);
+    }
+
+    @Override
+    public Task write(final HandlerContext ctx, final Object msg) throws Exception
+    {
+        if (msg instanceof Message && isUnbatched((Message) msg))
+        {
+            return MessageBatcher.writeUnbatched(ctx, msg);
+        }
+        return ctx.write(msg);
+    }
+
+    private boolean isUnbatched(final Message message)
+    {
+        switch (message.getMessageType())
+        {
+            case MessageDefinitions.REQUEST_MESSAGE:
+            case MessageDefinitions.ONE_WAY_MESSAGE:
+                return isUnbatched(message.getInterfaceId());
+            default:
+                return !pendingResponses.isEmpty()
+                        && pendingResponses.remove(new ResponseKey(message.getToNode(), message.getMessageId()));
+        }
+    }
+
+    boolean isUnbatched(final int interfaceId)
+    {
+        return unbatchedInterfaceIds.computeIfAbsent(interfaceId, id ->
+        {
+            Class<?> interfaceClass = DefaultClassDictionary.get().getClassById(id);
+            return interfaceClass != null && (interfaceClass.isAnnotationPresent(Unbatched.class)
+                    || unbatchedInterfaceNames.contains(interfaceClass.getName()));
+        });
+    }
+
+    private static final class ResponseKey
+    {
+        private final NodeAddress node;
+        private final int messageId;
+
+        private ResponseKey(final NodeAddress node, final int messageId)
+        {
+            this.node = node;
+            this.messageId = messageId;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof ResponseKey))
+            {
+                return false;
+            }
+            ResponseKey that = (ResponseKey) o;
+            return messageId == that.messageId && Objects.equals(node, that.node);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(node, messageId);
+        }
+    }
+}
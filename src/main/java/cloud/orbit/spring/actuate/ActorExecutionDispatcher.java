@@ -0,0 +1,95 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import cloud.orbit.actors.Stage;
+import cloud.orbit.actors.runtime.AbstractActor;
+import cloud.orbit.concurrent.Task;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the collection of an actor's details as a job in that actor's own execution, so that it never runs concurrently
+ * with the actor's messages and actors can read their state without synchronization.
+ * <p>
+ * Orbit only exposes per-actor execution to callers outside the actor through timers, so every collection is queued as
+ * a one-shot timer that is due immediately. It is processed after any messages already queued for the actor.
+ */
+class ActorExecutionDispatcher
+{
+    private final Supplier<Stage> stageSupplier;
+
+    /**
+     * @param stageSupplier looked up on every dispatch, since the stage depends on the extension collecting the info
+     */
+    ActorExecutionDispatcher(final Supplier<Stage> stageSupplier)
+    {
+        this.stageSupplier = stageSupplier;
+    }
+
+    /**
+     * The returned future never completes if the actor is deactivated before the job runs, so callers have to wait
+     * with a timeout.
+     */
+    CompletableFuture<Map<String, Object>> dispatch(
+            final ActorInfoContributorReference reference,
+            final Function<ActorInfoContributorReference, Map<String, Object>> detailsFunction)
+    {
+        CompletableFuture<Map<String, Object>> future = new CompletableFuture<>();
+        try
+        {
+            AbstractActor<?> actor = (AbstractActor<?>) reference.getInfoContributor();
+            stageSupplier.get().registerTimer(actor, () ->
+            {
+                try
+                {
+                    future.complete(detailsFunction.apply(reference));
+                }
+                catch (Throwable t)
+                {
+                    future.completeExceptionally(t);
+                }
+                return Task.done();
+            }, 0, 0, TimeUnit.MILLISECONDS);
+        }
+        catch (IllegalStateException e)
+        {
+            // the actor was deactivated, but has not been garbage collected yet
+            future.completeExceptionally(new ActorInfoContributorReference.ExpiredReferenceException(reference));
+        }
+        catch (Throwable t)
+        {
+            future.completeExceptionally(t);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package cloud.orbit.spring.actuate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Asks actors for their info, either one after the other on the calling thread, fanned out on a dedicated pool, or by
+ * jobs queued in each actor's own execution. When fanning out, a window bounds how many actors are asked at once. A
+ * per-actor timeout and a global budget bound how long a collection can take; actors that do not answer in time are
+ * left out and reported in the {@link Result}.
+ */
+class ActorInfoCollector
+{
+    private static final Logger log = LoggerFactory.getLogger(ActorInfoCollector.class);
+
+    // jobs queued in an actor's execution are lost when it is deactivated first, so they are never waited on forever
+    static final long DEFAULT_ACTOR_EXECUTION_TIMEOUT_MILLIS = 10000;
+
+    static final int DEFAULT_MAX_IN_FLIGHT = 100;
+
+    private final ExecutorService executor;
+    private final BiFunction<ActorInfoContributorReference, Function<ActorInfoContributorReference,
+            Map<String, Object>>, CompletableFuture<Map<String, Object>>> dispatch;
+    private final int maxInFlight;
+    private final long actorTimeoutMillis;
+    private final long budgetMillis;
+
+    /**
+     * Collects on the calling thread without any time limit.
+     */
+    ActorInfoCollector()
+    {
+        this(null, 0, 0, 0);
+    }
+
+    ActorInfoCollector(final ExecutorService executor, final long actorTimeoutMillis, final long budgetMillis)
+    {
+        this(executor, 0, actorTimeoutMillis, budgetMillis);
+    }
+
+    /**
+     * @param executor           the pool to fan out on, or null to collect on the calling thread. Per-actor timeouts
+     *                           only apply when collecting in parallel.
+     * @param maxInFlight        the most actors asked at once, or zero for {@link #DEFAULT_MAX_IN_FLIGHT}
+     * @param actorTimeoutMillis the longest time to wait for any single actor, or zero for no limit
+     * @param budgetMillis       the longest time a whole collection may take, or zero for no limit
+     */
+    ActorInfoCollector(final ExecutorService executor,
+                       final int maxInFlight,
+                       final long actorTimeoutMillis,
+                       final long budgetMillis)
+    {
+        this.executor = executor;
+        this.dispatch = executor == null
+                ? null
+                : (reference, detailsFunction) ->
+                        CompletableFuture.supplyAsync(() -> detailsFunction.apply(reference), executor);
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : DEFAULT_MAX_IN_FLIGHT;
+        this.actorTimeoutMillis = actorTimeoutMillis;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * @param dispatcher         queues collection jobs in the actors' own execution
+     * @param maxInFlight        the most jobs queued at once, or zero for {@link #DEFAULT_MAX_IN_FLIGHT}. The next job
+     *                           is only queued once an earlier one has been answered, so a scrape never floods the
+     *                           actors' queues.
+     * @param actorTimeoutMillis the longest time to wait for any single actor, or zero for
+     *                           {@link #DEFAULT_ACTOR_EXECUTION_TIMEOUT_MILLIS}
+     * @param budgetMillis       the longest time a whole collection may take, or zero for no limit
+     */
+    ActorInfoCollector(final ActorExecutionDispatcher dispatcher,
+                       final int maxInFlight,
+                       final long actorTimeoutMillis,
+                       final long budgetMillis)
+    {
+        this.executor = null;
+        this.dispatch = dispatcher::dispatch;
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : DEFAULT_MAX_IN_FLIGHT;
+        this.actorTimeoutMillis = actorTimeoutMillis > 0 ? actorTimeoutMillis : DEFAULT_ACTOR_EXECUTION_TIMEOUT_MILLIS;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Collects the details of the given references and hands each result to the sink on the calling thread.
+     */
+    Result collect(final Iterable<ActorInfoContributorReference> references,
+                   final Function<ActorInfoContributorReference, Map<String, Object>> detailsFunction,
+                   final BiConsumer<ActorInfoContributorReference, Map<String, Object>> sink)
+    {
+        long deadline = budgetMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis) : 0;
+        return dispatch == null
+                ? collectSerially(references, detailsFunction, sink, deadline)
+                : collectInParallel(references, detailsFunction, sink, deadline);
+    }
+
+    private Result collectSerially(final Iterable<ActorInfoContributorReference> references,
+                                   final Function<ActorInfoContributorReference, Map<String, Object>> detailsFunction,
+                                   final BiConsumer<ActorInfoContributorReference, Map<String, Object>> sink,
+                                   final long deadline)
+    {
+        Result result = new Result();
+        for (ActorInfoContributorReference reference : references)
+        {
+            if (deadline != 0 && System.nanoTime() - deadline >= 0)
+            {
+                result.truncated = true;
+                result.skipped++;
+                continue;
+            }
+            try
+            {
+                sink.accept(reference, detailsFunction.apply(reference));
+            }
+            catch (ActorInfoContributorReference.ExpiredReferenceException e)
+            {
+                result.expired.add(reference);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Keeps at most {@link #maxInFlight} actors in flight, and asks the next actor as soon as the oldest one in flight
+     * has answered. Results are handed to the sink in order, on the calling thread.
+     */
+    private Result collectInParallel(final Iterable<ActorInfoContributorReference> references,
+                                     final Function<ActorInfoContributorReference, Map<String, Object>> detailsFunction,
+                                     final BiConsumer<ActorInfoContributorReference, Map<String, Object>> sink,
+                                     final long deadline)
+    {
+        Result result = new Result();
+        Deque<Map.Entry<ActorInfoContributorReference, CompletableFuture<Map<String, Object>>>> inFlight =
+                new ArrayDeque<>();
+        Iterator<ActorInfoContributorReference> iterator = references.iterator();
+        while (true)
+        {
+            if (deadline != 0 && System.nanoTime() - deadline >= 0)
+            {
+                result.truncated = true;
+            }
+            while (!result.truncated && iterator.hasNext() && inFlight.size() < maxInFlight)
+            {
+                ActorInfoContributorReference reference = iterator.next();
+                inFlight.add(new AbstractMap.SimpleImmutableEntry<>(reference,
+                        dispatch.apply(reference, detailsFunction)));
+            }
+            Map.Entry<ActorInfoContributorReference, CompletableFuture<Map<String, Object>>> oldest = inFlight.poll();
+            if (oldest == null)
+            {
+                break;
+            }
+            if (!awaitActor(oldest.getKey(), oldest.getValue(), sink, deadline, result))
+            {
+                for (Map.Entry<ActorInfoContributorReference, CompletableFuture<Map<String, Object>>> entry : inFlight)
+                {
+                    entry.getValue().cancel(false);
+                    result.skipped++;
+                }
+                inFlight.clear();
+            }
+        }
+        while (iterator.hasNext())
+        {
+            iterator.next();
+            result.skipped++;
+        }
+        return result;
+    }
+
+    /**
+     * @return false if the calling thread was interrupted, which truncates the collection
+     */
+    private boolean awaitActor(final ActorInfoContributorReference reference,
+                               final CompletableFuture<Map<String, Object>> future,
+                               final BiConsumer<ActorInfoContributorReference, Map<String, Object>> sink,
+                               final long deadline,
+                               final Result result)
+    {
+        try
+        {
+            sink.accept(reference, await(future, deadline));
+        }
+        catch (TimeoutException e)
+        {
+            future.cancel(false);
+            if (deadline != 0 && System.nanoTime() - deadline >= 0)
+            {
+                result.truncated = true;
+            }
+            result.timedOut++;
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof ActorInfoContributorReference.ExpiredReferenceException)
+            {
+                result.expired.add(reference);
+            }
+            else
+            {
+                log.warn("Failed to collect info from actor", e.getCause());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            result.truncated = true;
+            result.skipped++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Waits at most the per-actor timeout, and never past the deadline. Since the actors in flight are already running,
+     * the wait for later actors overlaps with the earlier ones.
+     */
+    private Map<String, Object> await(final CompletableFuture<Map<String, Object>> future, final long deadline)
+            throws InterruptedException, ExecutionException, TimeoutException
+    {
+        long waitNanos = actorTimeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(actorTimeoutMillis) : Long.MAX_VALUE;
+        if (deadline != 0)
+        {
+            waitNanos = Math.min(waitNanos, deadline - System.nanoTime());
+        }
+        if (waitNanos == Long.MAX_VALUE)
+        {
+            return future.get();
+        }
+        if (waitNanos <= 0 && !future.isDone())
+        {
+            throw new TimeoutException();
+        }
+        return future.get(Math.max(waitNanos, 0), TimeUnit.NANOSECONDS);
+    }
+
+    void shutdown()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    static class Result
+    {
+        private final List<ActorInfoContributorReference> expired = new ArrayList<>();
+        private int timedOut;
+        private int skipped;
+        private boolean truncated;
+
+        List<ActorInfoContributorReference> getExpired()
+        {
+            return expired;
+        }
+
+        boolean isComplete()
+        {
+            return timedOut == 0 && !truncated;
+        }
+
+        /**
+         * Details describing why the collection is incomplete, or null if it is complete.
+         */
+        Map<String, Object> getStatus()
+        {
+            if (isComplete())
+            {
+                return null;
+            }
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("truncated", truncated);
+            status.put("timedOut", timedOut);
+            status.put("skipped", skipped);
+            return Collections.unmodifiableMap(status);
+        }
+    }
+}
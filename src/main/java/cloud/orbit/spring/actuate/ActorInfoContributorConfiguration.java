@@ -28,7 +28,7 @@
 
 package cloud.orbit.spring.actuate;
 
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.actuate.autoconfigure.ConditionalOnEnabledInfoContributor;
 import org.springframework.boot.actuate.info.InfoContributor;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -39,28 +39,75 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import cloud.orbit.actors.Stage;
 import cloud.orbit.actors.runtime.RemoteReference;
 import cloud.orbit.spring.OrbitSpringConfiguration;
 
+import java.time.Clock;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 @Configuration
 @ConditionalOnClass(InfoContributor.class)
 @ConditionalOnEnabledInfoContributor("actors")
 @AutoConfigureAfter(OrbitSpringConfiguration.class)
-@EnableConfigurationProperties(ActorInfoContributorConfiguration.GroupProperties.class)
+@EnableConfigurationProperties({ ActorInfoContributorConfiguration.GroupProperties.class,
+        ActorInfoContributorConfiguration.CacheProperties.class,
+        ActorInfoContributorConfiguration.CollectionProperties.class,
+        ActorInfoContributorConfiguration.ExecutorProperties.class })
 public class ActorInfoContributorConfiguration
 {
     @Bean
     @ConditionalOnMissingBean(ActorInfoContributorLifetimeExtension.class)
     public ActorInfoContributorLifetimeExtension actorInfoContributorLifetimeExtension(
-            @Qualifier("stageExecutorService") final ExecutorService stageExecutorService,
-            final GroupProperties groupProperties)
+            final BackgroundExecutor actorInfoLifetimeExecutor,
+            final ExecutorProperties executorProperties,
+            final GroupProperties groupProperties,
+            final CacheProperties cacheProperties,
+            final ActorInfoCollector actorInfoCollector)
     {
         return new ActorInfoContributorLifetimeExtension(
                 RemoteReference::getInterfaceClass,
                 new ActorInfoDetailsContainer(groupProperties),
-                stageExecutorService);
+                actorInfoLifetimeExecutor::execute,
+                executorProperties.getBatchSize(),
+                executorProperties.getQueueCapacity(),
+                cacheProperties.getMaxAgeInMilliseconds(),
+                cacheProperties.getActorMaxAgeInMilliseconds(),
+                Clock.systemUTC(),
+                actorInfoCollector);
+    }
+
+    /**
+     * Keeps registry updates on every activation and deactivation off the stage's execution pool.
+     */
+    @Bean(destroyMethod = "shutdown")
+    BackgroundExecutor actorInfoLifetimeExecutor(final ExecutorProperties executorProperties)
+    {
+        return new BackgroundExecutor("orbit-actor-info-", executorProperties.getPoolSize(),
+                executorProperties.getQueueCapacity());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnMissingBean(ActorInfoCollector.class)
+    ActorInfoCollector actorInfoCollector(final CollectionProperties collectionProperties,
+                                          final ObjectProvider<Stage> stage)
+    {
+        if (collectionProperties.getDispatch() == CollectionProperties.Dispatch.ACTOR_EXECUTION)
+        {
+            return new ActorInfoCollector(new ActorExecutionDispatcher(stage::getObject),
+                    collectionProperties.getMaxInFlight(),
+                    collectionProperties.getActorTimeoutInMilliseconds(),
+                    collectionProperties.getBudgetInMilliseconds());
+        }
+        // a dedicated pool, so that slow actors cannot take threads away from actor messages
+        ExecutorService executor = collectionProperties.getParallelism() > 0
+                ? new ForkJoinPool(collectionProperties.getParallelism())
+                : null;
+        return new ActorInfoCollector(executor,
+                collectionProperties.getMaxInFlight(),
+                collectionProperties.getActorTimeoutInMilliseconds(),
+                collectionProperties.getBudgetInMilliseconds());
     }
 
     @ConfigurationProperties(prefix = "management.info.actors.group")
@@ -103,4 +150,172 @@ public class ActorInfoContributorConfiguration
             NONE, INTERFACE, IDENTITY
         }
     }
+
+    @ConfigurationProperties(prefix = "management.info.actors.cache")
+    static class CacheProperties
+    {
+        private long maxAgeInMilliseconds;
+        private long actorMaxAgeInMilliseconds = 60000;
+
+        public long getMaxAgeInMilliseconds()
+        {
+            return maxAgeInMilliseconds;
+        }
+
+        public void setMaxAgeInMilliseconds(final long maxAgeInMilliseconds)
+        {
+            this.maxAgeInMilliseconds = maxAgeInMilliseconds;
+        }
+
+        public long getActorMaxAgeInMilliseconds()
+        {
+            return actorMaxAgeInMilliseconds;
+        }
+
+        public void setActorMaxAgeInMilliseconds(final long actorMaxAgeInMilliseconds)
+        {
+            this.actorMaxAgeInMilliseconds = actorMaxAgeInMilliseconds;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "CacheProperties{" +
+                    "maxAgeInMilliseconds=" + maxAgeInMilliseconds +
+                    ", actorMaxAgeInMilliseconds=" + actorMaxAgeInMilliseconds +
+                    '}';
+        }
+    }
+
+    @ConfigurationProperties(prefix = "management.info.actors.collection")
+    static class CollectionProperties
+    {
+        private Dispatch dispatch = Dispatch.DIRECT;
+        private int maxInFlight = ActorInfoCollector.DEFAULT_MAX_IN_FLIGHT;
+        private int parallelism;
+        private long actorTimeoutInMilliseconds;
+        private long budgetInMilliseconds;
+
+        public Dispatch getDispatch()
+        {
+            return dispatch;
+        }
+
+        public void setDispatch(final Dispatch dispatch)
+        {
+            this.dispatch = dispatch;
+        }
+
+        public int getMaxInFlight()
+        {
+            return maxInFlight;
+        }
+
+        public void setMaxInFlight(final int maxInFlight)
+        {
+            this.maxInFlight = maxInFlight;
+        }
+
+        public int getParallelism()
+        {
+            return parallelism;
+        }
+
+        public void setParallelism(final int parallelism)
+        {
+            this.parallelism = parallelism;
+        }
+
+        public long getActorTimeoutInMilliseconds()
+        {
+            return actorTimeoutInMilliseconds;
+        }
+
+        public void setActorTimeoutInMilliseconds(final long actorTimeoutInMilliseconds)
+        {
+            this.actorTimeoutInMilliseconds = actorTimeoutInMilliseconds;
+        }
+
+        public long getBudgetInMilliseconds()
+        {
+            return budgetInMilliseconds;
+        }
+
+        public void setBudgetInMilliseconds(final long budgetInMilliseconds)
+        {
+            this.budgetInMilliseconds = budgetInMilliseconds;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "CollectionProperties{" +
+                    "dispatch=" + dispatch +
+                    ", maxInFlight=" + maxInFlight +
+                    ", parallelism=" + parallelism +
+                    ", actorTimeoutInMilliseconds=" + actorTimeoutInMilliseconds +
+                    ", budgetInMilliseconds=" + budgetInMilliseconds +
+                    '}';
+        }
+
+        enum Dispatch
+        {
+            /**
+             * Calls into the actors from the collecting thread.
+             */
+            DIRECT,
+            /**
+             * Queues the calls in each actor's own execution, so they never run concurrently with its messages.
+             */
+            ACTOR_EXECUTION
+        }
+    }
+
+    @ConfigurationProperties(prefix = "management.info.actors.executor")
+    static class ExecutorProperties
+    {
+        private int poolSize = 1;
+        private int queueCapacity = 10000;
+        private int batchSize = 1000;
+
+        public int getPoolSize()
+        {
+            return poolSize;
+        }
+
+        public void setPoolSize(final int poolSize)
+        {
+            this.poolSize = poolSize;
+        }
+
+        public int getQueueCapacity()
+        {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(final int queueCapacity)
+        {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getBatchSize()
+        {
+            return batchSize;
+        }
+
+        public void setBatchSize(final int batchSize)
+        {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "ExecutorProperties{" +
+                    "poolSize=" + poolSize +
+                    ", queueCapacity=" + queueCapacity +
+                    ", batchSize=" + batchSize +
+                    '}';
+        }
+    }
 }
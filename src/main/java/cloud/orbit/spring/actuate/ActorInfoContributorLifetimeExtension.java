@@ -36,8 +36,11 @@ import org.springframework.boot.actuate.info.InfoContributor;
 import cloud.orbit.actors.runtime.AbstractActor;
 import cloud.orbit.concurrent.Task;
 
+import java.time.Clock;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -47,40 +50,101 @@ public class ActorInfoContributorLifetimeExtension extends AsyncLifetimeExtensio
 
     private final Function<AbstractActor, Class> actorTypeResolver;
     private final ActorInfoDetailsContainer actorInfoDetailsContainer;
-    private final Set<ActorInfoContributorReference> actorInfoContributorReferences = new HashSet<>();
+    // Lifecycle events and scrapes never wait on each other: scrapes iterate a weakly consistent view of the registry
+    private final Set<ActorInfoContributorReference> actorInfoContributorReferences = ConcurrentHashMap.newKeySet();
+    // activations and deactivations since the cached snapshot was last refreshed
+    private final Set<ActorInfoContributorReference> activatedSinceRefresh = ConcurrentHashMap.newKeySet();
+    private final Set<ActorInfoContributorReference> deactivatedSinceRefresh = ConcurrentHashMap.newKeySet();
+    private final long detailsMaxAgeMillis;
+    private final long actorDetailsMaxAgeMillis;
+    private final Clock clock;
+    private final ActorInfoCollector actorInfoCollector;
+    private volatile DetailsSnapshot cachedSnapshot;
 
     ActorInfoContributorLifetimeExtension(final Function<AbstractActor, Class> actorTypeResolver,
                                           final ActorInfoDetailsContainer actorInfoDetailsContainer,
                                           final Executor executor)
     {
-        super(executor);
+        this(actorTypeResolver, actorInfoDetailsContainer, executor, 0, Clock.systemUTC(), new ActorInfoCollector());
+    }
+
+    /**
+     * @param detailsMaxAgeMillis how long the assembled snapshot is served from cache. Zero or less collects everything
+     *                            on every scrape. Each actor's details are kept until it is deactivated.
+     * @param actorInfoCollector  decides how actors are asked for their details and how long a scrape may take
+     */
+    ActorInfoContributorLifetimeExtension(final Function<AbstractActor, Class> actorTypeResolver,
+                                          final ActorInfoDetailsContainer actorInfoDetailsContainer,
+                                          final Executor executor,
+                                          final long detailsMaxAgeMillis,
+                                          final Clock clock,
+                                          final ActorInfoCollector actorInfoCollector)
+    {
+        this(actorTypeResolver, actorInfoDetailsContainer, executor, 0, DEFAULT_MAX_QUEUED_EVENTS, detailsMaxAgeMillis,
+                0, clock, actorInfoCollector);
+    }
+
+    /**
+     * @param batchSize                the most registry updates handled by one executor job, or zero for one job per
+     *                                 update
+     * @param maxQueuedUpdates         the most registry updates waiting for a job when batching, beyond which they
+     *                                 are dropped
+     * @param actorDetailsMaxAgeMillis how long an actor's details are kept before it is asked again when the snapshot
+     *                                 is refreshed, or zero to keep them until the actor is deactivated. Only applies
+     *                                 when the snapshot is cached.
+     */
+    ActorInfoContributorLifetimeExtension(final Function<AbstractActor, Class> actorTypeResolver,
+                                          final ActorInfoDetailsContainer actorInfoDetailsContainer,
+                                          final Executor executor,
+                                          final int batchSize,
+                                          final int maxQueuedUpdates,
+                                          final long detailsMaxAgeMillis,
+                                          final long actorDetailsMaxAgeMillis,
+                                          final Clock clock,
+                                          final ActorInfoCollector actorInfoCollector)
+    {
+        super(executor, batchSize, maxQueuedUpdates);
         this.actorTypeResolver = actorTypeResolver;
         this.actorInfoDetailsContainer = actorInfoDetailsContainer;
+        this.detailsMaxAgeMillis = detailsMaxAgeMillis;
+        this.actorDetailsMaxAgeMillis = actorDetailsMaxAgeMillis > 0 ? actorDetailsMaxAgeMillis : Long.MAX_VALUE;
+        this.clock = clock;
+        this.actorInfoCollector = actorInfoCollector;
     }
 
     @Override
     public Task<?> postActivationAsync(final AbstractActor<?> actor)
     {
-        return doIfInfoContributor(actor, actorInfoContributorReferences::add);
+        return doIfInfoContributor(actor, reference ->
+        {
+            actorInfoContributorReferences.add(reference);
+            if (detailsMaxAgeMillis > 0)
+            {
+                activatedSinceRefresh.add(reference);
+            }
+        });
     }
 
     @Override
     public Task<?> postDeactivationAsync(final AbstractActor<?> actor)
     {
-        return doIfInfoContributor(actor, actorInfoContributorReferences::remove);
+        return doIfInfoContributor(actor, reference ->
+        {
+            actorInfoContributorReferences.remove(reference);
+            if (detailsMaxAgeMillis > 0)
+            {
+                activatedSinceRefresh.remove(reference);
+                deactivatedSinceRefresh.add(reference);
+            }
+        });
     }
 
     private Task<?> doIfInfoContributor(final AbstractActor<?> actor,
-                                        final Consumer<ActorInfoContributorReference> synchronizedAction)
+                                        final Consumer<ActorInfoContributorReference> action)
     {
         if (actor instanceof InfoContributor)
         {
-            ActorInfoContributorReference actorInfoContributorReference =
-                    new ActorInfoContributorReference(actorTypeResolver, actor);
-            synchronized (actorInfoContributorReferences)
-            {
-                synchronizedAction.accept(actorInfoContributorReference);
-            }
+            action.accept(new ActorInfoContributorReference(actorTypeResolver, actor));
         }
         return Task.done();
     }
@@ -88,31 +152,164 @@ public class ActorInfoContributorLifetimeExtension extends AsyncLifetimeExtensio
     @Override
     public void contribute(final Info.Builder builder)
     {
-        populateActorInfoContainerWhileRemovingExpiredReferences();
-        Map<String, Object> details = actorInfoDetailsContainer.getDetailsSnapshot();
-        if (!details.isEmpty())
+        DetailsSnapshot snapshot = detailsMaxAgeMillis > 0 ? getCachedDetailsSnapshot() : getDetailsSnapshot();
+        if (!snapshot.details.isEmpty())
+        {
+            builder.withDetail("actors", snapshot.details);
+        }
+        if (snapshot.collectionStatus != null)
         {
-            builder.withDetail("actors", details);
+            builder.withDetail("actorsCollection", snapshot.collectionStatus);
         }
     }
 
-    private void populateActorInfoContainerWhileRemovingExpiredReferences()
+    /**
+     * A weakly consistent, read-only view of the actors currently registered as info contributors.
+     */
+    Collection<ActorInfoContributorReference> getActorInfoContributorReferences()
     {
-        synchronized (actorInfoContributorReferences)
+        return Collections.unmodifiableSet(actorInfoContributorReferences);
+    }
+
+    /**
+     * Collects the details of some of the actors through the {@link ActorInfoCollector}, so that its dispatch, its
+     * per-actor timeout and its budget apply just as they do to a scrape. Details come from cache when caching is
+     * enabled. Expired references are dropped from the registry and left out.
+     */
+    ActorInfoCollector.Result collectDetails(final Collection<ActorInfoContributorReference> references,
+                                             final BiConsumer<ActorInfoContributorReference, Map<String, Object>> sink)
+    {
+        long now = clock.millis();
+        ActorInfoCollector.Result result = actorInfoCollector.collect(references, detailsMaxAgeMillis > 0
+                ? reference -> reference.getCachedDetails(now, actorDetailsMaxAgeMillis)
+                : ActorInfoContributorReference::collectDetails, sink);
+        for (ActorInfoContributorReference expired : result.getExpired())
         {
-            for (Iterator<ActorInfoContributorReference> it = actorInfoContributorReferences.iterator(); it.hasNext(); )
+            log.debug("Lost reference to actor {}", expired);
+            actorInfoContributorReferences.remove(expired);
+        }
+        return result;
+    }
+
+    private DetailsSnapshot getDetailsSnapshot()
+    {
+        // Only concurrent scrapes are serialized, so that each one gets a complete snapshot
+        synchronized (actorInfoDetailsContainer)
+        {
+            ActorInfoCollector.Result result = populateActorInfoContainerWhileRemovingExpiredReferences(
+                    ActorInfoContributorReference::collectDetails);
+            return new DetailsSnapshot(actorInfoDetailsContainer.getDetailsSnapshot(), result.getStatus(),
+                    clock.millis());
+        }
+    }
+
+    private DetailsSnapshot getCachedDetailsSnapshot()
+    {
+        DetailsSnapshot snapshot = cachedSnapshot;
+        if (snapshot != null && !snapshot.isOlderThan(clock.millis(), detailsMaxAgeMillis))
+        {
+            return snapshot;
+        }
+        synchronized (actorInfoDetailsContainer)
+        {
+            long now = clock.millis();
+            snapshot = cachedSnapshot;
+            if (snapshot == null || snapshot.isOlderThan(now, detailsMaxAgeMillis))
             {
-                try
+                ActorInfoCollector.Result result = refreshChangedActorDetails(now);
+                snapshot = new DetailsSnapshot(actorInfoDetailsContainer.getIncrementalSnapshot(),
+                        result.getStatus(), now);
+                // an incomplete snapshot is not cached, so the actors it misses are asked again by the next scrape
+                cachedSnapshot = result.isComplete() ? snapshot : null;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Drops the details of the actors deactivated since the last refresh, and only asks the actors activated since
+     * then, or whose details are older than their own max age, for their details.
+     */
+    private ActorInfoCollector.Result refreshChangedActorDetails(final long now)
+    {
+        for (Iterator<ActorInfoContributorReference> i = deactivatedSinceRefresh.iterator(); i.hasNext(); )
+        {
+            actorInfoDetailsContainer.removeActorDetails(i.next());
+            i.remove();
+        }
+        Set<ActorInfoContributorReference> changed = new LinkedHashSet<>();
+        for (Iterator<ActorInfoContributorReference> i = activatedSinceRefresh.iterator(); i.hasNext(); )
+        {
+            changed.add(i.next());
+            i.remove();
+        }
+        if (actorDetailsMaxAgeMillis != Long.MAX_VALUE)
+        {
+            for (ActorInfoContributorReference reference : actorInfoContributorReferences)
+            {
+                if (!reference.hasFreshDetails(now, actorDetailsMaxAgeMillis))
                 {
-                    ActorInfoContributorReference actor = it.next();
-                    actorInfoDetailsContainer.mergeDetailsFrom(actor);
+                    changed.add(reference);
                 }
-                catch (ActorInfoContributorReference.ExpiredReferenceException e)
+            }
+        }
+        Set<ActorInfoContributorReference> collected = new HashSet<>();
+        ActorInfoCollector.Result result = actorInfoCollector.collect(changed,
+                reference -> reference.refreshDetails(now),
+                (reference, details) ->
                 {
-                    log.debug("Lost reference to actor", e);
-                    it.remove();
-                }
+                    collected.add(reference);
+                    actorInfoDetailsContainer.putActorDetails(reference, details);
+                });
+        for (ActorInfoContributorReference expired : result.getExpired())
+        {
+            log.debug("Lost reference to actor {}", expired);
+            actorInfoContributorReferences.remove(expired);
+            actorInfoDetailsContainer.removeActorDetails(expired);
+            changed.remove(expired);
+        }
+        // actors left out by a timeout or the budget are asked again on the next refresh
+        for (ActorInfoContributorReference reference : changed)
+        {
+            if (!collected.contains(reference) && actorInfoContributorReferences.contains(reference))
+            {
+                activatedSinceRefresh.add(reference);
             }
         }
+        return result;
+    }
+
+    private ActorInfoCollector.Result populateActorInfoContainerWhileRemovingExpiredReferences(
+            final Function<ActorInfoContributorReference, Map<String, Object>> detailsFunction)
+    {
+        ActorInfoCollector.Result result = actorInfoCollector.collect(actorInfoContributorReferences, detailsFunction,
+                actorInfoDetailsContainer::mergeDetails);
+        for (ActorInfoContributorReference expired : result.getExpired())
+        {
+            log.debug("Lost reference to actor {}", expired);
+            actorInfoContributorReferences.remove(expired);
+        }
+        return result;
+    }
+
+    private static class DetailsSnapshot
+    {
+        private final Map<String, Object> details;
+        private final Map<String, Object> collectionStatus;
+        private final long takenAtMillis;
+
+        private DetailsSnapshot(final Map<String, Object> details,
+                                final Map<String, Object> collectionStatus,
+                                final long takenAtMillis)
+        {
+            this.details = details;
+            this.collectionStatus = collectionStatus;
+            this.takenAtMillis = takenAtMillis;
+        }
+
+        private boolean isOlderThan(final long nowMillis, final long maxAgeMillis)
+        {
+            return nowMillis - takenAtMillis >= maxAgeMillis;
+        }
     }
 }
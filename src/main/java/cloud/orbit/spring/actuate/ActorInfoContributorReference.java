@@ -28,12 +28,14 @@
 
 package cloud.orbit.spring.actuate;
 
+import org.springframework.boot.actuate.info.Info;
 import org.springframework.boot.actuate.info.InfoContributor;
 
 import cloud.orbit.actors.Actor;
 import cloud.orbit.actors.runtime.AbstractActor;
 
 import java.lang.ref.WeakReference;
+import java.util.Map;
 import java.util.function.Function;
 
 class ActorInfoContributorReference
@@ -41,6 +43,7 @@ class ActorInfoContributorReference
     private final WeakReference<InfoContributor> reference;
     private final String name;
     private final String identity;
+    private volatile CachedDetails cachedDetails;
 
     ActorInfoContributorReference(final Function<AbstractActor, Class> actorTypeResolver, final AbstractActor<?> actor)
     {
@@ -76,6 +79,46 @@ class ActorInfoContributorReference
         return infoContributor;
     }
 
+    Map<String, Object> collectDetails()
+    {
+        Info.Builder builder = new Info.Builder();
+        getInfoContributor().contribute(builder);
+        return builder.build().getDetails();
+    }
+
+    /**
+     * Collects the details and keeps them, with the time they were collected at.
+     */
+    Map<String, Object> refreshDetails(final long nowMillis)
+    {
+        Map<String, Object> details = collectDetails();
+        cachedDetails = new CachedDetails(details, nowMillis);
+        return details;
+    }
+
+    /**
+     * Whether details kept by {@link #refreshDetails} are younger than maxAgeMillis.
+     */
+    boolean hasFreshDetails(final long nowMillis, final long maxAgeMillis)
+    {
+        CachedDetails cached = cachedDetails;
+        return cached != null && nowMillis - cached.collectedAtMillis < maxAgeMillis;
+    }
+
+    /**
+     * Returns the details kept by {@link #refreshDetails} if they are younger than maxAgeMillis, otherwise collects
+     * them without keeping them.
+     */
+    Map<String, Object> getCachedDetails(final long nowMillis, final long maxAgeMillis)
+    {
+        CachedDetails cached = cachedDetails;
+        if (cached != null && nowMillis - cached.collectedAtMillis < maxAgeMillis)
+        {
+            return cached.details;
+        }
+        return collectDetails();
+    }
+
     String getName()
     {
         return name;
@@ -86,9 +129,21 @@ class ActorInfoContributorReference
         return identity;
     }
 
+    private static class CachedDetails
+    {
+        private final Map<String, Object> details;
+        private final long collectedAtMillis;
+
+        private CachedDetails(final Map<String, Object> details, final long collectedAtMillis)
+        {
+            this.details = details;
+            this.collectedAtMillis = collectedAtMillis;
+        }
+    }
+
     static class ExpiredReferenceException extends RuntimeException
     {
-        private ExpiredReferenceException(final ActorInfoContributorReference reference)
+        ExpiredReferenceException(final ActorInfoContributorReference reference)
         {
             super(reference.toString());
         }
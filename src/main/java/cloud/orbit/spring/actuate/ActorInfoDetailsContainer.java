@@ -28,8 +28,6 @@
 
 package cloud.orbit.spring.actuate;
 
-import org.springframework.boot.actuate.info.Info;
-
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -38,6 +36,11 @@ class ActorInfoDetailsContainer
 {
     private final List<Function<ActorInfoContributorReference, String>> detailLevelHandlers = new ArrayList<>();
     private final Map<String, Object> details = new HashMap<>();
+    // the per-actor details of the cached snapshot, by first level group
+    private final Map<String, Map<ActorInfoContributorReference, Map<String, Object>>> actorDetailsByGroup =
+            new HashMap<>();
+    private final Set<String> changedGroups = new HashSet<>();
+    private Map<String, Object> incrementalSnapshot = Collections.emptyMap();
 
     ActorInfoDetailsContainer(ActorInfoContributorConfiguration.GroupProperties groupProperties)
     {
@@ -59,19 +62,27 @@ class ActorInfoDetailsContainer
         return Optional.empty();
     }
 
-    synchronized void mergeDetailsFrom(ActorInfoContributorReference actorInfoContributorReference)
+    synchronized void mergeDetails(ActorInfoContributorReference actorInfoContributorReference,
+                                   Map<String, Object> actorDetails)
+    {
+        merge(details, actorInfoContributorReference, actorDetails, 0);
+    }
+
+    private void merge(final Map<String, Object> target,
+                       final ActorInfoContributorReference actorInfoContributorReference,
+                       final Map<String, Object> actorDetails,
+                       final int fromLevel)
     {
-        Info.Builder builder = new Info.Builder();
-        actorInfoContributorReference.getInfoContributor().contribute(builder);
-        Map<String, Object> whereToPutDetails = details;
-        for (Function<ActorInfoContributorReference, String> handler: detailLevelHandlers)
+        Map<String, Object> whereToPutDetails = target;
+        for (Function<ActorInfoContributorReference, String> handler :
+                detailLevelHandlers.subList(fromLevel, detailLevelHandlers.size()))
         {
             String key = handler.apply(actorInfoContributorReference);
             whereToPutDetails.putIfAbsent(key, new HashMap<String, Object>());
             //noinspection unchecked
             whereToPutDetails = (Map<String, Object>) whereToPutDetails.get(key);
         }
-        whereToPutDetails.putAll(builder.build().getDetails());
+        whereToPutDetails.putAll(actorDetails);
     }
 
     synchronized Map<String, Object> getDetailsSnapshot()
@@ -80,4 +91,90 @@ class ActorInfoDetailsContainer
         details.clear();
         return detailsCopy;
     }
+
+    /**
+     * Keeps the latest details of an actor for {@link #getIncrementalSnapshot()}. Details equal to the ones already
+     * kept do not change the snapshot.
+     */
+    synchronized void putActorDetails(final ActorInfoContributorReference actorInfoContributorReference,
+                                      final Map<String, Object> actorDetails)
+    {
+        String group = groupOf(actorInfoContributorReference);
+        Map<ActorInfoContributorReference, Map<String, Object>> members =
+                actorDetailsByGroup.computeIfAbsent(group, key -> new LinkedHashMap<>());
+        if (!actorDetails.equals(members.put(actorInfoContributorReference, actorDetails)))
+        {
+            changedGroups.add(group);
+        }
+    }
+
+    synchronized void removeActorDetails(final ActorInfoContributorReference actorInfoContributorReference)
+    {
+        String group = groupOf(actorInfoContributorReference);
+        Map<ActorInfoContributorReference, Map<String, Object>> members = actorDetailsByGroup.get(group);
+        if (members != null && members.remove(actorInfoContributorReference) != null)
+        {
+            changedGroups.add(group);
+            if (members.isEmpty())
+            {
+                actorDetailsByGroup.remove(group);
+            }
+        }
+    }
+
+    /**
+     * An immutable view of the details kept by {@link #putActorDetails}. Only the first level groups whose actors
+     * changed since the previous call are assembled again, the others are shared with the previous snapshot.
+     */
+    synchronized Map<String, Object> getIncrementalSnapshot()
+    {
+        if (changedGroups.isEmpty())
+        {
+            return incrementalSnapshot;
+        }
+        Map<String, Object> snapshot;
+        if (detailLevelHandlers.isEmpty())
+        {
+            // ungrouped details of all actors are merged together, so there is a single group to assemble
+            snapshot = new HashMap<>();
+            for (Map<ActorInfoContributorReference, Map<String, Object>> members : actorDetailsByGroup.values())
+            {
+                members.values().forEach(snapshot::putAll);
+            }
+        }
+        else
+        {
+            snapshot = new HashMap<>(incrementalSnapshot);
+            for (String group : changedGroups)
+            {
+                Map<ActorInfoContributorReference, Map<String, Object>> members = actorDetailsByGroup.get(group);
+                if (members == null)
+                {
+                    snapshot.remove(group);
+                    continue;
+                }
+                Map<String, Object> groupDetails = new HashMap<>();
+                members.forEach((reference, actorDetails) -> merge(groupDetails, reference, actorDetails, 1));
+                snapshot.put(group, immutableGroups(groupDetails, detailLevelHandlers.size() - 1));
+            }
+        }
+        changedGroups.clear();
+        incrementalSnapshot = Collections.unmodifiableMap(snapshot);
+        return incrementalSnapshot;
+    }
+
+    private String groupOf(final ActorInfoContributorReference actorInfoContributorReference)
+    {
+        return detailLevelHandlers.isEmpty() ? "" : detailLevelHandlers.get(0).apply(actorInfoContributorReference);
+    }
+
+    private static Map<String, Object> immutableGroups(final Map<String, Object> group, final int depth)
+    {
+        if (depth > 0)
+        {
+            //noinspection unchecked
+            group.replaceAll((key, value) -> immutableGroups((Map<String, Object>) value, depth - 1));
+        }
+        return Collections.unmodifiableMap(group);
+    }
 }
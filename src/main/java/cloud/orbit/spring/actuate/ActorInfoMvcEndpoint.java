@@ -0,0 +1,215 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package cloud.orbit.spring.actuate;
+
+import org.springframework.boot.actuate.endpoint.mvc.AbstractMvcEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Serves the info of active actors one page at a time, so that the memory needed for a request is bounded by the
+ * page size rather than by the number of actors on the node. Actors are ordered by interface and identity, can be
+ * filtered by prefix, and each response carries the cursor of the next page. Entries are streamed to the client as
+ * they are collected, through the same {@link ActorInfoCollector} as the info endpoint, so that its dispatch, timeout
+ * and budget also apply here.
+ */
+@ConfigurationProperties(prefix = "endpoints.actors")
+public class ActorInfoMvcEndpoint extends AbstractMvcEndpoint
+{
+    private static final Comparator<ActorInfoContributorReference> ORDER =
+            Comparator.comparing(ActorInfoContributorReference::getName)
+                    .thenComparing(reference -> String.valueOf(reference.getIdentity()));
+
+    private final ActorInfoContributorLifetimeExtension actorInfoContributorLifetimeExtension;
+    private final ObjectMapper objectMapper;
+    private int defaultLimit = 100;
+    private int maxLimit = 1000;
+
+    public ActorInfoMvcEndpoint(final ActorInfoContributorLifetimeExtension actorInfoContributorLifetimeExtension,
+                                final ObjectMapper objectMapper)
+    {
+        super("/actors", true);
+        this.actorInfoContributorLifetimeExtension = actorInfoContributorLifetimeExtension;
+        this.objectMapper = objectMapper;
+    }
+
+    @RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+    public void actors(@RequestParam(required = false) final String interfacePrefix,
+                       @RequestParam(required = false) final String identityPrefix,
+                       @RequestParam(required = false) final String cursor,
+                       @RequestParam(required = false) final Integer limit,
+                       final HttpServletResponse response) throws IOException
+    {
+        if (!isEnabled())
+        {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        int pageSize = Math.max(1, Math.min(limit != null ? limit : defaultLimit, maxLimit));
+        List<ActorInfoContributorReference> page = selectPage(interfacePrefix, identityPrefix, cursor, pageSize + 1);
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore)
+        {
+            page = page.subList(0, pageSize);
+        }
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("actors");
+        ActorInfoCollector.Result result;
+        try
+        {
+            result = actorInfoContributorLifetimeExtension.collectDetails(page, (reference, details) ->
+                    writeActor(generator, reference, details));
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        generator.writeEndArray();
+        if (hasMore)
+        {
+            generator.writeStringField("next", toCursor(page.get(page.size() - 1)));
+        }
+        if (result.getStatus() != null)
+        {
+            generator.writeObjectField("collection", result.getStatus());
+        }
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    private static void writeActor(final JsonGenerator generator,
+                                   final ActorInfoContributorReference reference,
+                                   final Map<String, Object> details)
+    {
+        try
+        {
+            generator.writeStartObject();
+            generator.writeStringField("interface", reference.getName());
+            generator.writeStringField("identity", reference.getIdentity());
+            generator.writeObjectField("details", details);
+            generator.writeEndObject();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Keeps only the first {@code size} matching references in a bounded heap while walking the registry.
+     */
+    private List<ActorInfoContributorReference> selectPage(final String interfacePrefix,
+                                                           final String identityPrefix,
+                                                           final String cursor,
+                                                           final int size)
+    {
+        PriorityQueue<ActorInfoContributorReference> firstMatches = new PriorityQueue<>(size + 1, ORDER.reversed());
+        for (ActorInfoContributorReference reference : actorInfoContributorLifetimeExtension
+                .getActorInfoContributorReferences())
+        {
+            if (matches(reference, interfacePrefix, identityPrefix) && isAfterCursor(reference, cursor))
+            {
+                firstMatches.add(reference);
+                if (firstMatches.size() > size)
+                {
+                    firstMatches.poll();
+                }
+            }
+        }
+        List<ActorInfoContributorReference> page = new ArrayList<>(firstMatches);
+        page.sort(ORDER);
+        return page;
+    }
+
+    private static boolean matches(final ActorInfoContributorReference reference,
+                                   final String interfacePrefix,
+                                   final String identityPrefix)
+    {
+        return (interfacePrefix == null || reference.getName().startsWith(interfacePrefix))
+                && (identityPrefix == null || String.valueOf(reference.getIdentity()).startsWith(identityPrefix));
+    }
+
+    private static boolean isAfterCursor(final ActorInfoContributorReference reference, final String cursor)
+    {
+        if (cursor == null)
+        {
+            return true;
+        }
+        // interface names cannot contain ':', identities can
+        int separator = cursor.indexOf(':');
+        String name = separator < 0 ? cursor : cursor.substring(0, separator);
+        String identity = separator < 0 ? "" : cursor.substring(separator + 1);
+        int byName = reference.getName().compareTo(name);
+        return byName > 0 || byName == 0 && String.valueOf(reference.getIdentity()).compareTo(identity) > 0;
+    }
+
+    private static String toCursor(final ActorInfoContributorReference reference)
+    {
+        return reference.getName() + ":" + reference.getIdentity();
+    }
+
+    public int getDefaultLimit()
+    {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(final int defaultLimit)
+    {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public int getMaxLimit()
+    {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(final int maxLimit)
+    {
+        this.maxLimit = maxLimit;
+    }
+}
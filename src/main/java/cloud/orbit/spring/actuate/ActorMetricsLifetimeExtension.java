@@ -0,0 +1,96 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import cloud.orbit.actors.extensions.LifetimeExtension;
+import cloud.orbit.actors.runtime.AbstractActor;
+import cloud.orbit.concurrent.Task;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Counts activations and deactivations, in total and per actor interface. Recording only increments striped counters,
+ * so it does not allocate or contend once an interface has been seen.
+ */
+class ActorMetricsLifetimeExtension implements LifetimeExtension
+{
+    private final Function<AbstractActor, Class> actorTypeResolver;
+    private final Map<Class, LongAdder> activeActorsByInterface = new ConcurrentHashMap<>();
+    private final LongAdder activations = new LongAdder();
+    private final LongAdder deactivations = new LongAdder();
+
+    ActorMetricsLifetimeExtension(final Function<AbstractActor, Class> actorTypeResolver)
+    {
+        this.actorTypeResolver = actorTypeResolver;
+    }
+
+    @Override
+    public Task<?> postActivation(final AbstractActor<?> actor)
+    {
+        activations.increment();
+        getActiveActors(actor).increment();
+        return Task.done();
+    }
+
+    @Override
+    public Task<?> postDeactivation(final AbstractActor<?> actor)
+    {
+        deactivations.increment();
+        getActiveActors(actor).decrement();
+        return Task.done();
+    }
+
+    private LongAdder getActiveActors(final AbstractActor<?> actor)
+    {
+        Class actorInterface = actorTypeResolver.apply(actor);
+        // get first: computeIfAbsent locks the bin even when the key is present
+        LongAdder activeActors = activeActorsByInterface.get(actorInterface);
+        return activeActors != null
+                ? activeActors
+                : activeActorsByInterface.computeIfAbsent(actorInterface, key -> new LongAdder());
+    }
+
+    long getActivations()
+    {
+        return activations.sum();
+    }
+
+    long getDeactivations()
+    {
+        return deactivations.sum();
+    }
+
+    void forEachActiveActorCount(final BiConsumer<Class, Long> consumer)
+    {
+        activeActorsByInterface.forEach((actorInterface, count) -> consumer.accept(actorInterface, count.sum()));
+    }
+}
@@ -25,7 +25,6 @@
  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
-
 package cloud.orbit.spring.actuate;
 
 import org.slf4j.Logger;
@@ -34,37 +33,85 @@ import org.slf4j.LoggerFactory;
 import cloud.orbit.actors.extensions.LifetimeExtension;
 import cloud.orbit.actors.runtime.AbstractActor;
 import cloud.orbit.concurrent.Task;
+import cloud.orbit.spring.LowPriorityTask;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Provides hooks for an actor's activation and deactivation that are visited asynchronously, separate from the main
  * lifecycle of the actor. Use this abstract class for expensive actor processing so that it does not block the
  * activation and deactivation of an actor. Warning: Due to its asynchronous nature, there is no guarantee that the
  * async hooks are called.
+ * <p>
+ * By default every event is submitted to the executor as its own job. In batching mode, events are queued instead and
+ * a single job at a time drains them in batches; an activation and a deactivation of the same actor within one batch
+ * cancel out, and neither hook is called for them. At most {@code maxQueuedEvents} events wait in the queue; further
+ * events are dropped and counted until the queue drains.
+ * <p>
+ * The executor may reject jobs by throwing a {@link RejectedExecutionException}. A rejected event is skipped, while a
+ * rejected drain job leaves its events queued until the next event schedules another one.
  */
 public abstract class AsyncLifetimeExtension implements LifetimeExtension
 {
     private static final Logger log = LoggerFactory.getLogger(AsyncLifetimeExtension.class);
+    public static final int DEFAULT_MAX_QUEUED_EVENTS = 10000;
     private final Executor executor;
+    private final int batchSize;
+    private final int maxQueuedEvents;
+    private final Queue<LifetimeEvent> events = new ConcurrentLinkedQueue<>();
+    // the size of events, which a ConcurrentLinkedQueue can only count by walking it
+    private final AtomicInteger queuedEvents = new AtomicInteger();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Drainer drainer = new Drainer();
+    private final LongAdder coalescedEvents = new LongAdder();
 
     public AsyncLifetimeExtension(final Executor executor)
+    {
+        this(executor, 0);
+    }
+
+    /**
+     * @param batchSize the most events handled by one job in batching mode, or zero to submit a job per event
+     */
+    public AsyncLifetimeExtension(final Executor executor, final int batchSize)
+    {
+        this(executor, batchSize, DEFAULT_MAX_QUEUED_EVENTS);
+    }
+
+    /**
+     * @param batchSize       the most events handled by one job in batching mode, or zero to submit a job per event
+     * @param maxQueuedEvents the most events waiting for a job in batching mode, beyond which events are dropped
+     */
+    public AsyncLifetimeExtension(final Executor executor, final int batchSize, final int maxQueuedEvents)
     {
         this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxQueuedEvents = maxQueuedEvents;
     }
 
     @Override
     public Task<?> postActivation(final AbstractActor<?> actor)
     {
-        executor.execute(new AsyncJob(actor, true));
+        submit(new LifetimeEvent(actor, true));
         return Task.done();
     }
 
     @Override
     public Task<?> postDeactivation(final AbstractActor<?> actor)
     {
-        executor.execute(new AsyncJob(actor, false));
+        submit(new LifetimeEvent(actor, false));
         return Task.done();
     }
 
@@ -72,11 +119,137 @@ public abstract class AsyncLifetimeExtension implements LifetimeExtension
 
     protected abstract Task postDeactivationAsync(final AbstractActor<?> actor);
 
-    private class AsyncJob implements Runnable {
+    /**
+     * The number of events that were never handled because they cancelled out with another event in their batch.
+     */
+    public long getCoalescedEventCount()
+    {
+        return coalescedEvents.sum();
+    }
+
+    /**
+     * The number of events dropped in batching mode because {@code maxQueuedEvents} were already waiting.
+     */
+    public long getDroppedEventCount()
+    {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * The number of events waiting for a job in batching mode.
+     */
+    public int getQueuedEventCount()
+    {
+        return queuedEvents.get();
+    }
+
+    private void submit(final LifetimeEvent event)
+    {
+        if (batchSize <= 0)
+        {
+            try
+            {
+                executor.execute(event);
+            }
+            catch (RejectedExecutionException e)
+            {
+                log.debug("Executor is saturated. Skipping background lifecycle handling.");
+            }
+            return;
+        }
+        if (queuedEvents.incrementAndGet() > maxQueuedEvents)
+        {
+            queuedEvents.decrementAndGet();
+            droppedEvents.increment();
+            log.debug("Event queue is full. Skipping background lifecycle handling.");
+            scheduleDrain();
+            return;
+        }
+        events.offer(event);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain()
+    {
+        if (!events.isEmpty() && drainScheduled.compareAndSet(false, true))
+        {
+            try
+            {
+                executor.execute(drainer);
+            }
+            catch (RejectedExecutionException e)
+            {
+                // the events stay queued, and the next event tries to schedule the drain again
+                drainScheduled.set(false);
+                log.debug("Executor is saturated. Postponing background lifecycle handling.");
+            }
+        }
+    }
+
+    private void drainBatch()
+    {
+        List<LifetimeEvent> batch = new ArrayList<>(Math.min(batchSize, 1024));
+        Map<AbstractActor<?>, Integer> pendingActivations = new IdentityHashMap<>();
+        LifetimeEvent event;
+        while (batch.size() < batchSize && (event = events.poll()) != null)
+        {
+            queuedEvents.decrementAndGet();
+            AbstractActor<?> actor = event.actorReference.get();
+            if (actor == null)
+            {
+                log.debug("Lost reference to actor. Skipping background lifecycle handling.");
+                continue;
+            }
+            Integer activationIndex = event.isActivation ? null : pendingActivations.remove(actor);
+            if (activationIndex != null)
+            {
+                batch.set(activationIndex, null);
+                coalescedEvents.add(2);
+                continue;
+            }
+            if (event.isActivation)
+            {
+                pendingActivations.put(actor, batch.size());
+            }
+            batch.add(event);
+        }
+        for (LifetimeEvent batchedEvent : batch)
+        {
+            if (batchedEvent != null)
+            {
+                batchedEvent.run();
+            }
+        }
+    }
+
+    /**
+     * Never a {@link LowPriorityTask}: while it is queued no other drain is scheduled, so dropping it from a queue
+     * would strand every queued event.
+     */
+    private class Drainer implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            try
+            {
+                drainBatch();
+            }
+            finally
+            {
+                // yield to other jobs between batches, and pick up events offered while the flag was still set
+                drainScheduled.set(false);
+                scheduleDrain();
+            }
+        }
+    }
+
+    private class LifetimeEvent implements LowPriorityTask
+    {
         private final WeakReference<AbstractActor<?>> actorReference;
         private final boolean isActivation;
 
-        private AsyncJob(final AbstractActor<?> actor, final boolean isActivation)
+        private LifetimeEvent(final AbstractActor<?> actor, final boolean isActivation)
         {
             this.actorReference = new WeakReference<>(actor);
             this.isActivation = isActivation;
@@ -0,0 +1,97 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small, fixed pool of threads in front of a bounded queue, for background work such as
+ * {@link AsyncLifetimeExtension} jobs that must not take capacity away from actor messages. Its share of the CPU is
+ * bounded by its pool size alone: thread priorities are ignored by the default scheduler on Linux, so its threads run
+ * at normal priority. When the queue is full, new jobs are counted as dropped and rejected instead of blocking the
+ * caller.
+ * <p>
+ * Deliberately not an {@link java.util.concurrent.Executor}, so that it is never mistaken for the stage's executor when
+ * autowiring by type; pass {@code backgroundExecutor::execute} where an executor is needed.
+ */
+class BackgroundExecutor
+{
+    private static final Logger log = LoggerFactory.getLogger(BackgroundExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final LongAdder droppedJobs = new LongAdder();
+
+    BackgroundExecutor(final String threadNamePrefix, final int poolSize, final int queueCapacity)
+    {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, (job, pool) ->
+        {
+            droppedJobs.increment();
+            log.debug("Dropped background job, {} jobs queued", pool.getQueue().size());
+            throw new RejectedExecutionException("Background queue is full");
+        });
+    }
+
+    /**
+     * @throws RejectedExecutionException if the queue is full, after counting the job as dropped
+     */
+    void execute(final Runnable job)
+    {
+        executor.execute(job);
+    }
+
+    long getDroppedJobCount()
+    {
+        return droppedJobs.sum();
+    }
+
+    int getQueuedJobCount()
+    {
+        return executor.getQueue().size();
+    }
+
+    boolean isIdle()
+    {
+        return executor.getQueue().isEmpty() && executor.getActiveCount() == 0;
+    }
+
+    void shutdown()
+    {
+        executor.shutdownNow();
+    }
+}
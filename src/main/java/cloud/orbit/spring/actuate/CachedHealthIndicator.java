@@ -0,0 +1,162 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the health of another indicator from a value that a background thread refreshes at a fixed interval, so that
+ * frequent probes cost a volatile read rather than a health check each. The details tell how old the value is and how
+ * long the check took. With a hysteresis of more than one check, a new status is only reported once that many checks
+ * in a row agree on it, so that a single slow or failed check does not take the node out of rotation.
+ */
+class CachedHealthIndicator implements HealthIndicator
+{
+    private static final Logger log = LoggerFactory.getLogger(CachedHealthIndicator.class);
+
+    private final HealthIndicator delegate;
+    private final long refreshIntervalMillis;
+    private final int hysteresisChecks;
+    private final ScheduledExecutorService scheduler;
+    private volatile Snapshot snapshot;
+    private Status candidateStatus;
+    private int candidateChecks;
+
+    CachedHealthIndicator(final HealthIndicator delegate, final long refreshIntervalMillis, final int hysteresisChecks)
+    {
+        this.delegate = delegate;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.hysteresisChecks = Math.max(hysteresisChecks, 1);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "orbit-health-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void start()
+    {
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Inferred as the destroy method of the health indicator bean.
+     */
+    public void shutdown()
+    {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Runs the delegate's check and publishes its result, subject to the hysteresis. Only ever called by one thread at
+     * a time.
+     */
+    void refresh()
+    {
+        long start = System.nanoTime();
+        Health health;
+        try
+        {
+            health = delegate.health();
+        }
+        catch (RuntimeException e)
+        {
+            log.debug("Health check failed", e);
+            health = Health.down(e).build();
+        }
+        long end = System.nanoTime();
+
+        Snapshot previous = snapshot;
+        Status status = health.getStatus();
+        if (previous != null && !status.equals(previous.status))
+        {
+            candidateChecks = status.equals(candidateStatus) ? candidateChecks + 1 : 1;
+            candidateStatus = status;
+            if (candidateChecks < hysteresisChecks)
+            {
+                status = previous.status;
+            }
+            else
+            {
+                candidateStatus = null;
+                candidateChecks = 0;
+            }
+        }
+        else
+        {
+            candidateStatus = null;
+            candidateChecks = 0;
+        }
+        snapshot = new Snapshot(status, health, end, end - start);
+    }
+
+    @Override
+    public Health health()
+    {
+        Snapshot current = snapshot;
+        if (current == null)
+        {
+            return Health.unknown().withDetail("ageInMilliseconds", 0).build();
+        }
+        Health.Builder builder = Health.status(current.status);
+        current.health.getDetails().forEach(builder::withDetail);
+        if (!current.status.equals(current.health.getStatus()))
+        {
+            builder.withDetail("checkedStatus", current.health.getStatus().getCode());
+        }
+        return builder
+                .withDetail("ageInMilliseconds", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - current.checkedAt))
+                .withDetail("checkLatencyInMilliseconds", TimeUnit.NANOSECONDS.toMillis(current.checkLatency))
+                .build();
+    }
+
+    private static final class Snapshot
+    {
+        private final Status status;
+        private final Health health;
+        private final long checkedAt;
+        private final long checkLatency;
+
+        private Snapshot(final Status status, final Health health, final long checkedAt, final long checkLatency)
+        {
+            this.status = status;
+            this.health = health;
+            this.checkedAt = checkedAt;
+            this.checkLatency = checkLatency;
+        }
+    }
+}
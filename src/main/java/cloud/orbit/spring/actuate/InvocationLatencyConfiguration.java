@@ -0,0 +1,93 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.actuate.endpoint.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import cloud.orbit.actors.runtime.InvocationHandler;
+
+@Configuration
+@ConditionalOnClass({ Endpoint.class, Recorder.class })
+@ConditionalOnProperty(prefix = "management.metrics.orbit.invocations", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(InvocationLatencyConfiguration.InvocationLatencyProperties.class)
+public class InvocationLatencyConfiguration
+{
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnMissingBean(InvocationLatencyRecorder.class)
+    InvocationLatencyRecorder invocationLatencyRecorder(final InvocationLatencyProperties properties)
+    {
+        return new InvocationLatencyRecorder(properties.getIntervalInMilliseconds());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(InvocationHandler.class)
+    public InvocationHandler instrumentedInvocationHandler(final InvocationLatencyRecorder invocationLatencyRecorder)
+    {
+        return new InstrumentedInvocationHandler(invocationLatencyRecorder);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(InvocationLatencyEndpoint.class)
+    public InvocationLatencyEndpoint invocationLatencyEndpoint(
+            final InvocationLatencyRecorder invocationLatencyRecorder)
+    {
+        return new InvocationLatencyEndpoint(invocationLatencyRecorder);
+    }
+
+    @ConfigurationProperties(prefix = "management.metrics.orbit.invocations")
+    static class InvocationLatencyProperties
+    {
+        private long intervalInMilliseconds = 60000;
+
+        public long getIntervalInMilliseconds()
+        {
+            return intervalInMilliseconds;
+        }
+
+        public void setIntervalInMilliseconds(final long intervalInMilliseconds)
+        {
+            this.intervalInMilliseconds = intervalInMilliseconds;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "InvocationLatencyProperties{" +
+                    "intervalInMilliseconds=" + intervalInMilliseconds +
+                    '}';
+        }
+    }
+}
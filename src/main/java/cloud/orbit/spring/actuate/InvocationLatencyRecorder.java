@@ -0,0 +1,139 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records invocation latencies per actor method into HDR histograms. Recording is wait-free; every interval the
+ * recorded values are swapped out into a snapshot, which is what gets reported.
+ */
+class InvocationLatencyRecorder
+{
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Map<Method, MethodLatency> latencies = new ConcurrentHashMap<>();
+    private final long intervalMillis;
+    private ScheduledExecutorService scheduler;
+
+    InvocationLatencyRecorder(final long intervalMillis)
+    {
+        this.intervalMillis = intervalMillis;
+    }
+
+    void start()
+    {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+        {
+            Thread thread = new Thread(runnable, "orbit-invocation-latency");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::rollInterval, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+        }
+    }
+
+    void record(final Method method, final long durationNanos)
+    {
+        // get first: computeIfAbsent locks the bin even when the key is present
+        MethodLatency latency = latencies.get(method);
+        if (latency == null)
+        {
+            latency = latencies.computeIfAbsent(method, key -> new MethodLatency());
+        }
+        latency.recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos)));
+    }
+
+    void rollInterval()
+    {
+        latencies.values().forEach(MethodLatency::rollInterval);
+    }
+
+    /**
+     * Percentiles of the last completed interval in milliseconds, keyed by actor interface and method name.
+     */
+    Map<String, Object> getIntervalSnapshot()
+    {
+        Map<String, Object> snapshot = new TreeMap<>();
+        latencies.forEach((method, latency) ->
+        {
+            Histogram histogram = latency.lastInterval;
+            if (histogram != null && histogram.getTotalCount() > 0)
+            {
+                snapshot.put(method.getDeclaringClass().getSimpleName() + "." + method.getName(), toMap(histogram));
+            }
+        });
+        return snapshot;
+    }
+
+    private Map<String, Object> toMap(final Histogram histogram)
+    {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("count", histogram.getTotalCount());
+        values.put("p50", toMillis(histogram.getValueAtPercentile(50)));
+        values.put("p99", toMillis(histogram.getValueAtPercentile(99)));
+        values.put("p999", toMillis(histogram.getValueAtPercentile(99.9)));
+        values.put("max", toMillis(histogram.getMaxValue()));
+        values.put("intervalInMilliseconds", intervalMillis);
+        return values;
+    }
+
+    private static double toMillis(final long micros)
+    {
+        return micros / 1000.0;
+    }
+
+    private static class MethodLatency
+    {
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private volatile Histogram lastInterval;
+
+        private void rollInterval()
+        {
+            // a fresh histogram every time, since the previous one may still be read by the endpoint
+            lastInterval = recorder.getIntervalHistogram();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with four buckets per power of two of microseconds, so that percentiles are reported
+ * within 25% of the actual value. Recording is a striped counter increment, cheap enough for every invocation; reading
+ * takes the counts and starts over, so that each read covers the interval since the previous one.
+ */
+class LatencyHistogram
+{
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKET_COUNT = SUB_BUCKETS * 62;
+
+    private final LongAdder[] counts = new LongAdder[BUCKET_COUNT];
+
+    LatencyHistogram()
+    {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    void record(final long latencyNanos)
+    {
+        counts[bucketOf(Math.max(TimeUnit.NANOSECONDS.toMicros(latencyNanos), 0))].increment();
+    }
+
+    /**
+     * Returns the counts recorded since the previous call. Latencies recorded while taking them may end up in either
+     * interval.
+     */
+    Snapshot takeSnapshot()
+    {
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            snapshot[i] = counts[i].sumThenReset();
+        }
+        return new Snapshot(snapshot);
+    }
+
+    static int bucketOf(final long micros)
+    {
+        if (micros < SUB_BUCKETS)
+        {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(SUB_BUCKETS * (exponent - 1) + subBucket, BUCKET_COUNT - 1);
+    }
+
+    static long highestValueOf(final int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 2);
+        return lowest + (1L << (exponent - 2)) - 1;
+    }
+
+    static final class Snapshot
+    {
+        private final long[] counts;
+        private final long totalCount;
+
+        private Snapshot(final long[] counts)
+        {
+            this.counts = counts;
+            long total = 0;
+            for (long count : counts)
+            {
+                total += count;
+            }
+            this.totalCount = total;
+        }
+
+        long getTotalCount()
+        {
+            return totalCount;
+        }
+
+        /**
+         * The latency in microseconds below which the given fraction of the recorded latencies fall, or zero if none
+         * were recorded.
+         */
+        long getValueAtPercentile(final double percentile)
+        {
+            long target = (long) Math.ceil(totalCount * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if (seen >= target && seen > 0)
+                {
+                    return highestValueOf(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
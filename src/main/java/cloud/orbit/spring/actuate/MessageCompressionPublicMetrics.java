@@ -0,0 +1,72 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import cloud.orbit.actors.extensions.MessageSerializer;
+import cloud.orbit.spring.CompressingMessageSerializer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Reports how much the messages sent to other nodes are compressed, and the time spent on it, when the message
+ * serializer is a {@link CompressingMessageSerializer}.
+ */
+public class MessageCompressionPublicMetrics implements PublicMetrics
+{
+    private final MessageSerializer messageSerializer;
+
+    public MessageCompressionPublicMetrics(final MessageSerializer messageSerializer)
+    {
+        this.messageSerializer = messageSerializer;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics()
+    {
+        if (!(messageSerializer instanceof CompressingMessageSerializer))
+        {
+            return Collections.emptyList();
+        }
+        CompressingMessageSerializer serializer = (CompressingMessageSerializer) messageSerializer;
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("counter.orbit.compression.compressed", serializer.getCompressedMessageCount()));
+        metrics.add(new Metric<>("counter.orbit.compression.incompressible",
+                serializer.getIncompressibleMessageCount()));
+        metrics.add(new Metric<>("gauge.orbit.compression.ratio", serializer.getCompressionRatio()));
+        metrics.add(new Metric<>("counter.orbit.compression.compressionTimeInMilliseconds",
+                serializer.getCompressionTimeMillis()));
+        metrics.add(new Metric<>("counter.orbit.compression.decompressionTimeInMilliseconds",
+                serializer.getDecompressionTimeMillis()));
+        return metrics;
+    }
+}
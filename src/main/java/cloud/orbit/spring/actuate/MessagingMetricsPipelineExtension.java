@@ -0,0 +1,143 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import cloud.orbit.actors.extensions.PipelineExtension;
+import cloud.orbit.actors.net.HandlerAdapter;
+import cloud.orbit.actors.net.HandlerContext;
+import cloud.orbit.actors.runtime.DefaultHandlers;
+import cloud.orbit.actors.runtime.Invocation;
+import cloud.orbit.concurrent.Task;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Sits in front of Orbit's messaging handler and tracks the invocations that are waiting for a response, and how many
+ * of them timed out. Orbit's {@code Messaging} does not expose its pending responses, but the task returned for an
+ * outgoing invocation completes exactly when messaging receives its response or gives up on it, which also gives the
+ * response latency.
+ */
+class MessagingMetricsPipelineExtension extends HandlerAdapter implements PipelineExtension
+{
+    static final String NAME = "messaging-metrics";
+
+    // one in this many responses is timed
+    static final int LATENCY_SAMPLE_INTERVAL = 8;
+
+    private final LongAdder pendingResponses = new LongAdder();
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LatencyHistogram responseLatencies = new LatencyHistogram();
+    private final BiConsumer<Object, Throwable> responseCallback = this::onResponse;
+
+    @Override
+    public String getName()
+    {
+        return NAME;
+    }
+
+    @Override
+    public String getBeforeHandlerName()
+    {
+        return DefaultHandlers.MESSAGING;
+    }
+
+    @Override
+    public Task write(final HandlerContext ctx, final Object msg) throws Exception
+    {
+        // only a sample of the invocations is timed, so that the others do not allocate a callback capturing the start
+        boolean timed = ThreadLocalRandom.current().nextInt(LATENCY_SAMPLE_INTERVAL) == 0;
+        long start = timed ? System.nanoTime() : 0;
+        Task<?> task = ctx.write(msg);
+        if (!(msg instanceof Invocation) || ((Invocation) msg).isOneWay() || task == null || task.isDone())
+        {
+            return task;
+        }
+        pendingResponses.increment();
+        if (timed)
+        {
+            task.whenComplete((result, throwable) ->
+            {
+                responseLatencies.record(System.nanoTime() - start);
+                onResponse(result, throwable);
+            });
+        }
+        else
+        {
+            task.whenComplete(responseCallback);
+        }
+        return task;
+    }
+
+    private void onResponse(final Object result, final Throwable throwable)
+    {
+        pendingResponses.decrement();
+        if (isTimeout(throwable))
+        {
+            timeouts.increment();
+        }
+        else
+        {
+            responses.increment();
+        }
+    }
+
+    private static boolean isTimeout(final Throwable throwable)
+    {
+        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        return cause instanceof TimeoutException;
+    }
+
+    long getPendingResponses()
+    {
+        return pendingResponses.sum();
+    }
+
+    long getResponses()
+    {
+        return responses.sum();
+    }
+
+    long getTimeouts()
+    {
+        return timeouts.sum();
+    }
+
+    /**
+     * How long a sample of one in {@link #LATENCY_SAMPLE_INTERVAL} invocations waited for their response, timeouts
+     * included.
+     */
+    LatencyHistogram getResponseLatencies()
+    {
+        return responseLatencies;
+    }
+}
@@ -32,14 +32,37 @@ import org.springframework.boot.actuate.health.*;
 
 import cloud.orbit.actors.Stage;
 import cloud.orbit.actors.runtime.NodeCapabilities;
+import cloud.orbit.spring.ActorPrewarmer;
+import cloud.orbit.spring.StageExecutorWatermarks;
+import cloud.orbit.spring.StageStartup;
 
 public class OrbitHealthIndicator implements HealthIndicator
 {
     private final Stage stage;
+    private final StageExecutorWatermarks stageExecutorWatermarks;
+    private final ActorPrewarmer actorPrewarmer;
+    private final StageStartup stageStartup;
 
     public OrbitHealthIndicator(final Stage stage)
+    {
+        this(stage, null, null, null);
+    }
+
+    /**
+     * @param stageExecutorWatermarks when given, a running stage whose execution pool is overloaded is reported as
+     *                                out of service, so that load balancers stop sending it traffic
+     * @param actorPrewarmer          when given, a running stage is reported as out of service until its hot actors
+     *                                have been warmed up
+     * @param stageStartup            when given, a stage that failed to start is reported as down along with the
+     *                                failure
+     */
+    public OrbitHealthIndicator(final Stage stage, final StageExecutorWatermarks stageExecutorWatermarks,
+                                final ActorPrewarmer actorPrewarmer, final StageStartup stageStartup)
     {
         this.stage = stage;
+        this.stageExecutorWatermarks = stageExecutorWatermarks;
+        this.actorPrewarmer = actorPrewarmer;
+        this.stageStartup = stageStartup;
     }
 
     @Override
@@ -49,9 +72,31 @@ public class OrbitHealthIndicator implements HealthIndicator
         {
             return Health.down().build();
         }
+        Throwable startupFailure = stageStartup != null ? stageStartup.getStartupFailure() : null;
+        if (startupFailure != null)
+        {
+            return Health.down().withDetail("startupError", String.valueOf(startupFailure.getMessage())).build();
+        }
         boolean alive = stage.getAllNodes().contains(stage.getLocalAddress());
         NodeCapabilities.NodeState state = stage.getState();
         Status status = alive && state == NodeCapabilities.NodeState.RUNNING ? Status.UP : Status.DOWN;
-        return Health.status(status).withDetail("state", state).withDetail("alive", alive).build();
+        Health.Builder builder = Health.status(status).withDetail("state", state).withDetail("alive", alive);
+        if (stageExecutorWatermarks != null && stageExecutorWatermarks.getHighWatermark() > 0)
+        {
+            if (stageExecutorWatermarks.isOverloaded() && status == Status.UP)
+            {
+                builder.status(Status.OUT_OF_SERVICE);
+            }
+            builder.withDetail("queueDepth", stageExecutorWatermarks.getQueueDepth());
+        }
+        if (actorPrewarmer != null && actorPrewarmer.isWarming())
+        {
+            if (status == Status.UP)
+            {
+                builder.status(Status.OUT_OF_SERVICE);
+            }
+            builder.withDetail("prewarming", actorPrewarmer.getRemainingActorCount());
+        }
+        return builder.build();
     }
 }
@@ -28,27 +28,199 @@
 
 package cloud.orbit.spring.actuate;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.actuate.autoconfigure.ConditionalOnEnabledHealthIndicator;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import cloud.orbit.actors.Stage;
+import cloud.orbit.spring.ActorPrewarmer;
 import cloud.orbit.spring.OrbitSpringConfiguration;
+import cloud.orbit.spring.StageExecutorWatermarks;
+import cloud.orbit.spring.StageStartup;
+
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 @ConditionalOnClass(HealthIndicator.class)
 @ConditionalOnEnabledHealthIndicator("orbit")
 @AutoConfigureAfter(OrbitSpringConfiguration.class)
+@EnableConfigurationProperties({ OrbitHealthIndicatorConfiguration.CacheProperties.class,
+        OrbitHealthIndicatorConfiguration.SaturationProperties.class })
 public class OrbitHealthIndicatorConfiguration
 {
     @Bean
     @ConditionalOnMissingBean(name = "orbitHealthIndicator")
-    public HealthIndicator orbitHealthIndicator(final Stage stage)
+    public HealthIndicator orbitHealthIndicator(final Stage stage,
+                                                final ObjectProvider<StageExecutorWatermarks> stageExecutorWatermarks,
+                                                final ObjectProvider<ActorPrewarmer> actorPrewarmer,
+                                                final ObjectProvider<StageStartup> stageStartup,
+                                                final CacheProperties cacheProperties)
+    {
+        OrbitHealthIndicator orbitHealthIndicator = new OrbitHealthIndicator(stage,
+                stageExecutorWatermarks.getIfAvailable(), actorPrewarmer.getIfAvailable(),
+                stageStartup.getIfAvailable());
+        if (!cacheProperties.isEnabled())
+        {
+            return orbitHealthIndicator;
+        }
+        CachedHealthIndicator cachedHealthIndicator = new CachedHealthIndicator(orbitHealthIndicator,
+                cacheProperties.getRefreshIntervalInMilliseconds(), cacheProperties.getHysteresisChecks());
+        cachedHealthIndicator.start();
+        return cachedHealthIndicator;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "management.health.orbit.saturation", name = "enabled", matchIfMissing = true)
+    @ConditionalOnMissingBean(name = "orbitSaturationHealthIndicator")
+    public HealthIndicator orbitSaturationHealthIndicator(
+            final Stage stage,
+            @Qualifier("stageExecutorService") final ExecutorService stageExecutorService,
+            final StageExecutorWatermarks stageExecutorWatermarks,
+            final ObjectProvider<MessagingMetricsPipelineExtension> messagingMetrics,
+            final SaturationProperties saturationProperties)
+    {
+        return new OrbitSaturationHealthIndicator(stage, stageExecutorService, stageExecutorWatermarks,
+                messagingMetrics.getIfAvailable(), saturationProperties);
+    }
+
+    @ConfigurationProperties(prefix = "management.health.orbit.cache")
+    static class CacheProperties
     {
-        return new OrbitHealthIndicator(stage);
+        private boolean enabled;
+        private long refreshIntervalInMilliseconds = 1000;
+        private int hysteresisChecks = 1;
+
+        public boolean isEnabled()
+        {
+            return enabled;
+        }
+
+        public void setEnabled(final boolean enabled)
+        {
+            this.enabled = enabled;
+        }
+
+        public long getRefreshIntervalInMilliseconds()
+        {
+            return refreshIntervalInMilliseconds;
+        }
+
+        public void setRefreshIntervalInMilliseconds(final long refreshIntervalInMilliseconds)
+        {
+            this.refreshIntervalInMilliseconds = refreshIntervalInMilliseconds;
+        }
+
+        public int getHysteresisChecks()
+        {
+            return hysteresisChecks;
+        }
+
+        public void setHysteresisChecks(final int hysteresisChecks)
+        {
+            this.hysteresisChecks = hysteresisChecks;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "CacheProperties{" +
+                    "enabled=" + enabled +
+                    ", refreshIntervalInMilliseconds=" + refreshIntervalInMilliseconds +
+                    ", hysteresisChecks=" + hysteresisChecks +
+                    '}';
+        }
+    }
+
+    @ConfigurationProperties(prefix = "management.health.orbit.saturation")
+    static class SaturationProperties
+    {
+        private double maxExecutorUtilization;
+        private int maxQueueDepth;
+        private long maxPendingResponses;
+        private double maxResponseLatencyP99InMilliseconds;
+        private int minClusterSize;
+        private long latencyWindowInMilliseconds = 10000;
+
+        public double getMaxExecutorUtilization()
+        {
+            return maxExecutorUtilization;
+        }
+
+        public void setMaxExecutorUtilization(final double maxExecutorUtilization)
+        {
+            this.maxExecutorUtilization = maxExecutorUtilization;
+        }
+
+        public int getMaxQueueDepth()
+        {
+            return maxQueueDepth;
+        }
+
+        public void setMaxQueueDepth(final int maxQueueDepth)
+        {
+            this.maxQueueDepth = maxQueueDepth;
+        }
+
+        public long getMaxPendingResponses()
+        {
+            return maxPendingResponses;
+        }
+
+        public void setMaxPendingResponses(final long maxPendingResponses)
+        {
+            this.maxPendingResponses = maxPendingResponses;
+        }
+
+        public double getMaxResponseLatencyP99InMilliseconds()
+        {
+            return maxResponseLatencyP99InMilliseconds;
+        }
+
+        public void setMaxResponseLatencyP99InMilliseconds(final double maxResponseLatencyP99InMilliseconds)
+        {
+            this.maxResponseLatencyP99InMilliseconds = maxResponseLatencyP99InMilliseconds;
+        }
+
+        public int getMinClusterSize()
+        {
+            return minClusterSize;
+        }
+
+        public void setMinClusterSize(final int minClusterSize)
+        {
+            this.minClusterSize = minClusterSize;
+        }
+
+        public long getLatencyWindowInMilliseconds()
+        {
+            return latencyWindowInMilliseconds;
+        }
+
+        public void setLatencyWindowInMilliseconds(final long latencyWindowInMilliseconds)
+        {
+            this.latencyWindowInMilliseconds = latencyWindowInMilliseconds;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "SaturationProperties{" +
+                    "maxExecutorUtilization=" + maxExecutorUtilization +
+                    ", maxQueueDepth=" + maxQueueDepth +
+                    ", maxPendingResponses=" + maxPendingResponses +
+                    ", maxResponseLatencyP99InMilliseconds=" + maxResponseLatencyP99InMilliseconds +
+                    ", minClusterSize=" + minClusterSize +
+                    ", latencyWindowInMilliseconds=" + latencyWindowInMilliseconds +
+                    '}';
+        }
     }
 }
@@ -0,0 +1,96 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import cloud.orbit.actors.extensions.MessageSerializer;
+import cloud.orbit.actors.runtime.RemoteReference;
+import cloud.orbit.spring.OrbitSpringConfiguration;
+import cloud.orbit.spring.StageShutdown;
+
+import java.util.concurrent.ExecutorService;
+
+@Configuration
+@ConditionalOnClass(PublicMetrics.class)
+@ConditionalOnProperty(prefix = "management.metrics.orbit", name = "enabled", matchIfMissing = true)
+@AutoConfigureAfter(OrbitSpringConfiguration.class)
+public class OrbitMetricsConfiguration
+{
+    @Bean
+    @ConditionalOnMissingBean(ActorMetricsLifetimeExtension.class)
+    ActorMetricsLifetimeExtension actorMetricsLifetimeExtension()
+    {
+        return new ActorMetricsLifetimeExtension(RemoteReference::getInterfaceClass);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(MessagingMetricsPipelineExtension.class)
+    MessagingMetricsPipelineExtension messagingMetricsPipelineExtension()
+    {
+        return new MessagingMetricsPipelineExtension();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(name = "orbitPublicMetrics")
+    public PublicMetrics orbitPublicMetrics(
+            final ActorMetricsLifetimeExtension actorMetricsLifetimeExtension,
+            final MessagingMetricsPipelineExtension messagingMetricsPipelineExtension,
+            @Qualifier("stageExecutorService") final ExecutorService stageExecutorService,
+            final ObjectProvider<BackgroundExecutor> actorInfoLifetimeExecutor,
+            final ObjectProvider<ActorInfoContributorLifetimeExtension> actorInfoContributorLifetimeExtension)
+    {
+        return new OrbitPublicMetrics(actorMetricsLifetimeExtension, messagingMetricsPipelineExtension,
+                stageExecutorService, actorInfoLifetimeExecutor.getIfAvailable(),
+                actorInfoContributorLifetimeExtension.getIfAvailable());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "orbit.actors.shutdown", name = "graceful")
+    @ConditionalOnMissingBean(name = "stageShutdownPublicMetrics")
+    public PublicMetrics stageShutdownPublicMetrics(final StageShutdown stageShutdown)
+    {
+        return new StageShutdownPublicMetrics(stageShutdown);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "orbit.actors.compression", name = "enabled")
+    @ConditionalOnMissingBean(name = "messageCompressionPublicMetrics")
+    public PublicMetrics messageCompressionPublicMetrics(final MessageSerializer messageSerializer)
+    {
+        return new MessageCompressionPublicMetrics(messageSerializer);
+    }
+}
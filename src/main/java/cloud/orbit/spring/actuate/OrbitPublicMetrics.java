@@ -0,0 +1,128 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import cloud.orbit.spring.CountingRejectedExecutionHandler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Publishes the stage's actor, messaging and execution pool metrics through the metrics endpoint. All values are read
+ * from counters maintained elsewhere, so collecting them costs nothing on the actors' hot path.
+ */
+public class OrbitPublicMetrics implements PublicMetrics
+{
+    private final ActorMetricsLifetimeExtension actorMetrics;
+    private final MessagingMetricsPipelineExtension messagingMetrics;
+    private final ExecutorService stageExecutorService;
+    private final BackgroundExecutor lifetimeExecutor;
+    private final AsyncLifetimeExtension lifetimeExtension;
+
+    OrbitPublicMetrics(final ActorMetricsLifetimeExtension actorMetrics,
+                       final MessagingMetricsPipelineExtension messagingMetrics,
+                       final ExecutorService stageExecutorService)
+    {
+        this(actorMetrics, messagingMetrics, stageExecutorService, null, null);
+    }
+
+    /**
+     * @param lifetimeExecutor  the executor running the info contributor's lifetime jobs, or null if there is none
+     * @param lifetimeExtension the info contributor's lifetime extension, or null if there is none
+     */
+    OrbitPublicMetrics(final ActorMetricsLifetimeExtension actorMetrics,
+                       final MessagingMetricsPipelineExtension messagingMetrics,
+                       final ExecutorService stageExecutorService,
+                       final BackgroundExecutor lifetimeExecutor,
+                       final AsyncLifetimeExtension lifetimeExtension)
+    {
+        this.actorMetrics = actorMetrics;
+        this.messagingMetrics = messagingMetrics;
+        this.stageExecutorService = stageExecutorService;
+        this.lifetimeExecutor = lifetimeExecutor;
+        this.lifetimeExtension = lifetimeExtension;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics()
+    {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("counter.orbit.actors.activations", actorMetrics.getActivations()));
+        metrics.add(new Metric<>("counter.orbit.actors.deactivations", actorMetrics.getDeactivations()));
+        actorMetrics.forEachActiveActorCount((actorInterface, count) ->
+                metrics.add(new Metric<>("gauge.orbit.actors.active." + actorInterface.getName(), count)));
+        metrics.add(new Metric<>("gauge.orbit.messaging.pending", messagingMetrics.getPendingResponses()));
+        metrics.add(new Metric<>("counter.orbit.messaging.responses", messagingMetrics.getResponses()));
+        metrics.add(new Metric<>("counter.orbit.messaging.timeouts", messagingMetrics.getTimeouts()));
+        addExecutorMetrics(metrics);
+        if (lifetimeExecutor != null)
+        {
+            metrics.add(new Metric<>("gauge.orbit.lifetime.queued", lifetimeExecutor.getQueuedJobCount()));
+            metrics.add(new Metric<>("counter.orbit.lifetime.dropped", lifetimeExecutor.getDroppedJobCount()));
+        }
+        if (lifetimeExtension != null)
+        {
+            metrics.add(new Metric<>("counter.orbit.lifetime.coalesced", lifetimeExtension.getCoalescedEventCount()));
+            metrics.add(new Metric<>("counter.orbit.lifetime.discarded", lifetimeExtension.getDroppedEventCount()));
+            metrics.add(new Metric<>("gauge.orbit.lifetime.pending", lifetimeExtension.getQueuedEventCount()));
+        }
+        return metrics;
+    }
+
+    private void addExecutorMetrics(final List<Metric<?>> metrics)
+    {
+        if (stageExecutorService instanceof ForkJoinPool)
+        {
+            ForkJoinPool pool = (ForkJoinPool) stageExecutorService;
+            metrics.add(new Metric<>("gauge.orbit.executor.queued",
+                    pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount()));
+            metrics.add(new Metric<>("gauge.orbit.executor.active", pool.getActiveThreadCount()));
+            metrics.add(new Metric<>("gauge.orbit.executor.size", pool.getPoolSize()));
+        }
+        else if (stageExecutorService instanceof ThreadPoolExecutor)
+        {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) stageExecutorService;
+            metrics.add(new Metric<>("gauge.orbit.executor.queued", pool.getQueue().size()));
+            metrics.add(new Metric<>("gauge.orbit.executor.active", pool.getActiveCount()));
+            metrics.add(new Metric<>("gauge.orbit.executor.size", pool.getPoolSize()));
+            if (pool.getRejectedExecutionHandler() instanceof CountingRejectedExecutionHandler)
+            {
+                metrics.add(new Metric<>("counter.orbit.executor.rejected",
+                        ((CountingRejectedExecutionHandler) pool.getRejectedExecutionHandler())
+                                .getRejectedExecutionCount()));
+            }
+        }
+    }
+}
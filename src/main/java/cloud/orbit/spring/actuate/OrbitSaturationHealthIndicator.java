@@ -0,0 +1,156 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+
+import cloud.orbit.actors.Stage;
+import cloud.orbit.spring.StageExecutorWatermarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports how loaded a live node is: execution pool utilization and queue depth, pending responses, the 99th
+ * percentile response latency and the cluster size. When any of them crosses its threshold, the node is reported as
+ * out of service, so that it can be drained before it stops responding. A threshold of zero is not checked.
+ */
+class OrbitSaturationHealthIndicator implements HealthIndicator
+{
+    private final Stage stage;
+    private final ExecutorService stageExecutorService;
+    private final StageExecutorWatermarks stageExecutorWatermarks;
+    private final MessagingMetricsPipelineExtension messagingMetrics;
+    private final OrbitHealthIndicatorConfiguration.SaturationProperties thresholds;
+    private long latencyWindowStart = System.nanoTime();
+    private long responseLatencyP99Micros;
+
+    /**
+     * @param messagingMetrics the messaging metrics, or null if they are disabled, in which case the pending responses
+     *                         and latency are not reported
+     */
+    OrbitSaturationHealthIndicator(final Stage stage, final ExecutorService stageExecutorService,
+                                   final StageExecutorWatermarks stageExecutorWatermarks,
+                                   final MessagingMetricsPipelineExtension messagingMetrics,
+                                   final OrbitHealthIndicatorConfiguration.SaturationProperties thresholds)
+    {
+        this.stage = stage;
+        this.stageExecutorService = stageExecutorService;
+        this.stageExecutorWatermarks = stageExecutorWatermarks;
+        this.messagingMetrics = messagingMetrics;
+        this.thresholds = thresholds;
+    }
+
+    @Override
+    public Health health()
+    {
+        Health.Builder builder = Health.up();
+        List<String> degraded = new ArrayList<>();
+
+        double utilization = executorUtilization();
+        if (utilization >= 0)
+        {
+            builder.withDetail("executorUtilization", utilization);
+            check(degraded, "executorUtilization", utilization, thresholds.getMaxExecutorUtilization());
+        }
+        int queueDepth = stageExecutorWatermarks.getQueueDepth();
+        builder.withDetail("queueDepth", queueDepth);
+        check(degraded, "queueDepth", queueDepth, thresholds.getMaxQueueDepth());
+
+        if (messagingMetrics != null)
+        {
+            long pendingResponses = messagingMetrics.getPendingResponses();
+            builder.withDetail("pendingResponses", pendingResponses);
+            check(degraded, "pendingResponses", pendingResponses, thresholds.getMaxPendingResponses());
+            double p99Millis = responseLatencyP99Micros() / 1000.0;
+            builder.withDetail("responseLatencyP99InMilliseconds", p99Millis);
+            check(degraded, "responseLatencyP99InMilliseconds", p99Millis,
+                    thresholds.getMaxResponseLatencyP99InMilliseconds());
+        }
+
+        int clusterSize = stage.getAllNodes().size();
+        builder.withDetail("clusterSize", clusterSize);
+        if (thresholds.getMinClusterSize() > 0 && clusterSize < thresholds.getMinClusterSize())
+        {
+            degraded.add("clusterSize");
+        }
+
+        if (!degraded.isEmpty())
+        {
+            builder.status(Status.OUT_OF_SERVICE).withDetail("degraded", degraded);
+        }
+        return builder.build();
+    }
+
+    private static void check(final List<String> degraded, final String name, final double value,
+                              final double threshold)
+    {
+        if (threshold > 0 && value > threshold)
+        {
+            degraded.add(name);
+        }
+    }
+
+    /**
+     * The share of the pool's threads that are busy, or -1 if the pool does not tell.
+     */
+    private double executorUtilization()
+    {
+        if (stageExecutorService instanceof ForkJoinPool)
+        {
+            ForkJoinPool pool = (ForkJoinPool) stageExecutorService;
+            return (double) pool.getActiveThreadCount() / pool.getParallelism();
+        }
+        if (stageExecutorService instanceof ThreadPoolExecutor)
+        {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) stageExecutorService;
+            return (double) pool.getActiveCount() / pool.getMaximumPoolSize();
+        }
+        return -1;
+    }
+
+    /**
+     * The latency percentile of the last complete window, so that every health check does not start a new one.
+     */
+    private synchronized long responseLatencyP99Micros()
+    {
+        long now = System.nanoTime();
+        if (now - latencyWindowStart >= TimeUnit.MILLISECONDS.toNanos(thresholds.getLatencyWindowInMilliseconds()))
+        {
+            responseLatencyP99Micros = messagingMetrics.getResponseLatencies().takeSnapshot().getValueAtPercentile(99);
+            latencyWindowStart = now;
+        }
+        return responseLatencyP99Micros;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import cloud.orbit.spring.StageShutdown;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Reports how far the stage has got in stopping, so that a slow shutdown can be followed from the metrics endpoint,
+ * which stays up until the stage has stopped.
+ */
+public class StageShutdownPublicMetrics implements PublicMetrics
+{
+    private final StageShutdown stageShutdown;
+
+    public StageShutdownPublicMetrics(final StageShutdown stageShutdown)
+    {
+        this.stageShutdown = stageShutdown;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics()
+    {
+        Collection<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("gauge.orbit.shutdown.stopping", stageShutdown.isStopping() ? 1 : 0));
+        metrics.add(new Metric<>("counter.orbit.shutdown.deactivations", stageShutdown.getDeactivatedActorCount()));
+        long shutdownTimeMillis = stageShutdown.getShutdownTimeMillis();
+        if (shutdownTimeMillis >= 0)
+        {
+            metrics.add(new Metric<>("gauge.orbit.shutdown.timeInMilliseconds", shutdownTimeMillis));
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cloud.orbit.actors.Actor;
+import cloud.orbit.actors.runtime.AbstractActor;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ActorClassIndexTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void noIndex_null() throws Exception
+    {
+        assertThat(ActorClassIndex.load(classLoader(folder.newFolder())), nullValue());
+    }
+
+    @Test
+    public void indexesFromSeveralJars_merged() throws Exception
+    {
+        File first = writeIndex("first", FakeActor.class.getName() + "=" + FakeActorImpl.class.getName());
+        File second = writeIndex("second", "# comment", "com.example.Other=com.example.OtherImpl");
+        ActorClassIndex index = ActorClassIndex.load(classLoader(first, second));
+        assertThat(index.size(), equalTo(2));
+        assertThat(index.getImplementation("com.example.Other"), equalTo("com.example.OtherImpl"));
+    }
+
+    @Test
+    public void finder_resolvesIndexedImplementation() throws Exception
+    {
+        IndexedActorClassFinder finder = new IndexedActorClassFinder(
+                new ActorClassIndex(Collections.singletonMap(FakeActor.class.getName(), FakeActorImpl.class.getName())),
+                getClass().getClassLoader());
+        assertThat(finder.findActorImplementation(FakeActor.class), equalTo(FakeActorImpl.class));
+        assertThat(finder.findActorImplementation(OtherFakeActor.class), nullValue());
+    }
+
+    @Test
+    public void finder_interfaceMissingFromIndex_implementationIsScanned() throws Exception
+    {
+        IndexedActorClassFinder finder = new IndexedActorClassFinder(
+                new ActorClassIndex(Collections.singletonMap(FakeActor.class.getName(), FakeActorImpl.class.getName())),
+                getClass().getClassLoader(), Collections.singletonList(getClass().getPackage().getName()));
+        assertThat(finder.findActorImplementation(ScannedActor.class), equalTo(ScannedActorImpl.class));
+        assertThat(finder.findActorImplementation(OtherFakeActor.class), nullValue());
+    }
+
+    @Test
+    public void finder_staleIndexEntry_implementationIsScanned() throws Exception
+    {
+        Map<String, String> entries = new HashMap<>();
+        entries.put(ScannedActor.class.getName(), "com.example.RemovedActorImpl");
+        entries.put(FakeActor.class.getName(), ScannedActorImpl.class.getName());
+        IndexedActorClassFinder finder = new IndexedActorClassFinder(new ActorClassIndex(entries),
+                getClass().getClassLoader(), Collections.singletonList(getClass().getPackage().getName()));
+        assertThat(finder.findActorImplementation(ScannedActor.class), equalTo(ScannedActorImpl.class));
+        assertThat(finder.findActorImplementation(FakeActor.class), equalTo(FakeActorImpl.class));
+    }
+
+    @Test
+    public void processor_indexesActorImplementations() throws Exception
+    {
+        File sources = folder.newFolder("sources");
+        File source = new File(sources, "IndexedActorImpl.java");
+        Files.write(source.toPath(), Arrays.asList(
+                "public class IndexedActorImpl extends cloud.orbit.actors.runtime.AbstractActor",
+                "        implements IndexedActorImpl.IndexedActor",
+                "{",
+                "    public interface IndexedActor extends cloud.orbit.actors.Actor {}",
+                "}"), StandardCharsets.UTF_8);
+        File output = folder.newFolder("classes");
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null,
+                "-classpath", System.getProperty("java.class.path"),
+                "-processor", ActorClassIndexProcessor.class.getName(),
+                "-d", output.getPath(), source.getPath());
+        assertThat(result, equalTo(0));
+
+        ActorClassIndex index = ActorClassIndex.load(classLoader(output));
+        assertThat(index.getImplementation("IndexedActorImpl$IndexedActor"), equalTo("IndexedActorImpl"));
+    }
+
+    private File writeIndex(final String name, final String... lines) throws IOException
+    {
+        File root = folder.newFolder(name);
+        File index = new File(root, ActorClassIndex.LOCATION);
+        index.getParentFile().mkdirs();
+        Files.write(index.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+        return root;
+    }
+
+    private static ClassLoader classLoader(final File... roots) throws IOException
+    {
+        URL[] urls = new URL[roots.length];
+        for (int i = 0; i < roots.length; i++)
+        {
+            urls[i] = roots[i].toURI().toURL();
+        }
+        // no parent, so that only the given roots are searched for index files
+        return new URLClassLoader(urls, null);
+    }
+
+    public interface FakeActor extends Actor
+    {
+    }
+
+    public interface OtherFakeActor extends Actor
+    {
+    }
+
+    public interface ScannedActor extends Actor
+    {
+    }
+
+    public static class ScannedActorImpl extends AbstractActor implements ScannedActor
+    {
+    }
+
+    public static class FakeActorImpl extends AbstractActor implements FakeActor
+    {
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import cloud.orbit.actors.Actor;
+import cloud.orbit.concurrent.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Vector;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ActorMessageTypeRegistrarTest
+{
+    @Test
+    public void messageTypes_concreteClassesOfTheBasePackages() throws Exception
+    {
+        Collection<Class<?>> messageTypes = ActorMessageTypeRegistrar.findMessageTypes(
+                Collections.singletonList(getClass().getPackage().getName()), getClass().getClassLoader());
+        assertTrue(messageTypes.containsAll(Arrays.asList(Stock.class, Query.class, Item.class, Offer.class)));
+        assertTrue(messageTypes.containsAll(ActorMessageTypeRegistrar.JDK_TYPES));
+        assertFalse(messageTypes.contains(CatalogActor.class));
+        assertFalse(messageTypes.contains(String.class));
+    }
+
+    @Test
+    public void messageTypes_onlyJdkTypesWithoutBasePackages() throws Exception
+    {
+        assertThat(ActorMessageTypeRegistrar.findMessageTypes(null, getClass().getClassLoader()),
+                containsInAnyOrder(ActorMessageTypeRegistrar.JDK_TYPES.toArray()));
+    }
+
+    @Test
+    public void ids_dependOnClassNameOnly() throws Exception
+    {
+        ActorMessageTypeRegistrar registrar = registrar(Query.class, Item.class, Offer.class);
+        int id = ActorMessageTypeRegistrar.idOf(Offer.class);
+        assertThat(id, greaterThanOrEqualTo(ActorMessageTypeRegistrar.FIRST_ID));
+        assertThat(registrar.getRegistrations().get(id), equalTo(Offer.class));
+        assertThat(ActorMessageTypeRegistrar.idOf(Offer.class), equalTo(id));
+    }
+
+    @Test
+    public void roundTrip_registeredTypes() throws Exception
+    {
+        ActorMessageTypeRegistrar registrar = registrar(Query.class, Item.class, Offer.class);
+        Kryo writer = new Kryo();
+        registrar.accept(writer);
+        Kryo reader = new Kryo();
+        registrar.accept(reader);
+
+        Offer offer = new Offer("spring", Arrays.asList(new Item("a", 1), new Item("b", 2)), 3.5);
+        Query query = new Query("spring", 10);
+        HashMap<String, Item> itemsByName = new HashMap<>();
+        itemsByName.put("a", new Item("a", 1));
+        for (Object message : Arrays.asList(offer, query, itemsByName, new Item[]{ new Item("c", 3) }))
+        {
+            Object copy = reader.readClassAndObject(new Input(write(writer, message)));
+            if (message instanceof Object[])
+            {
+                assertThat(Arrays.asList((Object[]) copy), equalTo(Arrays.asList((Object[]) message)));
+            }
+            else
+            {
+                assertThat(copy, equalTo(message));
+            }
+        }
+    }
+
+    @Test
+    public void registeredTypes_smallerThanUnregistered() throws Exception
+    {
+        Kryo registered = new Kryo();
+        registrar(Query.class, Item.class, Offer.class).accept(registered);
+        Query query = new Query("spring", 10);
+
+        assertThat(write(registered, query).length, lessThan(write(new Kryo(), query).length));
+    }
+
+    @Test
+    public void actorInterfaces_foundWithoutImplementations() throws Exception
+    {
+        Collection<Class<?>> actorInterfaces = ActorMessageTypeRegistrar.findActorInterfaces(
+                Collections.singletonList(getClass().getPackage().getName()), getClass().getClassLoader());
+        assertTrue(actorInterfaces.containsAll(Arrays.asList(CatalogActor.class, InventoryActor.class)));
+    }
+
+    @Test
+    public void newerNodeRegisteringMore_olderNodeStillReadsItsMessages() throws Exception
+    {
+        // the newer node has a class the older one lacks, and sends a class that no actor interface of the older
+        // node uses, inside a JDK collection that is not registered on either node
+        ActorMessageTypeRegistrar newer = registrar(Stock.class, Query.class, Item.class, Offer.class, Bundle.class);
+        ActorMessageTypeRegistrar older = registrar(Stock.class, Query.class, Item.class, Offer.class);
+        Kryo writer = new Kryo();
+        newer.accept(writer);
+        Kryo reader = new Kryo();
+        older.accept(reader);
+
+        Offer offer = new Offer("spring", Collections.singletonList(new Item("a", 1)), 3.5);
+        assertThat(reader.readClassAndObject(new Input(write(writer, offer))), equalTo(offer));
+        Vector<Stock> stocks = new Vector<>(Collections.singletonList(new Stock(2)));
+        assertThat(reader.readClassAndObject(new Input(write(writer, stocks))), equalTo(stocks));
+        for (Map.Entry<Integer, Class<?>> registration : older.getRegistrations().entrySet())
+        {
+            assertThat(newer.getRegistrations().get(registration.getKey()), equalTo(registration.getValue()));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void idTakenByAnotherClass_failsInsteadOfSkipping() throws Exception
+    {
+        Kryo kryo = new Kryo();
+        kryo.register(Stock.class, ActorMessageTypeRegistrar.idOf(Query.class));
+        registrar(Query.class, Item.class, Offer.class).accept(kryo);
+    }
+
+    private static ActorMessageTypeRegistrar registrar(final Class<?>... messageTypes)
+    {
+        List<Class<?>> types = new ArrayList<>(ActorMessageTypeRegistrar.JDK_TYPES);
+        types.addAll(Arrays.asList(messageTypes));
+        return new ActorMessageTypeRegistrar(types);
+    }
+
+    private static byte[] write(final Kryo kryo, final Object message)
+    {
+        Output output = new Output(256, -1);
+        kryo.writeClassAndObject(output, message);
+        return output.toBytes();
+    }
+
+    public interface CatalogActor extends Actor
+    {
+        Task<Offer> quote(Query query);
+
+        Task<List<Item>> items(HashMap<String, Item> itemsByName, Item[] extra);
+
+        Task<Void> clear();
+    }
+
+    public interface InventoryActor extends Actor
+    {
+        Task<Stock> stock(Item item);
+    }
+
+    public static class Stock
+    {
+        private int available;
+
+        public Stock()
+        {
+        }
+
+        public Stock(final int available)
+        {
+            this.available = available;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            return o instanceof Stock && available == ((Stock) o).available;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return available;
+        }
+    }
+
+    public static class Bundle
+    {
+        private List<Offer> offers;
+    }
+
+    public static class Query
+    {
+        private String text;
+        private int limit;
+
+        public Query()
+        {
+        }
+
+        public Query(final String text, final int limit)
+        {
+            this.text = text;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            return o instanceof Query && Objects.equals(text, ((Query) o).text) && limit == ((Query) o).limit;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(text, limit);
+        }
+    }
+
+    public static class Item
+    {
+        private String name;
+        private int quantity;
+
+        public Item()
+        {
+        }
+
+        public Item(final String name, final int quantity)
+        {
+            this.name = name;
+            this.quantity = quantity;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            return o instanceof Item && Objects.equals(name, ((Item) o).name) && quantity == ((Item) o).quantity;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(name, quantity);
+        }
+    }
+
+    public static class Offer
+    {
+        private String query;
+        private List<Item> items;
+        private double price;
+
+        public Offer()
+        {
+        }
+
+        public Offer(final String query, final List<Item> items, final double price)
+        {
+            this.query = query;
+            this.items = new ArrayList<>(items);
+            this.price = price;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if (!(o instanceof Offer))
+            {
+                return false;
+            }
+            Offer offer = (Offer) o;
+            return Objects.equals(query, offer.query) && Objects.equals(items, offer.items) && price == offer.price;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(query, items, price);
+        }
+    }
+}
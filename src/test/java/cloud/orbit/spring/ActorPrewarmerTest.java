@@ -0,0 +1,100 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.Test;
+
+import cloud.orbit.concurrent.Task;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ActorPrewarmerTest
+{
+    private static final int ACTOR_COUNT = 50000;
+
+    @Test
+    public void alreadyWarmActors_warmedUpWithoutRecursing() throws Exception
+    {
+        WarmableActor actor = mock(WarmableActor.class);
+        doReturn(Task.done()).when(actor).warmUp();
+
+        assertWarmedUp(actor, Collections.nCopies(ACTOR_COUNT, actor));
+    }
+
+    @Test
+    public void actorsFailingSynchronously_warmedUpWithoutRecursing() throws Exception
+    {
+        WarmableActor actor = mock(WarmableActor.class);
+        doThrow(new IllegalStateException("no runtime")).when(actor).warmUp();
+
+        assertWarmedUp(actor, Collections.nCopies(ACTOR_COUNT, actor));
+    }
+
+    @Test
+    public void pendingActors_continuedOnceWarm() throws Exception
+    {
+        WarmableActor actor = mock(WarmableActor.class);
+        Task<Void> pending = new Task<>();
+        doReturn(pending).doReturn(Task.done()).when(actor).warmUp();
+        ActorPrewarmer prewarmer = prewarmer(1);
+
+        prewarmer.prewarm(Collections.nCopies(3, actor));
+        verify(actor, times(1)).warmUp();
+        assertFalse(prewarmer.getWarmedFuture().isDone());
+        pending.complete(null);
+        prewarmer.getWarmedFuture().get(5, TimeUnit.SECONDS);
+        verify(actor, times(3)).warmUp();
+        prewarmer.shutdown();
+    }
+
+    private static void assertWarmedUp(final WarmableActor actor, final List<WarmableActor> actors) throws Exception
+    {
+        ActorPrewarmer prewarmer = prewarmer(4);
+        prewarmer.prewarm(actors);
+        assertTrue(prewarmer.getWarmedFuture().isDone());
+        verify(actor, times(actors.size())).warmUp();
+        prewarmer.shutdown();
+    }
+
+    private static ActorPrewarmer prewarmer(final int concurrency)
+    {
+        return new ActorPrewarmer(new HotSetTracker(10), Paths.get("hot-set"), 10, concurrency, 0, 1000,
+                ActorPrewarmerTest.class.getClassLoader());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.Test;
+
+import cloud.orbit.actors.extensions.MessageSerializer;
+import cloud.orbit.actors.runtime.BasicRuntime;
+import cloud.orbit.actors.runtime.Message;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompressingMessageSerializerTest
+{
+    /**
+     * Sends the message payload, which the tests set to a byte array, as it is.
+     */
+    private static final MessageSerializer RAW = new MessageSerializer()
+    {
+        @Override
+        public Message deserializeMessage(final BasicRuntime runtime, final byte[] payload)
+        {
+            return new Message().withPayload(payload);
+        }
+
+        @Override
+        public byte[] serializeMessage(final BasicRuntime runtime, final Message message)
+        {
+            return (byte[]) message.getPayload();
+        }
+    };
+
+    private final CompressingMessageSerializer serializer = new CompressingMessageSerializer(RAW, 1024, 1);
+
+    @Test
+    public void smallMessagesAreNotCompressed() throws Exception
+    {
+        byte[] payload = repetitive(100);
+        byte[] serialized = serializer.serializeMessage(null, new Message().withPayload(payload));
+
+        assertEquals(payload.length + 1, serialized.length);
+        assertArrayEquals(payload, roundTrip(serialized));
+        assertEquals(0, serializer.getCompressedMessageCount());
+        assertEquals(0, serializer.getIncompressibleMessageCount());
+    }
+
+    @Test
+    public void largeMessagesAreCompressed() throws Exception
+    {
+        byte[] payload = repetitive(64 * 1024);
+        byte[] serialized = serializer.serializeMessage(null, new Message().withPayload(payload));
+
+        assertTrue(serialized.length < payload.length / 4);
+        assertArrayEquals(payload, roundTrip(serialized));
+        assertEquals(1, serializer.getCompressedMessageCount());
+        assertTrue(serializer.getCompressionRatio() < 0.25);
+    }
+
+    @Test
+    public void randomMessagesAreSentUncompressed() throws Exception
+    {
+        byte[] payload = new byte[64 * 1024];
+        new Random(42).nextBytes(payload);
+        byte[] serialized = serializer.serializeMessage(null, new Message().withPayload(payload));
+
+        assertEquals(payload.length + 1, serialized.length);
+        assertArrayEquals(payload, roundTrip(serialized));
+        assertEquals(0, serializer.getCompressedMessageCount());
+        assertEquals(1, serializer.getIncompressibleMessageCount());
+    }
+
+    @Test
+    public void entropyTellsCompressedDataApart()
+    {
+        byte[] random = new byte[8192];
+        new Random(42).nextBytes(random);
+
+        assertTrue(CompressingMessageSerializer.looksCompressed(random));
+        assertFalse(CompressingMessageSerializer.looksCompressed(repetitive(8192)));
+    }
+
+    @Test
+    public void codecsAreReusedAcrossMessages() throws Exception
+    {
+        for (int size = 2048; size < 64 * 1024; size *= 2)
+        {
+            byte[] payload = repetitive(size);
+            byte[] serialized = serializer.serializeMessage(null, new Message().withPayload(payload));
+            assertArrayEquals(payload, roundTrip(serialized));
+        }
+        assertEquals(5, serializer.getCompressedMessageCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedMessagesAreRejected() throws Exception
+    {
+        byte[] serialized = serializer.serializeMessage(null, new Message().withPayload(repetitive(8192)));
+        serializer.deserializeMessage(null, Arrays.copyOf(serialized, serialized.length / 2));
+    }
+
+    @Test(expected = IOException.class)
+    public void messagesInflatingBeyondTheMaximumAreRejected() throws Exception
+    {
+        CompressingMessageSerializer sender = new CompressingMessageSerializer(RAW, 1024, 1);
+        CompressingMessageSerializer receiver = new CompressingMessageSerializer(RAW, 1024, 1, 16 * 1024);
+        byte[] serialized = sender.serializeMessage(null, new Message().withPayload(repetitive(32 * 1024)));
+        receiver.deserializeMessage(null, serialized);
+    }
+
+    @Test(expected = IOException.class)
+    public void implausibleLengthsAreRejected() throws Exception
+    {
+        byte[] serialized = serializer.serializeMessage(null, new Message().withPayload(repetitive(8192)));
+        int length = 1024 * 1024;
+        serialized[1] = (byte) (length >>> 24);
+        serialized[2] = (byte) (length >>> 16);
+        serialized[3] = (byte) (length >>> 8);
+        serialized[4] = (byte) length;
+        serializer.deserializeMessage(null, serialized);
+    }
+
+    @Test
+    public void messagesAreHandledAfterShutdown() throws Exception
+    {
+        byte[] payload = repetitive(8192);
+        assertArrayEquals(payload, roundTrip(serializer.serializeMessage(null, new Message().withPayload(payload))));
+
+        serializer.shutdown();
+
+        assertArrayEquals(payload, roundTrip(serializer.serializeMessage(null, new Message().withPayload(payload))));
+        assertEquals(2, serializer.getCompressedMessageCount());
+    }
+
+    private byte[] roundTrip(final byte[] serialized) throws Exception
+    {
+        return (byte[]) serializer.deserializeMessage(null, serialized).getPayload();
+    }
+
+    private static byte[] repetitive(final int size)
+    {
+        byte[] text = "{\"playerId\":12345,\"name\":\"player\",\"score\":678,\"items\":[1,2,3]}".getBytes();
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+        {
+            data[i] = text[i % text.length];
+        }
+        return data;
+    }
+}
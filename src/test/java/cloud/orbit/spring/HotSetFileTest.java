@@ -0,0 +1,93 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+public class HotSetFileTest
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void writeThenRead_keepsEntriesInOrder() throws Exception
+    {
+        Path file = temporaryFolder.getRoot().toPath().resolve("hot-set.bin");
+        List<HotSetFile.Entry> entries = Arrays.asList(
+                new HotSetFile.Entry("com.example.Player", "42"),
+                new HotSetFile.Entry("com.example.World", null),
+                new HotSetFile.Entry("com.example.Player", "\u00e9t\u00e9"));
+
+        HotSetFile.write(file, entries);
+
+        assertThat(HotSetFile.read(file), equalTo(entries));
+        assertFalse(Files.exists(file.resolveSibling("hot-set.bin.tmp")));
+    }
+
+    @Test
+    public void write_replacesPreviousHotSet() throws Exception
+    {
+        Path file = temporaryFolder.getRoot().toPath().resolve("hot-set.bin");
+        HotSetFile.write(file, Collections.singletonList(new HotSetFile.Entry("com.example.Player", "1")));
+        HotSetFile.write(file, Collections.emptyList());
+
+        assertThat(HotSetFile.read(file), empty());
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherFiles() throws Exception
+    {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, "not a hot set".getBytes("UTF-8"));
+        HotSetFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsTruncatedFile() throws Exception
+    {
+        Path file = temporaryFolder.getRoot().toPath().resolve("hot-set.bin");
+        HotSetFile.write(file, Collections.singletonList(new HotSetFile.Entry("com.example.Player", "1")));
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 1));
+        HotSetFile.read(file);
+    }
+}
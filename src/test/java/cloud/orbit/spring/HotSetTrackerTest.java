@@ -0,0 +1,75 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.Test;
+
+import cloud.orbit.actors.runtime.RemoteReference;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class HotSetTrackerTest
+{
+    @Test
+    public void takeHotSet_returnsMostInvokedFirst() throws Exception
+    {
+        HotSetTracker tracker = new HotSetTracker(100);
+        RemoteReference<?> cold = mock(RemoteReference.class);
+        RemoteReference<?> warm = mock(RemoteReference.class);
+        RemoteReference<?> hot = mock(RemoteReference.class);
+        record(tracker, cold, 1);
+        record(tracker, hot, 5);
+        record(tracker, warm, 3);
+
+        assertThat(tracker.takeHotSet(2), contains(hot, warm));
+        assertThat(tracker.takeHotSet(2), empty());
+    }
+
+    @Test
+    public void record_ignoresNewActorsOverLimit() throws Exception
+    {
+        HotSetTracker tracker = new HotSetTracker(1);
+        RemoteReference<?> first = mock(RemoteReference.class);
+        RemoteReference<?> second = mock(RemoteReference.class);
+        record(tracker, first, 1);
+        record(tracker, second, 10);
+
+        assertThat(tracker.takeHotSet(10), contains(first));
+    }
+
+    private static void record(final HotSetTracker tracker, final RemoteReference<?> reference, final int times)
+    {
+        for (int i = 0; i < times; i++)
+        {
+            tracker.record(reference);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cloud.orbit.actors.cloner.ExecutionObjectCloner;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ImmutableAwareObjectClonerTest
+{
+    private ExecutionObjectCloner delegate;
+    private ImmutableAwareObjectCloner cloner;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        delegate = mock(ExecutionObjectCloner.class);
+        when(delegate.clone(any())).thenAnswer(invocation ->
+        {
+            Object object = invocation.getArguments()[0];
+            if (object instanceof Object[])
+            {
+                Object[] copy = ((Object[]) object).clone();
+                for (int i = 0; i < copy.length; i++)
+                {
+                    copy[i] = new Counter();
+                }
+                return copy;
+            }
+            return new Counter();
+        });
+        cloner = new ImmutableAwareObjectCloner(delegate);
+    }
+
+    @Test
+    public void immutableTypes_passedByReference() throws Exception
+    {
+        for (Object object : new Object[]{ "text", 42, Instant.now(), Color.RED, new Point(1, 2),
+                new Segment(new Point(0, 0), new Point(1, 1), "diagonal"), new Chain(new Chain(null, 1), 2),
+                new AnnotatedSnapshot() })
+        {
+            assertThat(cloner.clone(object), sameInstance(object));
+        }
+        verify(delegate, never()).clone(any());
+    }
+
+    @Test
+    public void mutableTypes_cloned() throws Exception
+    {
+        assertFalse(cloner.isImmutable(Counter.class));
+        assertFalse(cloner.isImmutable(Polygon.class));
+        assertFalse(cloner.isImmutable(Drawing.class));
+        assertFalse(cloner.isImmutable(int[].class));
+        assertTrue(cloner.isImmutable(Point.class));
+        assertFalse(cloner.isImmutable(ForeignAnnotatedSnapshot.class));
+        assertTrue(cloner.isImmutable(ForeignAnnotatedPoint.class));
+
+        Counter counter = new Counter();
+        assertThat(cloner.clone(counter), not(sameInstance(counter)));
+    }
+
+    @Test
+    public void arguments_onlyMutableOnesCloned() throws Exception
+    {
+        Point point = new Point(1, 2);
+        Counter counter = new Counter();
+        Object[] arguments = { point, counter, null, "text" };
+
+        Object[] copy = cloner.clone(arguments);
+
+        assertThat(copy, arrayWithSize(4));
+        assertThat(copy, not(sameInstance(arguments)));
+        assertThat(copy[0], sameInstance(point));
+        assertThat(copy[1], not(sameInstance(counter)));
+        assertThat(copy[3], sameInstance("text"));
+        verify(delegate, times(1)).clone(any());
+    }
+
+    enum Color
+    {
+        RED, GREEN
+    }
+
+    static final class Point
+    {
+        private final int x;
+        private final int y;
+
+        Point(final int x, final int y)
+        {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    static final class Segment
+    {
+        private final Point from;
+        private final Point to;
+        private final String label;
+
+        Segment(final Point from, final Point to, final String label)
+        {
+            this.from = from;
+            this.to = to;
+            this.label = label;
+        }
+    }
+
+    static final class Chain
+    {
+        private final Chain previous;
+        private final int value;
+
+        Chain(final Chain previous, final int value)
+        {
+            this.previous = previous;
+            this.value = value;
+        }
+    }
+
+    @Immutable
+    static class AnnotatedSnapshot
+    {
+        private String[] values = { "a" };
+    }
+
+    /**
+     * Stands for another library, such as {@code javax.annotation.concurrent}, with its own {@code Immutable}.
+     */
+    static class ForeignLibrary
+    {
+        @Retention(RetentionPolicy.RUNTIME)
+        @interface Immutable
+        {
+        }
+    }
+
+    @ForeignLibrary.Immutable
+    static class ForeignAnnotatedSnapshot
+    {
+        private String[] values = { "a" };
+    }
+
+    @ForeignLibrary.Immutable
+    static final class ForeignAnnotatedPoint
+    {
+        private final int x = 1;
+    }
+
+    static class Counter
+    {
+        private int count;
+    }
+
+    static final class Polygon
+    {
+        private final List<Point> points = new ArrayList<>();
+    }
+
+    static class Shape
+    {
+        private final Point origin = new Point(0, 0);
+    }
+
+    static final class Drawing
+    {
+        private final Shape shape = new Shape();
+    }
+}
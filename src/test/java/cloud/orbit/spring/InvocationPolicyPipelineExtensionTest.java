@@ -0,0 +1,286 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.After;
+import org.junit.Test;
+
+import cloud.orbit.actors.Actor;
+import cloud.orbit.actors.annotation.StatelessWorker;
+import cloud.orbit.actors.net.HandlerContext;
+import cloud.orbit.actors.runtime.Invocation;
+import cloud.orbit.concurrent.Task;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InvocationPolicyPipelineExtensionTest
+{
+    private final Map<String, OrbitActorsProperties.InvocationPolicyProperties> configured = new HashMap<>();
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "invocation-policy-test-stage"));
+    private final InvocationPolicyPipelineExtension extension = new InvocationPolicyPipelineExtension(configured, 10,
+            30000, new TimingWheel(1, "invocation-policy-test"), executor);
+
+    @After
+    public void tearDown()
+    {
+        extension.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void methodPoliciesOverrideInterfacePolicies() throws Exception
+    {
+        assertEquals(500, extension.policyOf(Inventory.class, method("getCount")).timeoutMillis);
+        assertEquals(50, extension.policyOf(Inventory.class, method("getStock")).timeoutMillis);
+        assertTrue(extension.policyOf(Inventory.class, method("getStock")).latencies != null);
+    }
+
+    @Test
+    public void configuredPoliciesOverrideAnnotations() throws Exception
+    {
+        configured.put(Inventory.class.getName(), policy(2000L, null));
+        configured.put(Inventory.class.getName() + ".getStock", policy(null, false));
+
+        assertEquals(2000, extension.policyOf(Inventory.class, method("getCount")).timeoutMillis);
+        assertEquals(50, extension.policyOf(Inventory.class, method("getStock")).timeoutMillis);
+        assertTrue(extension.policyOf(Inventory.class, method("getStock")).latencies == null);
+    }
+
+    @Test
+    public void onlyStatelessWorkersAreHedged() throws Exception
+    {
+        configured.put(Unconstrained.class.getName() + ".get", policy(null, true));
+
+        assertTrue(extension.policyOf(Stateful.class, Stateful.class.getMethod("get")).latencies == null);
+        assertEquals(100, extension.policyOf(Stateful.class, Stateful.class.getMethod("get")).timeoutMillis);
+        assertThat(extension.policyOf(Unconstrained.class, Unconstrained.class.getMethod("get")),
+                sameInstance(InvocationPolicyPipelineExtension.Policy.NONE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void configuredTimeoutsLongerThanTheMessagingTimeoutAreRejected()
+    {
+        configured.put(Inventory.class.getName(), policy(60000L, null));
+        new InvocationPolicyPipelineExtension(configured, 10, 30000, new TimingWheel(1, "invocation-policy-test"),
+                executor);
+    }
+
+    @Test
+    public void annotatedTimeoutsAreValidatedAgainstTheMessagingTimeout()
+    {
+        extension.validate(Arrays.asList(Inventory.class, Stateful.class));
+        try
+        {
+            new InvocationPolicyPipelineExtension(configured, 10, 200, new TimingWheel(1, "invocation-policy-test"),
+                    executor).validate(Collections.singletonList(Inventory.class));
+            fail();
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertThat(e.getMessage(), containsString(Inventory.class.getName()));
+        }
+    }
+
+    @Test
+    public void invocationsWithoutPolicyArePassedThrough() throws Exception
+    {
+        assertThat(extension.policyOf(Unconstrained.class, Unconstrained.class.getMethod("get")),
+                sameInstance(InvocationPolicyPipelineExtension.Policy.NONE));
+    }
+
+    @Test
+    public void invocationsFailOnceTheirTimeoutHasPassed() throws Exception
+    {
+        Invocation invocation = invocation("getStock");
+        HandlerContext ctx = mock(HandlerContext.class);
+        when(ctx.write(invocation)).thenReturn(new Task<>());
+
+        Task<?> response = extension.send(ctx, invocation, extension.policyOf(Inventory.class, method("getStock")));
+        CompletableFuture<String> completingThread =
+                response.handle((result, throwable) -> Thread.currentThread().getName());
+
+        try
+        {
+            response.get(5, TimeUnit.SECONDS);
+            fail();
+        }
+        catch (ExecutionException e)
+        {
+            assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+        assertEquals(1, extension.getTimeoutCount());
+        assertEquals("invocation-policy-test-stage", completingThread.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void slowHedgedInvocationsAreSentAgain() throws Exception
+    {
+        InvocationPolicyPipelineExtension.Policy policy = extension.policyOf(Inventory.class, method("getStock"));
+        for (int i = 0; i < 64; i++)
+        {
+            policy.latencies.record(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        Invocation invocation = invocation("getStock");
+        HandlerContext ctx = mock(HandlerContext.class);
+        Task<Object> hedged = new Task<>();
+        hedged.complete(42);
+        when(ctx.write(invocation)).thenReturn(new Task<>(), hedged);
+
+        Task<?> response = extension.send(ctx, invocation, policy);
+
+        assertEquals(42, response.get(5, TimeUnit.SECONDS));
+        assertEquals(1, extension.getHedgeCount());
+    }
+
+    @Test
+    public void hedgesAreDroppedWhenThePoolRefusesThem() throws Exception
+    {
+        InvocationPolicyPipelineExtension refusing = new InvocationPolicyPipelineExtension(configured, 10,
+                30000, new TimingWheel(1, "invocation-policy-test-refusing"), task ->
+                {
+                    if (task instanceof LowPriorityTask)
+                    {
+                        throw new RejectedExecutionException();
+                    }
+                    task.run();
+                });
+        try
+        {
+            InvocationPolicyPipelineExtension.Policy policy = refusing.policyOf(Inventory.class, method("getStock"));
+            for (int i = 0; i < 64; i++)
+            {
+                policy.latencies.record(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+            Invocation invocation = invocation("getStock");
+            HandlerContext ctx = mock(HandlerContext.class);
+            when(ctx.write(invocation)).thenReturn(new Task<>());
+
+            Task<?> response = refusing.send(ctx, invocation, policy);
+
+            try
+            {
+                response.get(5, TimeUnit.SECONDS);
+                fail();
+            }
+            catch (ExecutionException e)
+            {
+                assertThat(e.getCause(), instanceOf(TimeoutException.class));
+            }
+            assertEquals(0, refusing.getHedgeCount());
+            assertEquals(1, refusing.getTimeoutCount());
+        }
+        finally
+        {
+            refusing.shutdown();
+        }
+    }
+
+    @Test
+    public void fastResponsesCancelTimeoutsAndHedges() throws Exception
+    {
+        InvocationPolicyPipelineExtension.Policy policy = extension.policyOf(Inventory.class, method("getStock"));
+        Invocation invocation = invocation("getStock");
+        HandlerContext ctx = mock(HandlerContext.class);
+        Task<Object> sent = new Task<>();
+        when(ctx.write(invocation)).thenReturn(sent);
+
+        Task<?> response = extension.send(ctx, invocation, policy);
+        assertFalse(response.isDone());
+        sent.complete(7);
+
+        assertEquals(7, response.join());
+        Thread.sleep(100);
+        assertEquals(0, extension.getTimeoutCount());
+        assertEquals(0, extension.getHedgeCount());
+    }
+
+    private static Invocation invocation(final String methodName) throws Exception
+    {
+        Invocation invocation = mock(Invocation.class);
+        when(invocation.getMethod()).thenReturn(method(methodName));
+        return invocation;
+    }
+
+    private static Method method(final String name) throws Exception
+    {
+        return Inventory.class.getMethod(name);
+    }
+
+    private static OrbitActorsProperties.InvocationPolicyProperties policy(final Long timeout, final Boolean hedged)
+    {
+        OrbitActorsProperties.InvocationPolicyProperties policy =
+                new OrbitActorsProperties.InvocationPolicyProperties();
+        policy.setTimeoutInMilliseconds(timeout);
+        policy.setHedged(hedged);
+        return policy;
+    }
+
+    @StatelessWorker
+    @InvocationPolicy(timeoutInMilliseconds = 500)
+    public interface Inventory extends Actor
+    {
+        Task<Integer> getCount();
+
+        @InvocationPolicy(timeoutInMilliseconds = 50, hedged = true)
+        Task<Integer> getStock();
+    }
+
+    public interface Unconstrained extends Actor
+    {
+        Task<Integer> get();
+    }
+
+    public interface Stateful extends Actor
+    {
+        @InvocationPolicy(timeoutInMilliseconds = 100, hedged = true)
+        Task<Integer> get();
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cloud.orbit.actors.cluster.NodeAddress;
+import cloud.orbit.actors.cluster.NodeAddressImpl;
+import cloud.orbit.actors.net.HandlerContext;
+import cloud.orbit.concurrent.Task;
+import cloud.orbit.tuples.Pair;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MessageBatcherTest
+{
+    private final NodeAddress first = new NodeAddressImpl(UUID.randomUUID());
+    private final NodeAddress second = new NodeAddressImpl(UUID.randomUUID());
+    private final List<Pair<NodeAddress, byte[]>> frames = new CopyOnWriteArrayList<>();
+    private HandlerContext ctx;
+    private MessageBatcher batcher;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception
+    {
+        ctx = mock(HandlerContext.class);
+        when(ctx.write(any())).thenAnswer(invocation ->
+        {
+            frames.add((Pair<NodeAddress, byte[]>) invocation.getArguments()[0]);
+            return Task.done();
+        });
+        batcher = new MessageBatcher(TimeUnit.MILLISECONDS.toMicros(500), 1024, 3);
+    }
+
+    @After
+    public void tearDown()
+    {
+        batcher.shutdown();
+    }
+
+    @Test
+    public void messagesToTheSameNodeAreSentInOneFrame() throws Exception
+    {
+        Task<?> sent = batcher.write(ctx, Pair.of(first, bytes(1)));
+        batcher.write(ctx, Pair.of(first, bytes(2)));
+        batcher.write(ctx, Pair.of(second, bytes(3)));
+        assertTrue(frames.isEmpty());
+        assertFalse(sent.isDone());
+
+        batcher.write(ctx, Pair.of(first, bytes(4)));
+
+        assertEquals(1, frames.size());
+        assertEquals(first, frames.get(0).getLeft());
+        assertMessages(frames.get(0), bytes(1), bytes(2), bytes(4));
+        assertTrue(sent.isDone());
+    }
+
+    @Test
+    public void batchesAreFlushedOnceTheWindowHasPassed() throws Exception
+    {
+        Task<?> sent = batcher.write(ctx, Pair.of(first, bytes(1)));
+        batcher.write(ctx, Pair.of(first, bytes(2)));
+
+        sent.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, frames.size());
+        assertMessages(frames.get(0), bytes(1), bytes(2));
+    }
+
+    @Test
+    public void batchesAreFlushedFromTheByteLimit() throws Exception
+    {
+        batcher.write(ctx, Pair.of(first, new byte[600]));
+        batcher.write(ctx, Pair.of(first, new byte[600]));
+
+        assertEquals(1, frames.size());
+        assertEquals(2, MessageBatcher.split(frames.get(0).getRight()).size());
+    }
+
+    @Test
+    public void unbatchedMessagesFollowThePendingBatch() throws Exception
+    {
+        HandlerContext filterCtx = mock(HandlerContext.class);
+        when(filterCtx.write(any())).thenAnswer(invocation -> batcher.write(ctx, invocation.getArguments()[0]));
+        batcher.write(ctx, Pair.of(first, bytes(1)));
+
+        MessageBatcher.writeUnbatched(filterCtx, Pair.of(first, bytes(2)));
+
+        assertEquals(2, frames.size());
+        assertMessages(frames.get(0), bytes(1));
+        assertMessages(frames.get(1), bytes(2));
+        assertEquals(2, batcher.getMessageCount());
+        assertEquals(2, batcher.getFrameCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void unbatchedMessagesWaitForTheBatchBeingWritten() throws Exception
+    {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HandlerContext slowCtx = mock(HandlerContext.class);
+        when(slowCtx.write(any())).thenAnswer(invocation ->
+        {
+            Pair<NodeAddress, byte[]> frame = (Pair<NodeAddress, byte[]>) invocation.getArguments()[0];
+            if (MessageBatcher.split(frame.getRight()).size() > 1)
+            {
+                writing.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            frames.add(frame);
+            return Task.done();
+        });
+        HandlerContext filterCtx = mock(HandlerContext.class);
+        when(filterCtx.write(any())).thenAnswer(invocation -> batcher.write(slowCtx, invocation.getArguments()[0]));
+        batcher.write(slowCtx, Pair.of(first, bytes(1)));
+        batcher.write(slowCtx, Pair.of(first, bytes(2)));
+        Thread flushing = new Thread(() -> call(() -> batcher.write(slowCtx, Pair.of(first, bytes(3)))));
+        flushing.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        Thread unbatchedWriter = new Thread(() -> call(() -> MessageBatcher.writeUnbatched(filterCtx,
+                Pair.of(first, bytes(4)))));
+        unbatchedWriter.start();
+        unbatchedWriter.join(200);
+        assertTrue(frames.isEmpty());
+        release.countDown();
+        flushing.join(5000);
+        unbatchedWriter.join(5000);
+
+        assertEquals(2, frames.size());
+        assertMessages(frames.get(0), bytes(1), bytes(2), bytes(3));
+        assertMessages(frames.get(1), bytes(4));
+    }
+
+    @Test
+    public void framesAreSplitWhenRead() throws Exception
+    {
+        batcher.write(ctx, Pair.of(first, bytes(1)));
+        batcher.write(ctx, Pair.of(first, bytes(2)));
+        batcher.write(ctx, Pair.of(first, new byte[0]));
+        List<Object> read = new ArrayList<>();
+        HandlerContext readCtx = mock(HandlerContext.class);
+        doAnswer(invocation -> read.add(invocation.getArguments()[0])).when(readCtx).fireRead(any());
+
+        batcher.onRead(readCtx, frames.get(0));
+
+        assertEquals(3, read.size());
+        assertArrayEquals(bytes(2), ((Pair<?, ?>) read.get(1)).getRight());
+        assertEquals(first, ((Pair<?, ?>) read.get(2)).getLeft());
+    }
+
+    @Test
+    public void otherMessagesArePassedThrough() throws Exception
+    {
+        Object event = new Object();
+        batcher.write(ctx, event);
+        batcher.onRead(ctx, event);
+
+        verify(ctx).write(event);
+        verify(ctx).fireRead(event);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFramesAreRejected() throws Exception
+    {
+        batcher.shutdown();
+        batcher.write(ctx, Pair.of(first, bytes(1)));
+        byte[] frame = frames.get(0).getRight();
+        MessageBatcher.split(Arrays.copyOf(frame, frame.length - 1));
+    }
+
+    private static void assertMessages(final Pair<NodeAddress, byte[]> frame, final byte[]... messages)
+            throws IOException
+    {
+        List<byte[]> split = MessageBatcher.split(frame.getRight());
+        assertEquals(messages.length, split.size());
+        for (int i = 0; i < messages.length; i++)
+        {
+            assertArrayEquals(messages[i], split.get(i));
+        }
+    }
+
+    private static void call(final Callable<?> callable)
+    {
+        try
+        {
+            callable.call();
+        }
+        catch (Exception e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static byte[] bytes(final int value)
+    {
+        return new byte[]{ (byte) value, (byte) (value * 2), (byte) (value * 3) };
+    }
+}
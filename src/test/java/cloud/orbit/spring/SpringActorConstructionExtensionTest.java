@@ -0,0 +1,253 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package cloud.orbit.spring;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import cloud.orbit.spring.precompiled.PrecompiledActor;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class SpringActorConstructionExtensionTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DefaultListableBeanFactory beanFactory;
+    private SpringActorConstructionExtension extension;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        beanFactory = new DefaultListableBeanFactory();
+        AutowiredAnnotationBeanPostProcessor postProcessor = new AutowiredAnnotationBeanPostProcessor();
+        postProcessor.setBeanFactory(beanFactory);
+        beanFactory.addBeanPostProcessor(postProcessor);
+        beanFactory.registerSingleton("greeting", "hello");
+        RootBeanDefinition counterDefinition = new RootBeanDefinition(AtomicInteger.class);
+        counterDefinition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+        beanFactory.registerBeanDefinition("counter", counterDefinition);
+        RootBeanDefinition sequenceDefinition = new RootBeanDefinition(Sequence.class);
+        sequenceDefinition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+        beanFactory.registerBeanDefinition("sequence", sequenceDefinition);
+        extension = new SpringActorConstructionExtension(beanFactory, true);
+    }
+
+    @Test
+    public void cachedPlan_injectsConstructorAndFields() throws Exception
+    {
+        InjectedActor actor = extension.newInstance(InjectedActor.class);
+        assertThat(actor.greeting, equalTo("hello"));
+        assertThat(actor.fieldGreeting, equalTo("hello"));
+    }
+
+    @Test
+    public void cachedPlan_resolvesPrototypeDependenciesPerInstance() throws Exception
+    {
+        InjectedActor first = extension.newInstance(InjectedActor.class);
+        InjectedActor second = extension.newInstance(InjectedActor.class);
+        assertThat(first.counter, not(sameInstance(second.counter)));
+    }
+
+    @Test
+    public void cachedPlan_defaultConstructor() throws Exception
+    {
+        assertThat(extension.newInstance(PlainActor.class).getClass(), equalTo(PlainActor.class));
+    }
+
+    @Test
+    public void cachedPlan_injectsMethods() throws Exception
+    {
+        MethodInjectedActor actor = extension.newInstance(MethodInjectedActor.class);
+        assertThat(actor.greeting, equalTo("hello"));
+        assertThat(actor.fieldGreeting, equalTo("hello"));
+    }
+
+    @Test
+    public void cachedPlan_injectsSuperclassFieldsFirst() throws Exception
+    {
+        SubclassActor actor = extension.newInstance(SubclassActor.class);
+        assertTrue(actor.superclassSequence.value < actor.subclassSequence.value);
+    }
+
+    @Test
+    public void precompile_buildsPlansForScannedActors() throws Exception
+    {
+        SpringActorConstructionExtension precompiling = new SpringActorConstructionExtension(beanFactory, false,
+                Collections.singletonList("cloud.orbit.spring.precompiled"));
+        assertFalse(precompiling.hasConstructionPlan(PrecompiledActor.class));
+
+        precompiling.afterSingletonsInstantiated();
+
+        assertTrue(precompiling.hasConstructionPlan(PrecompiledActor.class));
+        assertThat(precompiling.newInstance(PrecompiledActor.class).getGreeting(), equalTo("hello"));
+    }
+
+    @Test
+    public void precompile_withoutBasePackages_compilesNothing() throws Exception
+    {
+        SpringActorConstructionExtension precompiling = new SpringActorConstructionExtension(beanFactory, false,
+                Collections.emptyList());
+
+        assertThat(precompiling.precompile(Collections.emptyList()), equalTo(0));
+    }
+
+    @Test
+    public void precompile_usesTheIndexOnlyWhenEnabled() throws Exception
+    {
+        File index = new File(folder.getRoot(), ActorClassIndex.LOCATION);
+        index.getParentFile().mkdirs();
+        Files.write(index.toPath(), Collections.singletonList(
+                "cloud.orbit.spring.precompiled.Greeter=cloud.orbit.spring.precompiled.MissingActor"),
+                StandardCharsets.UTF_8);
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        thread.setContextClassLoader(new URLClassLoader(new URL[]{ folder.getRoot().toURI().toURL() },
+                getClass().getClassLoader()));
+        try
+        {
+            List<String> packages = Collections.singletonList("cloud.orbit.spring.precompiled");
+            assertThat(new SpringActorConstructionExtension(beanFactory, false, packages, false).precompile(packages),
+                    equalTo(1));
+            assertThat(new SpringActorConstructionExtension(beanFactory, false, packages, true).precompile(packages),
+                    equalTo(0));
+        }
+        finally
+        {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    @Test
+    public void initializingBean_usesFullConstruction() throws Exception
+    {
+        assertTrue(extension.newInstance(InitializingActor.class).initialized);
+        assertTrue(ActorConstructionPlan.create(beanFactory, InitializingActor.class).isFullConstruction());
+    }
+
+    @Test
+    public void fullBeanConstructionAnnotation_usesFullConstruction() throws Exception
+    {
+        assertTrue(ActorConstructionPlan.create(beanFactory, AnnotatedActor.class).isFullConstruction());
+        assertThat(extension.newInstance(AnnotatedActor.class).greeting, equalTo("hello"));
+    }
+
+    public static class InjectedActor
+    {
+        private final String greeting;
+        private final AtomicInteger counter;
+
+        @Autowired
+        private String fieldGreeting;
+
+        public InjectedActor(final String greeting, final AtomicInteger counter)
+        {
+            this.greeting = greeting;
+            this.counter = counter;
+        }
+    }
+
+    public static class MethodInjectedActor
+    {
+        private String greeting;
+
+        @Autowired
+        private String fieldGreeting;
+
+        @Autowired
+        public void setGreeting(final String greeting)
+        {
+            this.greeting = greeting;
+        }
+    }
+
+    public static class PlainActor
+    {
+    }
+
+    public static class InitializingActor implements InitializingBean
+    {
+        private boolean initialized;
+
+        @Override
+        public void afterPropertiesSet() throws Exception
+        {
+            initialized = true;
+        }
+    }
+
+    @FullBeanConstruction
+    public static class AnnotatedActor
+    {
+        @Autowired
+        private String greeting;
+    }
+
+    public static class Sequence
+    {
+        private static final AtomicInteger next = new AtomicInteger();
+
+        private final int value = next.incrementAndGet();
+    }
+
+    public static class SuperclassActor
+    {
+        @Autowired
+        Sequence superclassSequence;
+    }
+
+    public static class SubclassActor extends SuperclassActor
+    {
+        @Autowired
+        Sequence subclassSequence;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class StageExecutorsTest
+{
+    private OrbitActorsProperties properties;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        properties = new OrbitActorsProperties();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void noStrategy_scalingPool() throws Exception
+    {
+        executor = StageExecutors.create(properties);
+        assertThat(executor, instanceOf(ForkJoinPool.class));
+    }
+
+    @Test
+    public void workStealing_sizedToCoresInAsyncMode() throws Exception
+    {
+        properties.getExecution().setStrategy(OrbitActorsProperties.ExecutionProperties.Strategy.WORK_STEALING);
+        executor = StageExecutors.create(properties);
+        ForkJoinPool pool = (ForkJoinPool) executor;
+        assertThat(pool.getParallelism(), equalTo(Runtime.getRuntime().availableProcessors()));
+        assertTrue(pool.getAsyncMode());
+    }
+
+    @Test
+    public void fixed_usesPoolSizeAndQueueCapacity() throws Exception
+    {
+        properties.getExecution().setStrategy(OrbitActorsProperties.ExecutionProperties.Strategy.FIXED);
+        properties.getExecution().setPoolSize(3);
+        properties.getExecution().setQueueCapacity(42);
+        executor = StageExecutors.create(properties);
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        assertThat(pool.getCorePoolSize(), equalTo(3));
+        assertThat(pool.getMaximumPoolSize(), equalTo(3));
+        assertThat(pool.getQueue().remainingCapacity(), equalTo(42));
+    }
+
+    @Test
+    public void fixed_fallsBackToExecutionPoolSize() throws Exception
+    {
+        properties.getExecution().setStrategy(OrbitActorsProperties.ExecutionProperties.Strategy.FIXED);
+        properties.setExecutionPoolSize(5);
+        executor = StageExecutors.create(properties);
+        assertThat(((ThreadPoolExecutor) executor).getCorePoolSize(), equalTo(5));
+    }
+
+    @Test
+    public void virtual_alwaysRunsTasks() throws Exception
+    {
+        properties.getExecution().setStrategy(OrbitActorsProperties.ExecutionProperties.Strategy.VIRTUAL);
+        executor = StageExecutors.create(properties);
+        assertThat(executor.submit(() -> 42).get(), equalTo(42));
+    }
+
+    @Test(expected = StageOverloadedException.class)
+    public void failFast_fullQueue_throwsStageOverloadedException() throws Exception
+    {
+        ThreadPoolExecutor pool = newBlockedFixedPool(
+                OrbitActorsProperties.ExecutionProperties.RejectionPolicy.FAIL_FAST, 1);
+        pool.execute(() -> { });
+        pool.execute(() -> { });
+    }
+
+    @Test
+    public void fixed_rejectionsAreCounted() throws Exception
+    {
+        ThreadPoolExecutor pool = newBlockedFixedPool(
+                OrbitActorsProperties.ExecutionProperties.RejectionPolicy.FAIL_FAST, 1);
+        pool.execute(() -> { });
+        try
+        {
+            pool.execute(() -> { });
+        }
+        catch (StageOverloadedException expected)
+        {
+            // the configured policy still applies
+        }
+        assertThat(((CountingRejectedExecutionHandler) pool.getRejectedExecutionHandler())
+                .getRejectedExecutionCount(), equalTo(1L));
+    }
+
+    @Test
+    public void callerRuns_fullQueue_runsOnSubmittingThread() throws Exception
+    {
+        ThreadPoolExecutor pool = newBlockedFixedPool(
+                OrbitActorsProperties.ExecutionProperties.RejectionPolicy.CALLER_RUNS, 1);
+        pool.execute(() -> { });
+        Thread[] ranOn = new Thread[1];
+        pool.execute(() -> ranOn[0] = Thread.currentThread());
+        assertThat(ranOn[0], equalTo(Thread.currentThread()));
+    }
+
+    @Test
+    public void dropOldestLowPriority_lowPriorityTaskMakesRoom() throws Exception
+    {
+        ThreadPoolExecutor pool = newBlockedFixedPool(
+                OrbitActorsProperties.ExecutionProperties.RejectionPolicy.DROP_OLDEST_LOW_PRIORITY, 1);
+        LowPriorityTask lowPriority = () -> { };
+        pool.execute(lowPriority);
+        Runnable message = () -> { };
+        pool.execute(message);
+        assertThat(pool.getQueue().size(), equalTo(1));
+        assertTrue(pool.getQueue().contains(message));
+    }
+
+    @Test(expected = StageOverloadedException.class)
+    public void dropOldestLowPriority_noLowPriorityTask_throwsStageOverloadedException() throws Exception
+    {
+        ThreadPoolExecutor pool = newBlockedFixedPool(
+                OrbitActorsProperties.ExecutionProperties.RejectionPolicy.DROP_OLDEST_LOW_PRIORITY, 1);
+        pool.execute(() -> { });
+        pool.execute(() -> { });
+    }
+
+    @Test
+    public void watermarks_overloadedBetweenHighAndLowWatermark() throws Exception
+    {
+        ThreadPoolExecutor pool = newBlockedFixedPool(
+                OrbitActorsProperties.ExecutionProperties.RejectionPolicy.FAIL_FAST, 10);
+        StageExecutorWatermarks watermarks = new StageExecutorWatermarks(pool, 4, 2);
+        for (int i = 0; i < 3; i++)
+        {
+            pool.execute(() -> { });
+        }
+        assertFalse(watermarks.isOverloaded());
+        pool.execute(() -> { });
+        assertTrue(watermarks.isOverloaded());
+        pool.getQueue().poll();
+        assertTrue(watermarks.isOverloaded());
+        pool.getQueue().poll();
+        assertFalse(watermarks.isOverloaded());
+    }
+
+    @Test
+    public void watermarks_peakBetweenReadsIsRemembered() throws Exception
+    {
+        ThreadPoolExecutor pool = newBlockedFixedPool(
+                OrbitActorsProperties.ExecutionProperties.RejectionPolicy.FAIL_FAST, 10);
+        StageExecutorWatermarks watermarks = new StageExecutorWatermarks(pool, 4, 2);
+        try
+        {
+            for (int i = 0; i < 4; i++)
+            {
+                pool.execute(() -> { });
+            }
+            Thread.sleep(StageExecutorWatermarks.SAMPLE_INTERVAL_MILLIS * 10);
+            pool.getQueue().poll();
+            assertTrue(watermarks.isOverloaded());
+        }
+        finally
+        {
+            watermarks.shutdown();
+        }
+    }
+
+        /**
+     * A single thread pool whose only thread is busy until the test ends.
+     */
+    private ThreadPoolExecutor newBlockedFixedPool(
+            final OrbitActorsProperties.ExecutionProperties.RejectionPolicy rejectionPolicy,
+            final int queueCapacity) throws Exception
+    {
+        properties.getExecution().setStrategy(OrbitActorsProperties.ExecutionProperties.Strategy.FIXED);
+        properties.getExecution().setPoolSize(1);
+        properties.getExecution().setQueueCapacity(queueCapacity);
+        properties.getExecution().setRejectionPolicy(rejectionPolicy);
+        executor = StageExecutors.create(properties);
+        CountDownLatch running = new CountDownLatch(1);
+        executor.execute(() ->
+        {
+            running.countDown();
+            try
+            {
+                Thread.sleep(Long.MAX_VALUE);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        running.await();
+        return (ThreadPoolExecutor) executor;
+    }
+}
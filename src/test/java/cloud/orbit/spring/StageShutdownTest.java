@@ -0,0 +1,160 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cloud.orbit.actors.Stage;
+import cloud.orbit.actors.runtime.AbstractActor;
+import cloud.orbit.actors.runtime.NodeCapabilities;
+import cloud.orbit.concurrent.Task;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StageShutdownTest
+{
+    private Stage stage;
+    private AbstractActor<?> actor;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        stage = mock(Stage.class);
+        actor = mock(AbstractActor.class);
+        when(stage.getState()).thenReturn(NodeCapabilities.NodeState.RUNNING);
+    }
+
+    @Test(timeout = 10000)
+    public void stop_waitsForStageAndCountsDeactivations() throws Exception
+    {
+        ShutdownDeactivationThrottle throttle = new ShutdownDeactivationThrottle(0);
+        Task<Void> stopped = new Task<>();
+        when(stage.stop()).thenAnswer(invocation ->
+        {
+            throttle.preDeactivation(actor).join();
+            throttle.postDeactivation(actor).join();
+            stopped.complete(null);
+            return stopped;
+        });
+        StageShutdown stageShutdown = new StageShutdown(stage, throttle, 0, 100, 0);
+        stageShutdown.start();
+
+        stageShutdown.stop();
+
+        assertFalse(stageShutdown.isRunning());
+        assertFalse(stageShutdown.isStopping());
+        assertThat(stageShutdown.getDeactivatedActorCount(), is(1L));
+        assertThat(stageShutdown.getShutdownTimeMillis(), greaterThanOrEqualTo(0L));
+    }
+
+    @Test(timeout = 10000)
+    public void stop_givesUpAfterTimeout() throws Exception
+    {
+        when(stage.stop()).thenReturn(new Task<>());
+        StageShutdown stageShutdown = new StageShutdown(stage, new ShutdownDeactivationThrottle(0), 200, 50, 0);
+        stageShutdown.start();
+
+        Runnable callback = mock(Runnable.class);
+        stageShutdown.stop(callback);
+
+        verify(callback).run();
+        assertThat(stageShutdown.getShutdownTimeMillis(), greaterThanOrEqualTo(200L));
+    }
+
+    @Test
+    public void stop_skipsStageThatIsNotRunning() throws Exception
+    {
+        when(stage.getState()).thenReturn(NodeCapabilities.NodeState.STOPPED);
+        StageShutdown stageShutdown = new StageShutdown(stage, new ShutdownDeactivationThrottle(0), 0, 100, 0);
+        stageShutdown.start();
+
+        stageShutdown.stop();
+
+        verify(stage, never()).stop();
+    }
+
+    @Test
+    public void throttle_doesNothingOutsideShutdown() throws Exception
+    {
+        ShutdownDeactivationThrottle throttle = new ShutdownDeactivationThrottle(1);
+        for (int i = 0; i < 10; i++)
+        {
+            assertTrue(throttle.preDeactivation(actor).isDone());
+            throttle.postDeactivation(actor);
+        }
+        assertThat(throttle.getDeactivatedActorCount(), is(0L));
+    }
+
+    @Test(timeout = 10000)
+    public void throttle_limitsDeactivationRate() throws Exception
+    {
+        ShutdownDeactivationThrottle throttle = new ShutdownDeactivationThrottle(20);
+        throttle.beginShutdown();
+        try
+        {
+            long start = System.nanoTime();
+            Task<?> last = null;
+            for (int i = 0; i < 11; i++)
+            {
+                last = throttle.preDeactivation(actor);
+            }
+            last.join();
+            // the first permit is immediate, the next ten are 50 ms apart
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), greaterThanOrEqualTo(450L));
+        }
+        finally
+        {
+            throttle.endShutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void throttle_releasesWaitingDeactivationsWhenShutdownEnds() throws Exception
+    {
+        ShutdownDeactivationThrottle throttle = new ShutdownDeactivationThrottle(1);
+        throttle.beginShutdown();
+        throttle.preDeactivation(actor);
+        Task<?> waiting = throttle.preDeactivation(actor);
+        assertFalse(waiting.isDone());
+
+        throttle.endShutdown();
+
+        assertTrue(waiting.isDone());
+    }
+}
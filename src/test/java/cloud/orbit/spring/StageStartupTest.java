@@ -0,0 +1,150 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import cloud.orbit.actors.Stage;
+import cloud.orbit.concurrent.Task;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StageStartupTest
+{
+    private Stage stage;
+    private ApplicationEventPublisher publisher;
+    private StageStartup stageStartup;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        stage = mock(Stage.class);
+        publisher = mock(ApplicationEventPublisher.class);
+        stageStartup = new StageStartup();
+        stageStartup.setApplicationEventPublisher(publisher);
+    }
+
+    @Test
+    public void syncStartup_stageStartedBeforeReturning() throws Exception
+    {
+        when(stage.start()).thenReturn(Task.done());
+        stageStartup.start(stage, false);
+        assertTrue(stageStartup.getReadyFuture().isDone());
+        verify(stage).bind();
+        assertThat(stageStartup.getStartupTimeMillis(), greaterThanOrEqualTo(0L));
+    }
+
+    @Test(timeout = 10000)
+    public void asyncStartup_doesNotBlockCaller() throws Exception
+    {
+        Task<Void> started = new Task<>();
+        when(stage.start()).thenReturn(started);
+        stageStartup.start(stage, true);
+        assertFalse(stageStartup.getReadyFuture().isDone());
+
+        started.complete(null);
+        assertThat(stageStartup.getReadyFuture().get(), sameInstance(stage));
+    }
+
+    @Test(timeout = 10000)
+    public void asyncStartup_bindsOnCallingThreadAndStartsOnDaemonThread() throws Exception
+    {
+        Task<Void> started = new Task<>();
+        Thread[] bindingThread = new Thread[1];
+        Thread[] startingThread = new Thread[1];
+        doAnswer(invocation ->
+        {
+            bindingThread[0] = Thread.currentThread();
+            return null;
+        }).when(stage).bind();
+        when(stage.start()).thenAnswer(invocation ->
+        {
+            startingThread[0] = Thread.currentThread();
+            return started;
+        });
+        stageStartup.start(stage, true);
+        assertThat(bindingThread[0], sameInstance(Thread.currentThread()));
+
+        started.complete(null);
+        stageStartup.getReadyFuture().join();
+        assertTrue(startingThread[0].isDaemon());
+        verify(stage, times(1)).bind();
+    }
+
+    @Test(timeout = 10000)
+    public void startedEvent_publishedOnceStartedAndRefreshed() throws Exception
+    {
+        Task<Void> started = new Task<>();
+        when(stage.start()).thenReturn(started);
+        stageStartup.start(stage, true);
+        stageStartup.onApplicationEvent(mock(ContextRefreshedEvent.class));
+        verify(publisher, never()).publishEvent(any(StageStartedEvent.class));
+
+        started.complete(null);
+        ArgumentCaptor<StageStartedEvent> event = ArgumentCaptor.forClass(StageStartedEvent.class);
+        verify(publisher, timeout(TimeUnit.SECONDS.toMillis(5))).publishEvent(event.capture());
+        assertThat(event.getValue().getStage(), sameInstance(stage));
+    }
+
+    @Test(timeout = 10000, expected = CompletionException.class)
+    public void asyncStartupFails_readyFutureCompletesExceptionally() throws Exception
+    {
+        Task<Void> failed = new Task<>();
+        failed.completeExceptionally(new IllegalStateException("cluster unavailable"));
+        when(stage.start()).thenReturn(failed);
+        stageStartup.start(stage, true);
+        try
+        {
+            stageStartup.getReadyFuture().join();
+        }
+        finally
+        {
+            assertThat(stageStartup.getStartupFailure().getMessage(), equalTo("cluster unavailable"));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest
+{
+    private final TimingWheel wheel = new TimingWheel(1, "timing-wheel-test");
+
+    @After
+    public void tearDown()
+    {
+        wheel.stop();
+    }
+
+    @Test
+    public void timeoutsFireOnceTheirDelayHasPassed() throws Exception
+    {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        TimingWheel.Timeout timeout = wheel.schedule(fired::countDown, 20);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void cancelledTimeoutsDoNotFire() throws Exception
+    {
+        AtomicBoolean fired = new AtomicBoolean();
+        TimingWheel.Timeout cancelled = wheel.schedule(() -> fired.set(true), 10);
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(later::countDown, 50);
+
+        assertTrue(cancelled.cancel());
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertFalse(fired.get());
+    }
+
+    @Test
+    public void timeoutsAcrossLevelsFireInDeadlineOrder() throws Exception
+    {
+        int count = 200;
+        CountDownLatch fired = new CountDownLatch(count);
+        AtomicLong early = new AtomicLong();
+        List<TimingWheel.Timeout> cancelled = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++)
+        {
+            long delay = (i * 37) % 300;
+            wheel.schedule(() ->
+            {
+                if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(delay))
+                {
+                    early.incrementAndGet();
+                }
+                fired.countDown();
+            }, delay);
+            cancelled.add(wheel.schedule(() -> early.incrementAndGet(), delay + 1));
+        }
+        cancelled.forEach(TimingWheel.Timeout::cancel);
+
+        assertTrue(fired.await(5, TimeUnit.SECONDS));
+        Thread.sleep(20);
+        assertEquals(0, early.get());
+    }
+
+    @Test
+    public void emptyWheelsParkUntilTheNextTimeout() throws Exception
+    {
+        CountDownLatch first = new CountDownLatch(1);
+        wheel.schedule(first::countDown, 1);
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!wheel.isIdle() && System.nanoTime() < deadline)
+        {
+            Thread.sleep(1);
+        }
+        assertTrue(wheel.isIdle());
+
+        Thread.sleep(50);
+        CountDownLatch second = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(second::countDown, 20);
+
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void stoppedWheelsRejectTimeouts()
+    {
+        wheel.stop();
+        wheel.schedule(() -> { }, 1);
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+
+import com.google.common.collect.ImmutableMap;
+
+import cloud.orbit.actors.Actor;
+import cloud.orbit.actors.Stage;
+import cloud.orbit.actors.runtime.AbstractActor;
+import cloud.orbit.concurrent.Task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+public class ActorExecutionDispatcherTest
+{
+    private final Stage stage = mock(Stage.class);
+    // stands in for the actors' execution
+    private final ExecutorService actorExecution = Executors.newSingleThreadExecutor();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger maxQueued = new AtomicInteger();
+    private final Map<String, Object> collected = new HashMap<>();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        doAnswer(invocation ->
+        {
+            @SuppressWarnings("unchecked")
+            Callable<Task<?>> callable = (Callable<Task<?>>) invocation.getArguments()[1];
+            maxQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+            actorExecution.execute(() ->
+            {
+                queued.decrementAndGet();
+                try
+                {
+                    callable.call();
+                }
+                catch (Exception e)
+                {
+                    throw new RuntimeException(e);
+                }
+            });
+            return null;
+        }).when(stage).registerTimer(any(AbstractActor.class), any(), eq(0L), eq(0L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        actorExecution.shutdownNow();
+    }
+
+    @Test
+    public void detailsAreCollectedInsideActorExecution() throws Exception
+    {
+        ActorInfoCollector collector = new ActorInfoCollector(new ActorExecutionDispatcher(() -> stage), 0, 0, 0);
+        FakeActorImpl actor = new FakeActorImpl("a");
+
+        ActorInfoCollector.Result result = collector.collect(references(actor),
+                ActorInfoContributorReference::collectDetails, (reference, details) ->
+                        collected.put(reference.getIdentity(), details));
+
+        assertTrue(result.isComplete());
+        assertThat(collected, equalTo(ImmutableMap.of("a", ImmutableMap.of("thread", actor.contributingThread))));
+        assertTrue(actor.contributingThread != Thread.currentThread());
+    }
+
+    @Test
+    public void maxInFlight_limitsQueuedJobs() throws Exception
+    {
+        ActorInfoCollector collector = new ActorInfoCollector(new ActorExecutionDispatcher(() -> stage), 2, 0, 0);
+        List<AbstractActor<?>> actors = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+        {
+            actors.add(new FakeActorImpl("actor" + i));
+        }
+
+        ActorInfoCollector.Result result = collector.collect(references(actors.toArray(new AbstractActor[0])),
+                ActorInfoContributorReference::collectDetails, (reference, details) ->
+                        collected.put(reference.getIdentity(), details));
+
+        assertTrue(result.isComplete());
+        assertThat(collected.size(), equalTo(5));
+        assertThat(maxQueued.get(), lessThanOrEqualTo(2));
+    }
+
+    @Test
+    public void actorAlreadyDeactivated_referenceIsExpired() throws Exception
+    {
+        FakeActorImpl actor = new FakeActorImpl("a");
+        doThrow(new IllegalStateException("Actor is deactivated"))
+                .when(stage).registerTimer(eq(actor), any(), anyLong(), anyLong(), any());
+        ActorInfoCollector collector = new ActorInfoCollector(new ActorExecutionDispatcher(() -> stage), 0, 0, 0);
+        List<ActorInfoContributorReference> references = references(actor);
+
+        ActorInfoCollector.Result result = collector.collect(references,
+                ActorInfoContributorReference::collectDetails, (reference, details) ->
+                        collected.put(reference.getIdentity(), details));
+
+        assertThat(result.getExpired(), equalTo(references));
+        assertTrue(collected.isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void jobNeverRuns_actorTimesOut() throws Exception
+    {
+        FakeActorImpl actor = new FakeActorImpl("a");
+        // as happens when the actor is deactivated while the job is queued
+        doAnswer(invocation -> null).when(stage).registerTimer(eq(actor), any(), anyLong(), anyLong(), any());
+        ActorInfoCollector collector = new ActorInfoCollector(new ActorExecutionDispatcher(() -> stage), 0, 50, 0);
+
+        ActorInfoCollector.Result result = collector.collect(references(actor),
+                ActorInfoContributorReference::collectDetails, (reference, details) ->
+                        collected.put(reference.getIdentity(), details));
+
+        assertThat(result.getStatus(), equalTo(ImmutableMap.of("truncated", false, "timedOut", 1, "skipped", 0)));
+    }
+
+    private static List<ActorInfoContributorReference> references(final AbstractActor<?>... actors)
+    {
+        List<ActorInfoContributorReference> references = new ArrayList<>();
+        for (AbstractActor<?> actor : actors)
+        {
+            references.add(new ActorInfoContributorReference(a -> FakeActor.class, actor));
+        }
+        return references;
+    }
+
+    private interface FakeActor extends Actor
+    {
+    }
+
+    private static class FakeActorImpl extends AbstractActor implements FakeActor, InfoContributor
+    {
+        private final String identity;
+        private volatile Thread contributingThread;
+
+        private FakeActorImpl(final String identity)
+        {
+            this.identity = identity;
+        }
+
+        @Override
+        public String getIdentity()
+        {
+            return identity;
+        }
+
+        @Override
+        public void contribute(final Info.Builder builder)
+        {
+            contributingThread = Thread.currentThread();
+            builder.withDetail("thread", contributingThread);
+        }
+    }
+}
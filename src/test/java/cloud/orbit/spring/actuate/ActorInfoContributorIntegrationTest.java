@@ -88,6 +88,9 @@ public class ActorInfoContributorIntegrationTest
     @Autowired
     private ActorInfoContributorLifetimeExtension actorInfoContributorLifetimeExtension;
 
+    @Autowired
+    private BackgroundExecutor actorInfoLifetimeExecutor;
+
     private Map<String, Object> result;
 
     @After
@@ -260,7 +263,7 @@ public class ActorInfoContributorIntegrationTest
 
     private void waitForBackgroundProcessToComplete() throws InterruptedException
     {
-        while (((ForkJoinPool) executor).getActiveThreadCount() > 0)
+        while (((ForkJoinPool) executor).getActiveThreadCount() > 0 || !actorInfoLifetimeExecutor.isIdle())
         {
             Thread.sleep(1);
         }
@@ -43,20 +43,31 @@ import com.google.common.collect.ImmutableSet;
 import cloud.orbit.actors.Actor;
 import cloud.orbit.actors.runtime.AbstractActor;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class ActorInfoContributorTest
@@ -214,6 +225,246 @@ public class ActorInfoContributorTest
         assertNull(exceptionFromThread[0]);
     }
 
+    @Test(timeout = 10000)
+    public void scrapeInProgress_activationDoesNotBlock() throws Exception
+    {
+        CountDownLatch contributing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingFakeActorImpl blockingActor = new BlockingFakeActorImpl(contributing, release);
+        extension.postActivation(blockingActor).join();
+        Thread scrape = new Thread(this::getInfo);
+        scrape.start();
+        contributing.await();
+        FakeActorImpl actor = new FakeActorImpl("other", "b", "c");
+        extension.postActivation(actor).join();
+        extension.postDeactivation(actor).join();
+        release.countDown();
+        scrape.join();
+    }
+
+    @Test
+    public void cachedDetails_servedFromCacheUntilMaxAge() throws Exception
+    {
+        MutableClock clock = new MutableClock();
+        extension = new ActorInfoContributorLifetimeExtension(reference -> FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor(), 1000, clock, new ActorInfoCollector());
+        FakeActorImpl actor = spy(new FakeActorImpl("a", "b", "c"));
+        extension.postActivation(actor).join();
+
+        Object first = getInfo().get("actors");
+        clock.advance(999);
+        assertThat(getInfo().get("actors"), sameInstance(first));
+        verify(actor, times(1)).contribute(any());
+
+        clock.advance(1);
+        assertThat(getInfo().get("actors"), sameInstance(first));
+        verify(actor, times(1)).contribute(any());
+    }
+
+    @Test
+    public void cachedDetails_onlyNewActorsAreCollectedBeforeMaxAge() throws Exception
+    {
+        MutableClock clock = new MutableClock();
+        extension = new ActorInfoContributorLifetimeExtension(reference -> FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor(), 1000, clock, new ActorInfoCollector());
+        FakeActorImpl first = spy(new FakeActorImpl("a", "b", "c"));
+        extension.postActivation(first).join();
+        getInfo();
+
+        clock.advance(600);
+        FakeActorImpl second = spy(new FakeActorImpl("d", "e", "f"));
+        extension.postActivation(second).join();
+        clock.advance(600);
+        assertThat(getInfo().get("actors"), equalTo(ImmutableMap.of(
+                "FakeActor", ImmutableMap.of(
+                        "a", ImmutableMap.of("b", "c"),
+                        "d", ImmutableMap.of("e", "f")))));
+        verify(first, times(1)).contribute(any());
+        verify(second, times(1)).contribute(any());
+    }
+
+    @Test
+    public void cachedDetails_deactivatedActorsAreDroppedWithoutAskingOthers() throws Exception
+    {
+        MutableClock clock = new MutableClock();
+        extension = new ActorInfoContributorLifetimeExtension(reference -> FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor(), 1000, clock, new ActorInfoCollector());
+        FakeActorImpl first = spy(new FakeActorImpl("a", "b", "c"));
+        FakeActorImpl second = spy(new FakeActorImpl("d", "e", "f"));
+        extension.postActivation(first).join();
+        extension.postActivation(second).join();
+        getInfo();
+
+        extension.postDeactivation(second).join();
+        clock.advance(1000);
+        assertThat(getInfo().get("actors"), equalTo(ImmutableMap.of(
+                "FakeActor", ImmutableMap.of(
+                        "a", ImmutableMap.of("b", "c")))));
+        verify(first, times(1)).contribute(any());
+    }
+
+    @Test
+    public void cachedDetails_actorsAreAskedAgainAfterActorMaxAge() throws Exception
+    {
+        MutableClock clock = new MutableClock();
+        extension = new ActorInfoContributorLifetimeExtension(reference -> FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor(), 0, 0, 1000, 3000, clock, new ActorInfoCollector());
+        FakeActorImpl actor = spy(new FakeActorImpl("a", "b", "c"));
+        extension.postActivation(actor).join();
+        getInfo();
+
+        clock.advance(2000);
+        getInfo();
+        verify(actor, times(1)).contribute(any());
+
+        clock.advance(1000);
+        getInfo();
+        verify(actor, times(2)).contribute(any());
+    }
+
+    @Test
+    public void cachedDetails_unchangedGroupsAreShared() throws Exception
+    {
+        MutableClock clock = new MutableClock();
+        extension = new ActorInfoContributorLifetimeExtension(
+                actor -> actor instanceof OtherFakeActorImpl ? OtherFakeActor.class : FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor(), 1000, clock, new ActorInfoCollector());
+        // the extension only keeps weak references
+        List<AbstractActor> actors = new ArrayList<>();
+        actors.add(new FakeActorImpl("a", "b", "c"));
+        actors.add(new OtherFakeActorImpl("d", "e", "f"));
+        actors.add(new OtherFakeActorImpl("g", "h", "i"));
+        extension.postActivation(actors.get(0)).join();
+        extension.postActivation(actors.get(1)).join();
+        //noinspection unchecked
+        Object fakeActors = ((Map<String, Object>) getInfo().get("actors")).get("FakeActor");
+
+        extension.postActivation(actors.get(2)).join();
+        clock.advance(1000);
+        //noinspection unchecked
+        Map<String, Object> info = (Map<String, Object>) getInfo().get("actors");
+        assertThat(info.get("FakeActor"), sameInstance(fakeActors));
+        assertThat(info.get("OtherFakeActor"), equalTo(ImmutableMap.of(
+                "d", ImmutableMap.of("e", "f"),
+                "g", ImmutableMap.of("h", "i"))));
+        assertThat(actors.size(), equalTo(3));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cachedDetails_snapshotIsImmutable() throws Exception
+    {
+        extension = new ActorInfoContributorLifetimeExtension(reference -> FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor(), 1000, new MutableClock(), new ActorInfoCollector());
+        extension.postActivation(new FakeActorImpl("a", "b", "c")).join();
+        //noinspection unchecked
+        ((Map<String, Object>) getInfo().get("actors")).clear();
+    }
+
+    @Test(timeout = 10000)
+    public void parallelCollection_slowActorIsLeftOutAndReported() throws Exception
+    {
+        ActorInfoCollector collector = new ActorInfoCollector(new ForkJoinPool(2), 50, 0);
+        extension = new ActorInfoContributorLifetimeExtension(reference -> FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor(), 0, Clock.systemUTC(), collector);
+        CountDownLatch release = new CountDownLatch(1);
+        try
+        {
+            extension.postActivation(new BlockingFakeActorImpl(new CountDownLatch(1), release)).join();
+            extension.postActivation(new FakeActorImpl("a", "b", "c")).join();
+
+            Map<String, Object> info = getInfo();
+            assertThat(info.get("actors"), equalTo(ImmutableMap.of(
+                    "FakeActor", ImmutableMap.of("a", ImmutableMap.of("b", "c")))));
+            assertThat(info.get("actorsCollection"), equalTo(ImmutableMap.of(
+                    "truncated", false, "timedOut", 1, "skipped", 0)));
+        }
+        finally
+        {
+            release.countDown();
+            collector.shutdown();
+        }
+    }
+
+    @Test
+    public void budgetExhausted_remainingActorsAreSkipped() throws Exception
+    {
+        extension = new ActorInfoContributorLifetimeExtension(reference -> FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor(), 0, Clock.systemUTC(), new ActorInfoCollector(null, 0, 1));
+        extension.postActivation(new SlowFakeActorImpl("a", "b", "c")).join();
+        extension.postActivation(new SlowFakeActorImpl("d", "e", "f")).join();
+
+        Map<String, Object> info = getInfo();
+        assertThat(((Map<?, ?>) info.get("actors")).size(), equalTo(1));
+        assertThat(info.get("actorsCollection"), equalTo(ImmutableMap.of(
+                "truncated", true, "timedOut", 0, "skipped", 1)));
+    }
+
+    @Test
+    public void cachedDetails_incompleteSnapshotIsNotCached() throws Exception
+    {
+        extension = new ActorInfoContributorLifetimeExtension(reference -> FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor(), 1000, new MutableClock(), new ActorInfoCollector(null, 0, 1));
+        extension.postActivation(new SlowFakeActorImpl("a", "b", "c")).join();
+        extension.postActivation(new SlowFakeActorImpl("d", "e", "f")).join();
+
+        assertThat(getInfo().get("actorsCollection"), equalTo(ImmutableMap.of(
+                "truncated", true, "timedOut", 0, "skipped", 1)));
+
+        // the clock did not move, but the actor left out is asked again right away
+        Map<String, Object> info = getInfo();
+        assertThat(((Map<?, ?>) info.get("actors")).size(), equalTo(2));
+        assertNull(info.get("actorsCollection"));
+    }
+
+    @Test(timeout = 10000)
+    public void parallelCollection_actorsInFlightAreBounded() throws Exception
+    {
+        ForkJoinPool pool = new ForkJoinPool(8);
+        ActorInfoCollector collector = new ActorInfoCollector(pool, 2, 0, 0);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<ActorInfoContributorReference> references = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+        {
+            references.add(new ActorInfoContributorReference(a -> FakeActor.class, new FakeActorImpl("a" + i, "b", "c")));
+        }
+        List<String> collected = new ArrayList<>();
+        try
+        {
+            ActorInfoCollector.Result result = collector.collect(references, reference ->
+            {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try
+                {
+                    Thread.sleep(5);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                return Collections.emptyMap();
+            }, (reference, details) -> collected.add(reference.getIdentity()));
+
+            assertNull(result.getStatus());
+            assertThat(collected.size(), equalTo(20));
+            assertThat(maxInFlight.get(), lessThanOrEqualTo(2));
+        }
+        finally
+        {
+            collector.shutdown();
+        }
+    }
+
     @Test
     public void actorDoesNotImplementInfoContributor_actorDoesNotGetProcessed() throws Exception
     {
@@ -329,6 +580,84 @@ public class ActorInfoContributorTest
         }
     }
 
+    private static class MutableClock extends Clock
+    {
+        private volatile Instant instant = Instant.EPOCH;
+
+        private void advance(final long millis)
+        {
+            instant = instant.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone()
+        {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant()
+        {
+            return instant;
+        }
+    }
+
+    private static class BlockingFakeActorImpl extends FakeActorImpl
+    {
+        private final CountDownLatch contributing;
+        private final CountDownLatch release;
+
+        private BlockingFakeActorImpl(final CountDownLatch contributing, final CountDownLatch release)
+        {
+            super("blocking", "a", "b");
+            this.contributing = contributing;
+            this.release = release;
+        }
+
+        @Override
+        public void contribute(final Info.Builder builder)
+        {
+            contributing.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            super.contribute(builder);
+        }
+    }
+
+    private static class SlowFakeActorImpl extends FakeActorImpl
+    {
+        private SlowFakeActorImpl(final String identity, final String key, final Object value)
+        {
+            super(identity, key, value);
+        }
+
+        @Override
+        public void contribute(final Info.Builder builder)
+        {
+            try
+            {
+                Thread.sleep(10);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            super.contribute(builder);
+        }
+    }
+
     private static class NonInfoContributorFakeActor extends AbstractActor implements FakeActor
     {
     }
@@ -0,0 +1,272 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package cloud.orbit.spring.actuate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+
+import cloud.orbit.actors.Actor;
+import cloud.orbit.actors.runtime.AbstractActor;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ActorInfoMvcEndpointTest
+{
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ActorInfoContributorLifetimeExtension extension;
+    private ActorInfoMvcEndpoint endpoint;
+
+    // the extension only keeps weak references
+    private final List<AbstractActor> actors = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception
+    {
+        extension = new ActorInfoContributorLifetimeExtension(
+                actor -> actor instanceof OtherFakeActorImpl ? OtherFakeActor.class : FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor());
+        endpoint = new ActorInfoMvcEndpoint(extension, objectMapper);
+        endpoint.setEnvironment(new MockEnvironment());
+        activate(new FakeActorImpl("b", 2));
+        activate(new FakeActorImpl("a", 1));
+        activate(new FakeActorImpl("c", 3));
+        activate(new OtherFakeActorImpl("a", 4));
+    }
+
+    private void activate(final AbstractActor actor)
+    {
+        actors.add(actor);
+        extension.postActivation(actor).join();
+    }
+
+    private Map<String, Object> get(final String interfacePrefix, final String identityPrefix,
+                                    final String cursor, final Integer limit) throws Exception
+    {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        endpoint.actors(interfacePrefix, identityPrefix, cursor, limit, response);
+        //noinspection unchecked
+        return objectMapper.readValue(response.getContentAsByteArray(), Map.class);
+    }
+
+    private static List<String> keysOf(final Map<String, Object> page)
+    {
+        //noinspection unchecked
+        return ((List<Map<String, Object>>) page.get("actors")).stream()
+                .map(actor -> actor.get("interface") + ":" + actor.get("identity"))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void noParameters_allActorsInOrder() throws Exception
+    {
+        Map<String, Object> page = get(null, null, null, null);
+        assertThat(keysOf(page), contains("FakeActor:a", "FakeActor:b", "FakeActor:c", "OtherFakeActor:a"));
+        assertThat(page.get("next"), nullValue());
+        //noinspection unchecked
+        assertThat(((List<Map<String, Object>>) page.get("actors")).get(0).get("details"),
+                equalTo(ImmutableMap.of("value", 1)));
+    }
+
+    @Test
+    public void limit_pagesWithCursor() throws Exception
+    {
+        Map<String, Object> first = get(null, null, null, 3);
+        assertThat(keysOf(first), contains("FakeActor:a", "FakeActor:b", "FakeActor:c"));
+        assertThat(first.get("next"), equalTo("FakeActor:c"));
+
+        Map<String, Object> second = get(null, null, (String) first.get("next"), 3);
+        assertThat(keysOf(second), contains("OtherFakeActor:a"));
+        assertThat(second.get("next"), nullValue());
+    }
+
+    @Test
+    public void limitAboveMaximum_isCapped() throws Exception
+    {
+        endpoint.setMaxLimit(2);
+        assertThat(keysOf(get(null, null, null, 100)), contains("FakeActor:a", "FakeActor:b"));
+    }
+
+    @Test
+    public void prefixes_filterActors() throws Exception
+    {
+        assertThat(keysOf(get("Other", null, null, null)), contains("OtherFakeActor:a"));
+        assertThat(keysOf(get(null, "a", null, null)), contains("FakeActor:a", "OtherFakeActor:a"));
+    }
+
+    @Test
+    public void details_collectedThroughTheCollector() throws Exception
+    {
+        ExecutorService collectorPool = Executors.newSingleThreadExecutor(runnable ->
+                new Thread(runnable, "actor-info-collector"));
+        try
+        {
+            useCollector(new ActorInfoCollector(collectorPool, 0, 0));
+            ThreadRecordingActorImpl recording = new ThreadRecordingActorImpl("d");
+            activate(recording);
+
+            assertThat(keysOf(get(null, "d", null, null)), contains("FakeActor:d"));
+            assertThat(recording.collectedOn, equalTo("actor-info-collector"));
+        }
+        finally
+        {
+            collectorPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void slowActors_leftOutAndReported() throws Exception
+    {
+        ExecutorService collectorPool = Executors.newCachedThreadPool();
+        try
+        {
+            useCollector(new ActorInfoCollector(collectorPool, 50, 0));
+            activate(new SlowActorImpl("d"));
+
+            Map<String, Object> page = get(null, null, null, null);
+
+            assertThat(keysOf(page), contains("FakeActor:a", "FakeActor:b", "FakeActor:c", "OtherFakeActor:a"));
+            //noinspection unchecked
+            assertThat(((Map<String, Object>) page.get("collection")).get("timedOut"), equalTo(1));
+        }
+        finally
+        {
+            collectorPool.shutdownNow();
+        }
+    }
+
+    private void useCollector(final ActorInfoCollector collector)
+    {
+        extension = new ActorInfoContributorLifetimeExtension(
+                actor -> actor instanceof OtherFakeActorImpl ? OtherFakeActor.class : FakeActor.class,
+                new ActorInfoDetailsContainer(new ActorInfoContributorConfiguration.GroupProperties()),
+                new SyncTaskExecutor(), 0, Clock.systemUTC(), collector);
+        endpoint = new ActorInfoMvcEndpoint(extension, objectMapper);
+        endpoint.setEnvironment(new MockEnvironment());
+        actors.forEach(actor -> extension.postActivation(actor).join());
+    }
+
+    private interface FakeActor extends Actor
+    {
+    }
+
+    private interface OtherFakeActor extends Actor
+    {
+    }
+
+    private static class FakeActorImpl extends AbstractActor implements FakeActor, InfoContributor
+    {
+        private final String identity;
+        private final int value;
+
+        private FakeActorImpl(final String identity, final int value)
+        {
+            this.identity = identity;
+            this.value = value;
+        }
+
+        @Override
+        public String getIdentity()
+        {
+            return identity;
+        }
+
+        @Override
+        public void contribute(final Info.Builder builder)
+        {
+            builder.withDetail("value", value);
+        }
+    }
+
+    private static class ThreadRecordingActorImpl extends FakeActorImpl
+    {
+        private volatile String collectedOn;
+
+        private ThreadRecordingActorImpl(final String identity)
+        {
+            super(identity, 0);
+        }
+
+        @Override
+        public void contribute(final Info.Builder builder)
+        {
+            collectedOn = Thread.currentThread().getName();
+            super.contribute(builder);
+        }
+    }
+
+    private static class SlowActorImpl extends FakeActorImpl
+    {
+        private SlowActorImpl(final String identity)
+        {
+            super(identity, 0);
+        }
+
+        @Override
+        public void contribute(final Info.Builder builder)
+        {
+            try
+            {
+                Thread.sleep(2000);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            super.contribute(builder);
+        }
+    }
+
+    private static class OtherFakeActorImpl extends FakeActorImpl implements OtherFakeActor
+    {
+        private OtherFakeActorImpl(final String identity, final int value)
+        {
+            super(identity, value);
+        }
+    }
+}
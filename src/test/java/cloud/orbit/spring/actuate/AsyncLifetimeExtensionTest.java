@@ -0,0 +1,238 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.junit.Test;
+
+import cloud.orbit.actors.runtime.AbstractActor;
+import cloud.orbit.concurrent.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class AsyncLifetimeExtensionTest
+{
+    private final List<Runnable> jobs = new ArrayList<>();
+    private final Executor executor = jobs::add;
+
+    @Test
+    public void noBatching_jobPerEvent() throws Exception
+    {
+        RecordingExtension extension = new RecordingExtension(executor, 0);
+        FakeActorImpl actor = new FakeActorImpl();
+        extension.postActivation(actor).join();
+        extension.postDeactivation(actor).join();
+        assertThat(jobs.size(), equalTo(2));
+        runJobs();
+        assertThat(extension.handled, equalTo(Arrays.asList("+" + actor, "-" + actor)));
+    }
+
+    @Test
+    public void batching_singleJobForManyEvents() throws Exception
+    {
+        RecordingExtension extension = new RecordingExtension(executor, 100);
+        List<FakeActorImpl> actors = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            FakeActorImpl actor = new FakeActorImpl();
+            actors.add(actor);
+            extension.postActivation(actor).join();
+        }
+        assertThat(jobs.size(), equalTo(1));
+        runJobs();
+        assertThat(extension.handled.size(), equalTo(10));
+        assertThat(extension.handled.get(0), equalTo("+" + actors.get(0)));
+    }
+
+    @Test
+    public void batching_activationAndDeactivationInSameBatch_cancelOut() throws Exception
+    {
+        RecordingExtension extension = new RecordingExtension(executor, 100);
+        FakeActorImpl shortLived = new FakeActorImpl();
+        FakeActorImpl other = new FakeActorImpl();
+        extension.postActivation(shortLived).join();
+        extension.postActivation(other).join();
+        extension.postDeactivation(shortLived).join();
+        runJobs();
+        assertThat(extension.handled, equalTo(Arrays.asList("+" + other)));
+        assertThat(extension.getCoalescedEventCount(), equalTo(2L));
+    }
+
+    @Test
+    public void batching_eventsBeyondBatchSize_handledByNextJob() throws Exception
+    {
+        RecordingExtension extension = new RecordingExtension(executor, 2);
+        FakeActorImpl actor = new FakeActorImpl();
+        FakeActorImpl first = new FakeActorImpl();
+        FakeActorImpl second = new FakeActorImpl();
+        extension.postActivation(actor).join();
+        extension.postActivation(first).join();
+        extension.postDeactivation(actor).join();
+        extension.postActivation(second).join();
+        runJobs();
+        // the deactivation landed in the second batch, so it does not cancel out
+        assertThat(extension.handled, equalTo(Arrays.asList(
+                "+" + actor, "+" + first, "-" + actor, "+" + second)));
+        assertThat(extension.getCoalescedEventCount(), equalTo(0L));
+    }
+
+    @Test
+    public void batching_floodedQueue_staysBounded() throws Exception
+    {
+        RecordingExtension extension = new RecordingExtension(executor, 100, 50);
+        List<FakeActorImpl> actors = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            FakeActorImpl actor = new FakeActorImpl();
+            actors.add(actor);
+            extension.postActivation(actor).join();
+        }
+        assertThat(extension.getQueuedEventCount(), equalTo(50));
+        assertThat(extension.getDroppedEventCount(), equalTo(950L));
+
+        runJobs();
+        assertThat(extension.handled.size(), equalTo(50));
+        assertThat(extension.getQueuedEventCount(), equalTo(0));
+        extension.postDeactivation(actors.get(0)).join();
+        runJobs();
+        assertThat(extension.handled.size(), equalTo(51));
+    }
+
+    @Test(timeout = 10000)
+    public void batching_saturatedExecutor_eventsAreHandledOnceItRecovers() throws Exception
+    {
+        BackgroundExecutor saturated = new BackgroundExecutor("test-", 1, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try
+        {
+            saturated.execute(() ->
+            {
+                running.countDown();
+                awaitQuietly(release);
+            });
+            running.await();
+            saturated.execute(() -> { });
+            RecordingExtension extension = new RecordingExtension(saturated::execute, 100);
+            FakeActorImpl first = new FakeActorImpl();
+            extension.postActivation(first).join();
+            assertThat(saturated.getDroppedJobCount(), equalTo(1L));
+
+            release.countDown();
+            while (!saturated.isIdle())
+            {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            FakeActorImpl second = new FakeActorImpl();
+            extension.postActivation(second).join();
+            while (extension.handled.size() < 2)
+            {
+                TimeUnit.MILLISECONDS.sleep(1);
+            }
+            assertThat(extension.handled, equalTo(Arrays.asList("+" + first, "+" + second)));
+        }
+        finally
+        {
+            release.countDown();
+            saturated.shutdown();
+        }
+    }
+
+    @Test
+    public void noBatching_rejectedEventIsSkipped() throws Exception
+    {
+        RecordingExtension extension = new RecordingExtension(job ->
+        {
+            throw new RejectedExecutionException();
+        }, 0);
+        extension.postActivation(new FakeActorImpl()).join();
+        assertThat(extension.handled.size(), equalTo(0));
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runJobs()
+    {
+        while (!jobs.isEmpty())
+        {
+            jobs.remove(0).run();
+        }
+    }
+
+    private static class RecordingExtension extends AsyncLifetimeExtension
+    {
+        private final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+
+        private RecordingExtension(final Executor executor, final int batchSize)
+        {
+            super(executor, batchSize);
+        }
+
+        private RecordingExtension(final Executor executor, final int batchSize, final int maxQueuedEvents)
+        {
+            super(executor, batchSize, maxQueuedEvents);
+        }
+
+        @Override
+        protected Task postActivationAsync(final AbstractActor<?> actor)
+        {
+            handled.add("+" + actor);
+            return Task.done();
+        }
+
+        @Override
+        protected Task postDeactivationAsync(final AbstractActor<?> actor)
+        {
+            handled.add("-" + actor);
+            return Task.done();
+        }
+    }
+
+    private static class FakeActorImpl extends AbstractActor
+    {
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class BackgroundExecutorTest
+{
+    private final BackgroundExecutor executor = new BackgroundExecutor("test-", 1, 2);
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void jobsRunOnNamedDaemonThreads() throws Exception
+    {
+        CountDownLatch ran = new CountDownLatch(1);
+        Thread[] thread = new Thread[1];
+        executor.execute(() ->
+        {
+            thread[0] = Thread.currentThread();
+            ran.countDown();
+        });
+        ran.await();
+        assertTrue(thread[0].getName().startsWith("test-"));
+        assertTrue(thread[0].isDaemon());
+    }
+
+    @Test(timeout = 10000)
+    public void runningJobsAreBoundedByPoolSize() throws Exception
+    {
+        BackgroundExecutor pool = new BackgroundExecutor("test-", 2, 10);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(6);
+        try
+        {
+            for (int i = 0; i < 6; i++)
+            {
+                pool.execute(() ->
+                {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleepQuietly(5);
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+            done.await();
+            assertThat(maxRunning.get(), lessThanOrEqualTo(2));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void queueFull_jobsAreRejectedAndCounted() throws Exception
+    {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() ->
+        {
+            running.countDown();
+            awaitQuietly(release);
+        });
+        running.await();
+        int rejected = 0;
+        for (int i = 0; i < 5; i++)
+        {
+            try
+            {
+                executor.execute(() -> { });
+            }
+            catch (RejectedExecutionException e)
+            {
+                rejected++;
+            }
+        }
+        assertThat(executor.getQueuedJobCount(), equalTo(2));
+        assertThat(executor.getDroppedJobCount(), equalTo(3L));
+        assertThat(rejected, equalTo(3));
+        release.countDown();
+        while (!executor.isIdle())
+        {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+    }
+
+    private static void sleepQuietly(final long millis)
+    {
+        try
+        {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachedHealthIndicatorTest
+{
+    private HealthIndicator delegate;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        delegate = mock(HealthIndicator.class);
+    }
+
+    @Test
+    public void health_servedFromLastRefresh() throws Exception
+    {
+        when(delegate.health()).thenReturn(Health.up().withDetail("state", "RUNNING").build());
+        CachedHealthIndicator cachedHealthIndicator = new CachedHealthIndicator(delegate, 1000, 1);
+        assertThat(cachedHealthIndicator.health().getStatus(), equalTo(Status.UNKNOWN));
+
+        cachedHealthIndicator.refresh();
+        Health health = cachedHealthIndicator.health();
+        cachedHealthIndicator.health();
+
+        verify(delegate, times(1)).health();
+        assertThat(health.getStatus(), equalTo(Status.UP));
+        assertThat(health.getDetails().get("state"), equalTo("RUNNING"));
+        assertThat(health.getDetails().containsKey("ageInMilliseconds"), equalTo(true));
+        assertThat(health.getDetails().containsKey("checkLatencyInMilliseconds"), equalTo(true));
+    }
+
+    @Test
+    public void hysteresis_statusChangesAfterConsecutiveChecks() throws Exception
+    {
+        when(delegate.health()).thenReturn(Health.up().build());
+        CachedHealthIndicator cachedHealthIndicator = new CachedHealthIndicator(delegate, 1000, 3);
+        cachedHealthIndicator.refresh();
+
+        when(delegate.health()).thenReturn(Health.down().build());
+        cachedHealthIndicator.refresh();
+        cachedHealthIndicator.refresh();
+        assertThat(cachedHealthIndicator.health().getStatus(), equalTo(Status.UP));
+        assertThat(cachedHealthIndicator.health().getDetails().get("checkedStatus"), equalTo("DOWN"));
+
+        cachedHealthIndicator.refresh();
+        assertThat(cachedHealthIndicator.health().getStatus(), equalTo(Status.DOWN));
+    }
+
+    @Test
+    public void hysteresis_flappingCheckDoesNotChangeStatus() throws Exception
+    {
+        when(delegate.health()).thenReturn(Health.up().build());
+        CachedHealthIndicator cachedHealthIndicator = new CachedHealthIndicator(delegate, 1000, 2);
+        cachedHealthIndicator.refresh();
+
+        when(delegate.health()).thenReturn(Health.down().build(), Health.up().build(), Health.down().build());
+        cachedHealthIndicator.refresh();
+        cachedHealthIndicator.refresh();
+        cachedHealthIndicator.refresh();
+
+        assertThat(cachedHealthIndicator.health().getStatus(), equalTo(Status.UP));
+    }
+
+    @Test
+    public void failingCheck_down() throws Exception
+    {
+        when(delegate.health()).thenThrow(new IllegalStateException("stage gone"));
+        CachedHealthIndicator cachedHealthIndicator = new CachedHealthIndicator(delegate, 1000, 1);
+        cachedHealthIndicator.refresh();
+        assertThat(cachedHealthIndicator.health().getStatus(), equalTo(Status.DOWN));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.junit.Test;
+
+import cloud.orbit.actors.Actor;
+import cloud.orbit.actors.runtime.Invocation;
+import cloud.orbit.concurrent.Task;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class InvocationLatencyRecorderTest
+{
+    private final InvocationLatencyRecorder recorder = new InvocationLatencyRecorder(60000);
+
+    @Test
+    public void nothingRecorded_emptySnapshot() throws Exception
+    {
+        recorder.rollInterval();
+        assertThat(recorder.getIntervalSnapshot(), equalTo(Collections.emptyMap()));
+    }
+
+    @Test
+    public void recordedValues_reportedAfterIntervalRolls() throws Exception
+    {
+        Method method = FakeActor.class.getMethod("doSomething");
+        for (int i = 1; i <= 1000; i++)
+        {
+            recorder.record(method, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        assertThat(recorder.getIntervalSnapshot(), equalTo(Collections.emptyMap()));
+
+        recorder.rollInterval();
+        Map<?, ?> latency = (Map<?, ?>) recorder.getIntervalSnapshot().get("FakeActor.doSomething");
+        assertThat(latency.get("count"), equalTo(1000L));
+        assertThat((Double) latency.get("p50"), closeTo(500, 1));
+        assertThat((Double) latency.get("p99"), closeTo(990, 1));
+        assertThat((Double) latency.get("p999"), closeTo(999, 1));
+    }
+
+    @Test
+    public void nextInterval_onlyContainsNewValues() throws Exception
+    {
+        Method method = FakeActor.class.getMethod("doSomething");
+        recorder.record(method, TimeUnit.MILLISECONDS.toNanos(1));
+        recorder.rollInterval();
+        recorder.record(method, TimeUnit.MILLISECONDS.toNanos(2));
+        recorder.record(method, TimeUnit.MILLISECONDS.toNanos(2));
+        recorder.rollInterval();
+
+        Map<?, ?> latency = (Map<?, ?>) recorder.getIntervalSnapshot().get("FakeActor.doSomething");
+        assertThat(latency.get("count"), equalTo(2L));
+    }
+
+    @Test
+    public void invocationHandler_recordsCompletedTasks() throws Exception
+    {
+        Method method = FakeActor.class.getMethod("doSomething");
+        InstrumentedInvocationHandler handler = new InstrumentedInvocationHandler(recorder);
+        handler.taskComplete(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5), mock(Invocation.class), method);
+        handler.taskComplete(System.nanoTime(), mock(Invocation.class), null);
+        recorder.rollInterval();
+
+        Map<?, ?> latency = (Map<?, ?>) recorder.getIntervalSnapshot().get("FakeActor.doSomething");
+        assertThat(latency.get("count"), equalTo(1L));
+    }
+
+    public interface FakeActor extends Actor
+    {
+        Task<Void> doSomething();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void buckets_coverEveryValueWithinAQuarter() throws Exception
+    {
+        int previous = -1;
+        for (long micros = 0; micros < 100_000; micros++)
+        {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertThat(bucket, allOf(greaterThanOrEqualTo(previous), lessThanOrEqualTo(previous + 1)));
+            long highest = LatencyHistogram.highestValueOf(bucket);
+            assertThat(highest, greaterThanOrEqualTo(micros));
+            assertThat((double) highest, lessThanOrEqualTo(micros * 1.25 + 1));
+            previous = bucket;
+        }
+    }
+
+    @Test
+    public void percentile_ofRecordedLatencies() throws Exception
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++)
+        {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(500));
+
+        LatencyHistogram.Snapshot snapshot = histogram.takeSnapshot();
+        assertThat(snapshot.getTotalCount(), equalTo(100L));
+        assertThat(snapshot.getValueAtPercentile(99), allOf(greaterThanOrEqualTo(1000L), lessThanOrEqualTo(1250L)));
+        assertThat(snapshot.getValueAtPercentile(100),
+                allOf(greaterThanOrEqualTo(500_000L), lessThanOrEqualTo(625_000L)));
+    }
+
+    @Test
+    public void takeSnapshot_startsOver() throws Exception
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.takeSnapshot();
+
+        LatencyHistogram.Snapshot snapshot = histogram.takeSnapshot();
+        assertThat(snapshot.getTotalCount(), equalTo(0L));
+        assertThat(snapshot.getValueAtPercentile(99), equalTo(0L));
+    }
+}
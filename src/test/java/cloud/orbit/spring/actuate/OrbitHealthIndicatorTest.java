@@ -35,6 +35,9 @@ import org.springframework.boot.actuate.health.Status;
 import cloud.orbit.actors.Stage;
 import cloud.orbit.actors.cluster.NodeAddressImpl;
 import cloud.orbit.actors.runtime.NodeCapabilities;
+import cloud.orbit.spring.ActorPrewarmer;
+import cloud.orbit.spring.StageExecutorWatermarks;
+import cloud.orbit.spring.StageStartup;
 
 import java.util.Collections;
 import java.util.UUID;
@@ -99,4 +102,44 @@ public class OrbitHealthIndicatorTest
                 equalTo(NodeCapabilities.NodeState.RUNNING));
         assertThat(orbitHealthIndicator.health().getDetails().get("alive"), equalTo(true));
     }
+
+    @Test
+    public void executionPoolOverloaded_outOfService() throws Exception
+    {
+        StageExecutorWatermarks watermarks = mock(StageExecutorWatermarks.class);
+        when(watermarks.getHighWatermark()).thenReturn(100);
+        when(watermarks.isOverloaded()).thenReturn(true);
+        when(watermarks.getQueueDepth()).thenReturn(120);
+        orbitHealthIndicator = new OrbitHealthIndicator(stage, watermarks, null, null);
+        when(stage.getAllNodes()).thenReturn(Collections.singletonList(localAddress));
+        when(stage.getState()).thenReturn(NodeCapabilities.NodeState.RUNNING);
+        assertThat(orbitHealthIndicator.health().getStatus(), equalTo(Status.OUT_OF_SERVICE));
+        assertThat(orbitHealthIndicator.health().getDetails().get("queueDepth"), equalTo(120));
+    }
+
+    @Test
+    public void prewarming_outOfService() throws Exception
+    {
+        ActorPrewarmer actorPrewarmer = mock(ActorPrewarmer.class);
+        when(actorPrewarmer.isWarming()).thenReturn(true);
+        when(actorPrewarmer.getRemainingActorCount()).thenReturn(42);
+        orbitHealthIndicator = new OrbitHealthIndicator(stage, null, actorPrewarmer, null);
+        when(stage.getAllNodes()).thenReturn(Collections.singletonList(localAddress));
+        when(stage.getState()).thenReturn(NodeCapabilities.NodeState.RUNNING);
+        assertThat(orbitHealthIndicator.health().getStatus(), equalTo(Status.OUT_OF_SERVICE));
+        assertThat(orbitHealthIndicator.health().getDetails().get("prewarming"), equalTo(42));
+
+        when(actorPrewarmer.isWarming()).thenReturn(false);
+        assertThat(orbitHealthIndicator.health().getStatus(), equalTo(Status.UP));
+    }
+
+    @Test
+    public void startupFailed_unhealthyWithFailure() throws Exception
+    {
+        StageStartup stageStartup = mock(StageStartup.class);
+        when(stageStartup.getStartupFailure()).thenReturn(new IllegalStateException("cluster unavailable"));
+        orbitHealthIndicator = new OrbitHealthIndicator(stage, null, null, stageStartup);
+        assertThat(orbitHealthIndicator.health().getStatus(), equalTo(Status.DOWN));
+        assertThat(orbitHealthIndicator.health().getDetails().get("startupError"), equalTo("cluster unavailable"));
+    }
 }
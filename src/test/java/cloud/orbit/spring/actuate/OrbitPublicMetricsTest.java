@@ -0,0 +1,186 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+
+import cloud.orbit.actors.Actor;
+import cloud.orbit.actors.net.HandlerContext;
+import cloud.orbit.actors.runtime.AbstractActor;
+import cloud.orbit.actors.runtime.Invocation;
+import cloud.orbit.concurrent.Task;
+import cloud.orbit.spring.CountingRejectedExecutionHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrbitPublicMetricsTest
+{
+    private final ActorMetricsLifetimeExtension actorMetrics =
+            new ActorMetricsLifetimeExtension(actor -> actor instanceof OtherFakeActorImpl
+                    ? OtherFakeActor.class : FakeActor.class);
+    private final MessagingMetricsPipelineExtension messagingMetrics = new MessagingMetricsPipelineExtension();
+
+    @Test
+    public void activationsAndDeactivations_countedPerInterface() throws Exception
+    {
+        OrbitPublicMetrics metrics = new OrbitPublicMetrics(actorMetrics, messagingMetrics, null);
+        FakeActorImpl first = new FakeActorImpl();
+        actorMetrics.postActivation(first).join();
+        actorMetrics.postActivation(new FakeActorImpl()).join();
+        actorMetrics.postActivation(new OtherFakeActorImpl()).join();
+        actorMetrics.postDeactivation(first).join();
+
+        Map<String, Number> values = toMap(metrics);
+        assertThat(values.get("counter.orbit.actors.activations"), equalTo(3L));
+        assertThat(values.get("counter.orbit.actors.deactivations"), equalTo(1L));
+        assertThat(values.get("gauge.orbit.actors.active." + FakeActor.class.getName()), equalTo(1L));
+        assertThat(values.get("gauge.orbit.actors.active." + OtherFakeActor.class.getName()), equalTo(1L));
+    }
+
+    @Test
+    public void invocationsAwaitingResponse_countedUntilAnsweredOrTimedOut() throws Exception
+    {
+        OrbitPublicMetrics metrics = new OrbitPublicMetrics(actorMetrics, messagingMetrics, null);
+        HandlerContext ctx = mock(HandlerContext.class);
+        Task<Object> answered = new Task<>();
+        Task<Object> timedOut = new Task<>();
+        Invocation firstInvocation = mock(Invocation.class);
+        Invocation secondInvocation = mock(Invocation.class);
+        when(ctx.write(firstInvocation)).thenReturn(answered);
+        when(ctx.write(secondInvocation)).thenReturn(timedOut);
+
+        messagingMetrics.write(ctx, firstInvocation);
+        messagingMetrics.write(ctx, secondInvocation);
+        assertThat(toMap(metrics).get("gauge.orbit.messaging.pending"), equalTo(2L));
+
+        answered.complete("result");
+        timedOut.completeExceptionally(new TimeoutException());
+        Map<String, Number> values = toMap(metrics);
+        assertThat(values.get("gauge.orbit.messaging.pending"), equalTo(0L));
+        assertThat(values.get("counter.orbit.messaging.responses"), equalTo(1L));
+        assertThat(values.get("counter.orbit.messaging.timeouts"), equalTo(1L));
+    }
+
+    @Test
+    public void threadPoolExecutorWithoutCountingHandler_handlerIsLeftAlone() throws Exception
+    {
+        RejectedExecutionHandler handler = new ThreadPoolExecutor.DiscardPolicy();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                handler);
+        try
+        {
+            OrbitPublicMetrics metrics = new OrbitPublicMetrics(actorMetrics, messagingMetrics, executor);
+            assertFalse(toMap(metrics).containsKey("counter.orbit.executor.rejected"));
+            assertThat(executor.getRejectedExecutionHandler(), sameInstance(handler));
+        }
+        finally
+        {
+            shutdown(executor);
+        }
+    }
+
+    @Test
+    public void threadPoolExecutor_rejectionsAreCounted() throws Exception
+    {
+        CountingRejectedExecutionHandler handler =
+                new CountingRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+                handler);
+        OrbitPublicMetrics metrics = new OrbitPublicMetrics(actorMetrics, messagingMetrics, executor);
+        Task<Void> release = new Task<>();
+        try
+        {
+            executor.execute(release::join);
+            try
+            {
+                executor.execute(() -> { });
+            }
+            catch (RejectedExecutionException expected)
+            {
+                // the original policy still applies
+            }
+            Map<String, Number> values = toMap(metrics);
+            assertThat(values.get("counter.orbit.executor.rejected"), equalTo(1L));
+            assertThat(values.get("gauge.orbit.executor.size"), equalTo(1));
+            assertThat(executor.getRejectedExecutionHandler(), sameInstance(handler));
+        }
+        finally
+        {
+            release.complete(null);
+            shutdown(executor);
+        }
+    }
+
+    private static void shutdown(final ExecutorService executor) throws InterruptedException
+    {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    private static Map<String, Number> toMap(final OrbitPublicMetrics metrics)
+    {
+        Map<String, Number> values = new HashMap<>();
+        for (Metric<?> metric : metrics.metrics())
+        {
+            values.put(metric.getName(), metric.getValue());
+        }
+        return values;
+    }
+
+    private interface FakeActor extends Actor
+    {
+    }
+
+    private interface OtherFakeActor extends Actor
+    {
+    }
+
+    private static class FakeActorImpl extends AbstractActor implements FakeActor
+    {
+    }
+
+    private static class OtherFakeActorImpl extends AbstractActor implements OtherFakeActor
+    {
+    }
+}
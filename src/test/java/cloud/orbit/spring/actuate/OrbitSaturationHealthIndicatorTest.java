@@ -0,0 +1,124 @@
+/*
+ Copyright (C) 2017 Electronic Arts Inc.  All rights reserved.
+
+ Redistribution and use in source and binary forms, with or without
+ modification, are permitted provided that the following conditions
+ are met:
+
+ 1.  Redistributions of source code must retain the above copyright
+     notice, this list of conditions and the following disclaimer.
+ 2.  Redistributions in binary form must reproduce the above copyright
+     notice, this list of conditions and the following disclaimer in the
+     documentation and/or other materials provided with the distribution.
+ 3.  Neither the name of Electronic Arts, Inc. ("EA") nor the names of
+     its contributors may be used to endorse or promote products derived
+     from this software without specific prior written permission.
+
+ THIS SOFTWARE IS PROVIDED BY ELECTRONIC ARTS AND ITS CONTRIBUTORS "AS IS" AND ANY
+ EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ DISCLAIMED. IN NO EVENT SHALL ELECTRONIC ARTS OR ITS CONTRIBUTORS BE LIABLE FOR ANY
+ DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package cloud.orbit.spring.actuate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import cloud.orbit.actors.Stage;
+import cloud.orbit.actors.cluster.NodeAddressImpl;
+import cloud.orbit.spring.StageExecutorWatermarks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OrbitSaturationHealthIndicatorTest
+{
+    private Stage stage;
+    private ExecutorService executorService;
+    private StageExecutorWatermarks watermarks;
+    private OrbitHealthIndicatorConfiguration.SaturationProperties thresholds;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        stage = mock(Stage.class);
+        when(stage.getAllNodes()).thenReturn(Arrays.asList(new NodeAddressImpl(UUID.randomUUID()),
+                new NodeAddressImpl(UUID.randomUUID())));
+        executorService = Executors.newFixedThreadPool(4);
+        watermarks = mock(StageExecutorWatermarks.class);
+        thresholds = new OrbitHealthIndicatorConfiguration.SaturationProperties();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void belowThresholds_up() throws Exception
+    {
+        thresholds.setMaxQueueDepth(100);
+        thresholds.setMinClusterSize(2);
+        when(watermarks.getQueueDepth()).thenReturn(10);
+        Health health = new OrbitSaturationHealthIndicator(stage, executorService, watermarks,
+                new MessagingMetricsPipelineExtension(), thresholds).health();
+
+        assertThat(health.getStatus(), equalTo(Status.UP));
+        assertThat(health.getDetails().get("queueDepth"), equalTo(10));
+        assertThat(health.getDetails().get("clusterSize"), equalTo(2));
+        assertThat(health.getDetails().get("executorUtilization"), equalTo(0.0));
+        assertThat(health.getDetails().get("pendingResponses"), equalTo(0L));
+    }
+
+    @Test
+    public void queueTooDeep_outOfService() throws Exception
+    {
+        thresholds.setMaxQueueDepth(100);
+        when(watermarks.getQueueDepth()).thenReturn(150);
+        Health health = new OrbitSaturationHealthIndicator(stage, executorService, watermarks, null, thresholds)
+                .health();
+
+        assertThat(health.getStatus(), equalTo(Status.OUT_OF_SERVICE));
+        assertThat(health.getDetails().get("degraded"), equalTo(Collections.singletonList("queueDepth")));
+        assertThat(health.getDetails().containsKey("pendingResponses"), equalTo(false));
+    }
+
+    @Test
+    public void clusterTooSmall_outOfService() throws Exception
+    {
+        thresholds.setMinClusterSize(3);
+        Health health = new OrbitSaturationHealthIndicator(stage, executorService, watermarks, null, thresholds)
+                .health();
+
+        assertThat(health.getStatus(), equalTo(Status.OUT_OF_SERVICE));
+        assertThat(health.getDetails().get("degraded"), equalTo(Collections.singletonList("clusterSize")));
+    }
+
+    @Test
+    public void noThresholds_neverDegraded() throws Exception
+    {
+        when(watermarks.getQueueDepth()).thenReturn(Integer.MAX_VALUE);
+        Health health = new OrbitSaturationHealthIndicator(stage, executorService, watermarks, null, thresholds)
+                .health();
+
+        assertThat(health.getStatus(), equalTo(Status.UP));
+    }
+}